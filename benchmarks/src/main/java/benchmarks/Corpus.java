@@ -0,0 +1,99 @@
+package benchmarks;
+
+import interfaces.IScriptGeneratorService;
+import services.SyntaxTreeServices;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * One of the scripts bundled with the tests, or a generated one,
+ * held in memory so that benchmarks do not measure the disk.
+ *
+ * The corpora are read from the directory in the jsyntaxtree.corpus
+ * system property, or else from the test resources of the main project,
+ * whether the benchmarks are run from this module or from the project root.
+ */
+public final class Corpus {
+
+    private static final String CORPUS_PROPERTY = "jsyntaxtree.corpus";
+    private static final String[] DEFAULT_DIRECTORIES = {
+            "../src/test/resources",
+            "src/test/resources"
+    };
+
+    private final String name;
+    private final String text;
+    private final long bytes;
+
+    private Corpus(String name, String text, long bytes) {
+        this.name = name;
+        this.text = text;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Reads a bundled corpus
+     *
+     * @param name  File name, like war3map1 or war3map.wts
+     * @return      Corpus held in memory
+     */
+    public static Corpus load(String name) {
+        Path path = directory().resolve(name);
+        try {
+            byte[] content = Files.readAllBytes(path);
+            return new Corpus(name, new String(content, StandardCharsets.UTF_8), content.length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read corpus " + path.toAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Generates a synthetic script of about the given size
+     *
+     * @param seed              Seed deciding the script
+     * @param approximateBytes  Desired size of the script
+     * @return                  Corpus held in memory
+     */
+    public static Corpus generate(long seed, long approximateBytes) {
+        IScriptGeneratorService generator = SyntaxTreeServices.defaultScriptGenerator(seed);
+        generator.scaleTo(approximateBytes);
+        String text = generator.generate();
+        return new Corpus("generated-" + approximateBytes, text, text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static Path directory() {
+        String configured = System.getProperty(CORPUS_PROPERTY);
+        if(configured != null) {
+            return Paths.get(configured);
+        }
+        for(String candidate : DEFAULT_DIRECTORIES) {
+            Path directory = Paths.get(candidate);
+            if(Files.isDirectory(directory.resolve("features"))) {
+                return directory;
+            }
+        }
+        throw new IllegalStateException("Could not find the corpora; set -D" + CORPUS_PROPERTY + "=<directory>");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the size of the corpus on disk in megabytes (10^6 bytes)
+     *
+     * @return  Size in megabytes
+     */
+    public double getMegabytes() {
+        return bytes / 1_000_000.0;
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import interfaces.IAnalysisService;
+import interfaces.ISyntaxTree;
+import nodes.AbstractFunction;
+import nodes.j.Variable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import services.AnalysisService;
+import tree.SyntaxTree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-depth isolation of functions and globals of a bundled script,
+ * starting from each function or global in turn.
+ *
+ * The tree is parsed once, so its call graph and use-def index
+ * are built by the first isolation and reused after that.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IsolateBenchmark {
+
+    @Param({"war3map1", "war3map2", "war3map3"})
+    public String corpusName;
+
+    /**
+     * Isolations per invocation
+     */
+    @Param({"1", "16", "256"})
+    public int operations;
+
+    @Param({"PASSIVE", "AGGRESSIVE", "INVERSE"})
+    public IAnalysisService.ExpansionStyle expansionStyle;
+
+    private ISyntaxTree tree;
+    private IAnalysisService service;
+    private List<AbstractFunction> functions;
+    private List<Variable> globals;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tree = SyntaxTree.readTree(Corpus.load(corpusName).getText());
+        service = new AnalysisService(expansionStyle);
+        functions = tree.getFunctions();
+        globals = tree.getGlobalVariables();
+    }
+
+    @Benchmark
+    public void isolateFunction(Blackhole blackhole) {
+        for(int i = 0; i < operations; i++) {
+            String functionName = functions.get(i % functions.size()).getName();
+            blackhole.consume(service.isolateFunction(tree, functionName, -1));
+        }
+    }
+
+    @Benchmark
+    public void isolateVariable(Blackhole blackhole) {
+        for(int i = 0; i < operations && !globals.isEmpty(); i++) {
+            String variableName = globals.get(i % globals.size()).getName();
+            blackhole.consume(service.isolateVariable(tree, variableName, -1));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import interfaces.ISyntaxTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.PreprocessFileService;
+import tree.SyntaxTree;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and rendering of the bundled scripts.
+ *
+ * Rendered text is cached until the tree changes, so every
+ * rendering is of a tree read just before it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"war3map1", "war3map2", "war3map3", "FAI", "JJCP", "NZCP"})
+    public String corpusName;
+
+    private Corpus corpus;
+    private ISyntaxTree tree;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = Corpus.load(corpusName);
+    }
+
+    /**
+     * Reads the tree again, so the next rendering is not cached
+     */
+    @Setup(Level.Invocation)
+    public void parse() {
+        tree = SyntaxTree.readTree(corpus.getText());
+    }
+
+    @Benchmark
+    public ISyntaxTree readTree(Throughput throughput) {
+        throughput.processed(corpus);
+        return SyntaxTree.readTree(corpus.getText());
+    }
+
+    @Benchmark
+    public CharSequence preprocessFile(Throughput throughput) {
+        throughput.processed(corpus);
+        return new PreprocessFileService().preprocessFile(new StringReader(corpus.getText()));
+    }
+
+    @Benchmark
+    public String renderToString(Throughput throughput) {
+        throughput.processed(corpus);
+        return tree.toString();
+    }
+
+    @Benchmark
+    public String renderFormatted(Throughput throughput) {
+        throughput.processed(corpus);
+        return tree.getFormatted();
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import interfaces.IAnalysisService;
+import interfaces.ISyntaxTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.AnalysisService;
+import tree.Reachability;
+import tree.SyntaxTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, rendering and analysis of generated scripts from 1KB to 100MB.
+ * Plotting the time of each size shows which operations grow faster than
+ * the script does. Every size is generated from the same seed.
+ *
+ * Scripts smaller than about 5KB still contain one of each construct,
+ * so the smallest size is larger than asked for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g", "-Xss64m"})
+public class ScalingBenchmark {
+
+    private static final long SEED = 1;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public long size;
+
+    private Corpus corpus;
+    private ISyntaxTree tree;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = Corpus.generate(SEED, size);
+    }
+
+    /**
+     * Reads the tree again, so nothing derived from the tree is cached
+     */
+    @Setup(Level.Invocation)
+    public void parse() {
+        tree = SyntaxTree.readTree(corpus.getText());
+    }
+
+    @Benchmark
+    public ISyntaxTree readTree(Throughput throughput) {
+        throughput.processed(corpus);
+        return SyntaxTree.readTree(corpus.getText());
+    }
+
+    @Benchmark
+    public String renderToString(Throughput throughput) {
+        throughput.processed(corpus);
+        return tree.toString();
+    }
+
+    /**
+     * Builds the call graph and use-def index, then the closure of every function
+     */
+    @Benchmark
+    public Reachability findReachability(Throughput throughput) {
+        throughput.processed(corpus);
+        return new AnalysisService().findReachability(tree);
+    }
+
+    /**
+     * Builds the call graph and use-def index, then isolates the last function
+     */
+    @Benchmark
+    public Object isolateFunction(Throughput throughput) {
+        throughput.processed(corpus);
+        IAnalysisService service = new AnalysisService(IAnalysisService.ExpansionStyle.AGGRESSIVE);
+        return service.isolateFunction(tree, tree.getFunctions().get(tree.getFunctions().size() - 1).getName(), -1);
+    }
+}
@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Megabytes of input handled by a benchmark. JMH reports the counter
+ * as a rate next to the primary result, which makes it MB/s.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Throughput {
+
+    public double megabytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+    }
+
+    /**
+     * Counts one pass over a corpus
+     *
+     * @param corpus    Corpus that was handled
+     */
+    public void processed(Corpus corpus) {
+        megabytes += corpus.getMegabytes();
+    }
+}
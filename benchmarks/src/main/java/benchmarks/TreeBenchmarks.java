@@ -0,0 +1,30 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the tree operation benchmarks with the GC profiler, which adds
+ * the allocation rate and bytes allocated per operation to every result.
+ * Other JMH options given on the command line are passed on.
+ */
+public final class TreeBenchmarks {
+
+    private TreeBenchmarks() {
+
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(new CommandLineOptions(args));
+        options.include(TreeEditBenchmark.class.getSimpleName())
+                .include(TreeRewriteBenchmark.class.getSimpleName())
+                .include(IsolateBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
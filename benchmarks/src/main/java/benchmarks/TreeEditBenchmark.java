@@ -0,0 +1,192 @@
+package benchmarks;
+
+import interfaces.ISyntaxTree;
+import nodes.AbstractFunction;
+import nodes.functions.Function;
+import nodes.functions.Statements;
+import nodes.j.Variable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import tree.CallGraph;
+import tree.SyntaxTree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Edits of a bundled script, repeated a number of times: renames,
+ * merges of other scripts and inlining of functions.
+ *
+ * Every invocation works on a freshly parsed tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeEditBenchmark {
+
+    private static final String INLINED_CALL = "GetTriggerUnit()";
+
+    @Param({"war3map1", "war3map2", "war3map3"})
+    public String corpusName;
+
+    /**
+     * Renames, merged scripts or inlined functions per invocation
+     */
+    @Param({"1", "16", "256"})
+    public int operations;
+
+    private Corpus corpus;
+    private Corpus mergedCorpus;
+    private ISyntaxTree tree;
+    private List<ISyntaxTree> merged;
+    private List<String[]> variableRenames;
+    private List<String[]> functionRenames;
+    private List<String> inlinedFunctions;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = Corpus.load(corpusName);
+        mergedCorpus = Corpus.load("war3map1");
+        ISyntaxTree parsed = SyntaxTree.readTree(corpus.getText());
+        List<String> globals = new ArrayList<>();
+        for(Variable variable : parsed.getGlobalVariables()) {
+            globals.add(variable.getName());
+        }
+        List<String> functions = new ArrayList<>();
+        for(AbstractFunction function : parsed.getFunctions()) {
+            if(function instanceof Function) {
+                functions.add(function.getName());
+            }
+        }
+        variableRenames = renames(globals, operations);
+        functionRenames = renames(functions, operations);
+        inlinedFunctions = calledFunctions(parsed.getCallGraph(), operations);
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        tree = SyntaxTree.readTree(corpus.getText());
+        merged = new ArrayList<>(operations);
+        for(int i = 0; i < operations; i++) {
+            merged.add(SyntaxTree.readTree(mergedCorpus.getText()));
+        }
+    }
+
+    @Benchmark
+    public ISyntaxTree renameVariable() {
+        for(String[] rename : variableRenames) {
+            tree.renameVariable(rename[0], rename[1]);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public ISyntaxTree renameFunction() {
+        for(String[] rename : functionRenames) {
+            tree.renameFunction(rename[0], rename[1]);
+        }
+        return tree;
+    }
+
+    /**
+     * Renames the same names as the single renames, in one batch.
+     * A batch renames every name at most once, so only the first
+     * round of renames is used.
+     */
+    @Benchmark
+    public ISyntaxTree renameAll() {
+        tree.renameAll(firstRound(variableRenames), firstRound(functionRenames));
+        return tree;
+    }
+
+    @Benchmark
+    public ISyntaxTree merge() {
+        for(ISyntaxTree other : merged) {
+            tree.merge(other);
+        }
+        return tree;
+    }
+
+    /**
+     * Inlines called functions into the body of every function.
+     * Inlining builds new statements and leaves the tree unchanged.
+     * Inlined text has to be a function call, so calls are replaced by a call of a native.
+     */
+    @Benchmark
+    public void inline(Blackhole blackhole) {
+        for(String functionName : inlinedFunctions) {
+            for(AbstractFunction function : tree.getFunctions()) {
+                if(function instanceof Function) {
+                    Statements statements = ((Function) function).getStatements();
+                    blackhole.consume(statements.inline(functionName, INLINED_CALL));
+                }
+            }
+        }
+    }
+
+    /**
+     * Plans renames of the names in turn. Once every name was renamed,
+     * the next round renames the new names again.
+     *
+     * @param names Existing names
+     * @param count Number of renames
+     * @return      Old and new name of each rename
+     */
+    private static List<String[]> renames(List<String> names, int count) {
+        List<String[]> renames = new ArrayList<>();
+        if(names.isEmpty()) {
+            return renames;
+        }
+        for(int i = 0; i < count; i++) {
+            String name = names.get(i % names.size());
+            int round = i / names.size();
+            String oldName = round == 0 ? name : name + "_r" + (round - 1);
+            renames.add(new String[] { oldName, name + "_r" + round });
+        }
+        return renames;
+    }
+
+    private static Map<String, String> firstRound(List<String[]> renames) {
+        Map<String, String> names = new LinkedHashMap<>();
+        for(String[] rename : renames) {
+            names.putIfAbsent(rename[0], rename[1]);
+        }
+        names.keySet().removeAll(new HashSet<>(names.values()));
+        return names;
+    }
+
+    /**
+     * Picks functions that are called by others, in turn
+     */
+    private static List<String> calledFunctions(CallGraph callGraph, int count) {
+        List<String> called = new ArrayList<>();
+        for(int id = 0; id < callGraph.size(); id++) {
+            if(callGraph.getFunction(id) instanceof Function && callGraph.callers(id).length > 0) {
+                called.add(callGraph.getFunction(id).getName());
+            }
+        }
+        List<String> picked = new ArrayList<>();
+        for(int i = 0; i < count && !called.isEmpty(); i++) {
+            picked.add(called.get(i % called.size()));
+        }
+        return picked;
+    }
+}
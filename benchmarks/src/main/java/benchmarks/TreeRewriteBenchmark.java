@@ -0,0 +1,61 @@
+package benchmarks;
+
+import interfaces.ISyntaxTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.RandomNameGeneratorService;
+import tree.SyntaxTree;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations that rewrite a whole bundled script at once.
+ *
+ * Every invocation works on a freshly parsed tree, which also
+ * means its text is not cached yet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeRewriteBenchmark {
+
+    @Param({"war3map1", "war3map2", "war3map3"})
+    public String corpusName;
+
+    private Corpus corpus;
+    private ISyntaxTree tree;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = Corpus.load(corpusName);
+    }
+
+    @Setup(Level.Invocation)
+    public void parse() {
+        tree = SyntaxTree.readTree(corpus.getText());
+    }
+
+    @Benchmark
+    public ISyntaxTree deduplicate() {
+        tree.deduplicate(new RandomNameGeneratorService());
+        return tree;
+    }
+
+    @Benchmark
+    public ISyntaxTree postprocess() {
+        return tree.postprocess();
+    }
+}
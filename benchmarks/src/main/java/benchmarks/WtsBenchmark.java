@@ -0,0 +1,43 @@
+package benchmarks;
+
+import nodes.wts.WtsStringsFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.LineStream;
+import tree.TreeContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the bundled trigger strings file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WtsBenchmark {
+
+    private Corpus corpus;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        corpus = Corpus.load("war3map.wts");
+    }
+
+    @Benchmark
+    public WtsStringsFile readWtsFile(Throughput throughput) {
+        throughput.processed(corpus);
+        return new WtsStringsFile(LineStream.of(corpus.getText()), new TreeContext());
+    }
+}
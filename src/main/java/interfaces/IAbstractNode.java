@@ -1,5 +1,7 @@
 package interfaces;
 
+import java.io.IOException;
+
 /**
  * Represents the most basic abstract syntax tree entry possible
  */
@@ -12,4 +14,13 @@ public interface IAbstractNode {
      * @return Original form of this node (code or string)
      */
     String toString();
+
+    /**
+     * Writes this node back in its original form.
+     * Indentation is not added.
+     *
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
+     */
+    void writeTo(Appendable output) throws IOException;
 }
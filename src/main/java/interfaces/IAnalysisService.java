@@ -2,6 +2,7 @@ package interfaces;
 
 import model.IsolateResult;
 import services.AnalysisService;
+import tree.Reachability;
 
 /**
  * Service to assist in code analysis
@@ -81,4 +82,13 @@ public interface IAnalysisService {
      * @return              Variable Scope enum representing variable usage
      */
     VariableScope findVariableScope(ISyntaxTree tree, String variableName);
+
+    /**
+     * Finds what every function transitively depends on, and what depends
+     * on it, in one pass. Use this instead of isolating every function.
+     *
+     * @param tree  Syntax tree
+     * @return      Closure of the tree at its current revision
+     */
+    Reachability findReachability(ISyntaxTree tree);
 }
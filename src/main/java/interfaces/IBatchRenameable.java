@@ -0,0 +1,20 @@
+package interfaces;
+
+import java.util.Map;
+
+/**
+ * Declares that this node can rename many variables
+ * and functions, and their uses, at once
+ */
+public interface IBatchRenameable {
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     * Every name is looked up once, so a name that is also one of
+     * the new names is not renamed a second time.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    void renameAll(Map<String, String> variables, Map<String, String> functions);
+}
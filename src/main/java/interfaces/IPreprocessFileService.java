@@ -1,5 +1,7 @@
 package interfaces;
 
+import java.io.Reader;
+import java.util.Iterator;
 import java.util.Scanner;
 
 /**
@@ -17,4 +19,22 @@ public interface IPreprocessFileService {
      * @return New scanner with preprocessed text
      */
     Scanner preprocessFile(Scanner inputScanner);
+
+    /**
+     * Preprocesses the given character input
+     * Removing comments and normalizing spacing/etc.
+     *
+     * @param input Reader with data containing the user's input
+     * @return Preprocessed text
+     */
+    CharSequence preprocessFile(Reader input);
+
+    /**
+     * Preprocesses the given character input one line at a time
+     * Removing comments, normalizing spacing/etc. and dropping empty lines.
+     *
+     * @param input Reader with data containing the user's input
+     * @return Preprocessed lines without line terminators
+     */
+    Iterator<String> preprocessLines(Reader input);
 }
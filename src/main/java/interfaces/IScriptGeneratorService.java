@@ -0,0 +1,32 @@
+package interfaces;
+
+/**
+ * Used to generate synthetic JASS and vJASS scripts of any size,
+ * for example to measure how the syntax tree scales
+ */
+public interface IScriptGeneratorService {
+
+    /**
+     * Sets the number of globals, natives, functions and containers
+     * so that the generated script is about the given size.
+     *
+     * @param approximateBytes  Desired size of the script
+     */
+    void scaleTo(long approximateBytes);
+
+    /**
+     * Generates the script. The same seed and settings
+     * always produce the same script.
+     *
+     * @return  Generated script
+     */
+    String generate();
+
+    /**
+     * Generates the script into any destination,
+     * without building it as a whole String
+     *
+     * @param output    Destination for the code
+     */
+    void writeTo(Appendable output);
+}
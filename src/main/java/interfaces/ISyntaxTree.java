@@ -2,13 +2,20 @@ package interfaces;
 
 import nodes.AbstractFunction;
 import nodes.functions.Function;
+import nodes.functions.NativeFunction;
 import nodes.functions.TypeDeclaration;
 import nodes.j.Script;
 import nodes.j.Variable;
+import nodes.vjass.Method;
 import services.RandomNameGeneratorService;
+import tree.CallGraph;
+import tree.UseDefIndex;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents an abstract Syntax Tree root that contains a Script
@@ -43,6 +50,60 @@ public interface ISyntaxTree {
      */
     List<AbstractFunction> getFunctions();
 
+    /**
+     * Finds a global variable by name
+     *
+     * @param name  Variable name
+     * @return      Global variable, or null if there is none
+     */
+    Variable findGlobal(String name);
+
+    /**
+     * Finds a function, native, method or type among the functions by name
+     *
+     * @param name  Function name
+     * @return      Function, or null if there is none
+     */
+    AbstractFunction findFunction(String name);
+
+    /**
+     * Finds a native function by name
+     *
+     * @param name  Native name
+     * @return      Native function, or null if there is none
+     */
+    NativeFunction findNative(String name);
+
+    /**
+     * Finds a type declaration by name
+     *
+     * @param name  Type name
+     * @return      Type declaration, or null if there is none
+     */
+    TypeDeclaration findType(String name);
+
+    /**
+     * Finds a vJASS method by name. Methods of a struct are named StructName.methodName.
+     *
+     * @param name  Method name
+     * @return      Method, or null if there is none
+     */
+    Method findMethod(String name);
+
+    /**
+     * Returns which functions call or refer to which others
+     *
+     * @return  Call graph of the functions
+     */
+    CallGraph getCallGraph();
+
+    /**
+     * Returns which functions and statements read and write each global variable
+     *
+     * @return  Use-def index of the global variables
+     */
+    UseDefIndex getUseDefIndex();
+
     /**
      * Returns the Tree as a formatted String
      *
@@ -63,12 +124,36 @@ public interface ISyntaxTree {
     void addFunctionMain();
 
     /**
-     * Writes this SyntaxTree out to a file.
+     * Writes this SyntaxTree out to a file
+     * using the platform default charset.
      *
      * @param file  File path to write to
      */
     void write(File file);
 
+    /**
+     * Writes this SyntaxTree out to a UTF-8 file.
+     *
+     * @param path  File path to write to
+     */
+    void write(Path path);
+
+    /**
+     * Writes this SyntaxTree out to a file.
+     *
+     * @param path      File path to write to
+     * @param charset   Charset to encode the file in
+     */
+    void write(Path path, Charset charset);
+
+    /**
+     * Writes this SyntaxTree to any destination, without a trailing newline.
+     * Nodes are written as they are visited, so the script is never built as a whole String.
+     *
+     * @param output    Destination for the code
+     */
+    void writeTo(Appendable output);
+
     /**
      * Combines this SyntaxTree with another and then checks
      * for errors. Gracefully handles function main.
@@ -93,6 +178,16 @@ public interface ISyntaxTree {
      */
     void renameFunction(String oldFunctionName, String newFunctionName);
 
+    /**
+     * Changes the names of many variables and functions in one pass
+     * over the tree. Unlike a series of single renames, a new name that
+     * is also an existing name does not get renamed again.
+     *
+     * @param variables Existing variable names mapped to new names
+     * @param functions Existing function names mapped to new names
+     */
+    void renameAll(Map<String, String> variables, Map<String, String> functions);
+
     /**
      * Cleans up the code slightly
      *
@@ -1,8 +1,10 @@
 package nodes;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
 import java.util.List;
@@ -11,7 +13,7 @@ import java.util.Scanner;
 /**
  * Represents a Function-like entity. Can be a Function itself or a Native Function.
  */
-public abstract class AbstractFunction extends AbstractNode implements IFunctionRenameable, IVariableRenameable {
+public abstract class AbstractFunction extends AbstractNode implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     /**
      * Sets up this abstract node with a scanner to receive words.
@@ -23,6 +25,16 @@ public abstract class AbstractFunction extends AbstractNode implements IFunction
         super(fileScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public AbstractFunction(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -1,9 +1,14 @@
 package nodes;
 
 import exception.ParsingException;
+import exception.WritingException;
 import interfaces.IAbstractNode;
+import parser.LineStream;
+import tree.ParseListener;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -13,10 +18,10 @@ import java.util.Scanner;
 public abstract class AbstractNode extends AbstractReadable implements IAbstractNode {
 
     /**
-     * Scanner to read lines from.
+     * Stream to read lines from.
      * Should contain ONLY the code for this specific AST Node.
      */
-    private Scanner fileScanner;
+    private LineStream input;
 
     protected TreeContext context;
 
@@ -26,11 +31,27 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
      * @param inputScanner Scanner containing JASS code
      */
     public AbstractNode(Scanner inputScanner, TreeContext context) {
-        this.fileScanner = inputScanner;
+        this(LineStream.of(inputScanner), context);
+        this.verifyEndOfStream();
+    }
+
+    /**
+     * Sets up this abstract node with a stream to receive lines.
+     * The node reads only its own lines and leaves the stream
+     * positioned after them, so parents can hand their own
+     * stream to each child in turn.
+     *
+     * @param input Stream containing JASS code
+     */
+    public AbstractNode(LineStream input, TreeContext context) {
+        this.input = input;
         this.context = context;
         this.setupVariables();
         this.readNode();
-        this.verifyEndOfStream();
+        ParseListener listener = context.getListener();
+        if(listener != null) {
+            listener.nodeRead(this);
+        }
     }
 
     /**
@@ -46,7 +67,8 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
      * @param input JASS Code
      */
     public AbstractNode(String input, TreeContext context) {
-        this(new Scanner(input), context);
+        this(LineStream.of(input), context);
+        this.verifyEndOfStream();
     }
 
     /**
@@ -75,8 +97,32 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
         if(!hasNextLine()) {
             return "";
         }
-        String line = fileScanner.nextLine();
+        String line = input.nextLine();
         context.setLastLine(line);
+        return normalizeLine(line, trim);
+    }
+
+    /**
+     * Gets the next line without consuming it.
+     * The line is normalized the same way as readLine().
+     *
+     * @return Next line, or empty if there are no more lines
+     */
+    protected final String peekLine() {
+        if(!hasNextLine()) {
+            return "";
+        }
+        return normalizeLine(input.peekLine(), true);
+    }
+
+    /**
+     * Normalizes spacing of keywords at the start of a line
+     *
+     * @param line  Line of code
+     * @param trim  Whether to trim the line
+     * @return      Normalized line of code
+     */
+    private String normalizeLine(String line, boolean trim) {
         if(trim) {
             line = line.trim();
         }
@@ -103,7 +149,7 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
     /**
      * Called after reading to ensure that the scanner is all used up
      */
-    private void verifyEndOfStream() {
+    protected void verifyEndOfStream() {
         if (hasNextLine()) {
             throw new ParsingException("Expected EOF, got " + readLine());
         }
@@ -115,40 +161,38 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
      * @return True if has next word; false if not.
      */
     protected final boolean hasNextLine() {
-        return fileScanner.hasNextLine();
+        return input.hasNextLine();
     }
 
     /**
-     * Safe method to delete final character from a StringBuilder.
+     * Gets the stream this node reads from.
+     * Children created with this stream continue where this node is.
      *
-     * @param inputString StringBuilder with an extra newline
+     * @return Stream containing JASS code
      */
-    protected final void removeFinalCharacter(StringBuilder inputString) {
-        if (inputString.length() > 0) {
-            inputString.deleteCharAt(inputString.length() - 1);
-        }
+    protected final LineStream getInput() {
+        return input;
     }
 
     /**
      * Safe method to delete final character from a StringBuilder.
      *
-     * @param count       How many characters to remove
      * @param inputString StringBuilder with an extra newline
      */
-    protected final void removeFinalCharacter(int count, StringBuilder inputString) {
-        for(int i = 0; i < count; i++) {
-            removeFinalCharacter(inputString);
+    protected final void removeFinalCharacter(StringBuilder inputString) {
+        if (inputString.length() > 0) {
+            inputString.deleteCharAt(inputString.length() - 1);
         }
     }
 
     /**
-     * Converts this node back to its original form.
-     * Indentation is not added.
+     * Writes this node back in its original form.
      *
-     * @return Original form of this node (code or string)
+     * @param output           Destination for the code
+     * @param indentationLevel Current indentation level
+     * @throws IOException If the destination cannot be written to
      */
-    @Override
-    public abstract String toString();
+    public abstract void writeFormattedTo(Appendable output, int indentationLevel) throws IOException;
 
     /**
      * Converts this node back to its original form.
@@ -156,21 +200,30 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
      * @param indentationLevel  Current indentation level
      * @return Original form of this node (code or string) with indentation
      */
-    public abstract String toFormattedString(int indentationLevel);
+    public final String toFormattedString(int indentationLevel) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeFormattedTo(builder, indentationLevel);
+        } catch (IOException ex) {
+            // StringBuilder never throws
+            throw new WritingException(ex);
+        }
+        return builder.toString();
+    }
 
     /**
-     * Adds tab characters to this StringBuilder
+     * Adds tab characters to the output
      *
-     * @param currentString Current Stringbuilder to add to
+     * @param output            Destination for the code
      * @param indentationLevel  Indentation level to add up to
+     * @throws IOException      If the destination cannot be written to
      */
-    protected void addTabs(StringBuilder currentString, int indentationLevel) {
+    protected void addTabs(Appendable output, int indentationLevel) throws IOException {
         for(int i = 0; i < indentationLevel; i++) {
-            currentString.append("    ");
+            output.append("    ");
         }
     }
 
-
     /**
      * Determines whether the line should have parenthesis trimmed from it
      *
@@ -232,33 +285,64 @@ public abstract class AbstractNode extends AbstractReadable implements IAbstract
 
     /**
      * Trims beginning and end parenthesis from line, if possible.
+     * Trims the same pairs as applying shouldTrim until it fails,
+     * but finds them all in one pass over the line.
      *
      * @param origin    JASS Code
      * @return          JASS Code with parenthesis trimmed
      */
     protected final String trimParenthesis(String origin) {
-        while(shouldTrim(origin)) {
-            origin = origin.substring(1);
-            origin = origin.substring(0, origin.length() - 1);
+        int length = origin.length();
+        int leading = 0;
+        while(leading < length && origin.charAt(leading) == '(') {
+            leading++;
+        }
+        if(leading == 0) {
+            return origin;
+        }
+        int[] closing = findClosingParenthesis(origin, leading);
+        int trimmed = 0;
+        // A pair can be trimmed if the end parenthesis closes the start one,
+        // or if the start one is never closed before the end of the line
+        while(trimmed < leading && length - 2 * trimmed >= 2
+                && origin.charAt(length - 1 - trimmed) == ')'
+                && (closing[trimmed] < 0 || closing[trimmed] >= length - 1 - trimmed)) {
+            trimmed++;
         }
-        return origin;
+        return origin.substring(trimmed, length - trimmed);
     }
 
     /**
-     * Format this line in the way we expect - we need to split by space later
+     * Finds where each of the parenthesis at the start of a line is closed,
+     * skipping parenthesis in quotes the way shouldTrim does
      *
-     * @param line  Line of code (condition)
-     * @return      Formatted line of code
+     * @param origin    JASS Code
+     * @param leading   Number of parenthesis the line starts with
+     * @return          Index of the closing parenthesis for each, or -1 if it is never closed
      */
-    protected final String formatSpacing(String line) {
-        line = line.replace(")and(", ") and (");
-        line = line.replace(")or(", ") or (");
-        line = line.replace(")and", ") and");
-        line = line.replace(")or", ") or");
-        line = line.replace("and(", "and (");
-        line = line.replace("or(", "or (");
-        line = line.replace("not(", "not (");
-        line = line.replace(")not", ") not");
-        return line;
+    private static int[] findClosingParenthesis(String origin, int leading) {
+        int[] closing = new int[leading];
+        Arrays.fill(closing, -1);
+        int parenthesisLevel = 0;
+        boolean quoted = false;
+        char lastChar1 = ' ';
+        char lastChar2 = ' ';
+        for(int i = 0; i < origin.length(); i++) {
+            char c = origin.charAt(i);
+            if(c == '\"' && (lastChar1 != '\\' || lastChar2 == '\\')) {
+                quoted = !quoted;
+            }
+            if(!quoted && c == '(') {
+                parenthesisLevel++;
+            } else if(!quoted && c == ')') {
+                parenthesisLevel--;
+                if(parenthesisLevel >= 0 && parenthesisLevel < leading && closing[parenthesisLevel] < 0) {
+                    closing[parenthesisLevel] = i;
+                }
+            }
+            lastChar2 = lastChar1;
+            lastChar1 = c;
+        }
+        return closing;
     }
 }
@@ -1,7 +1,64 @@
 package nodes;
 
+import exception.WritingException;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Base of every part of the syntax tree.
+ *
+ * Equality is structural: two parts are equal when they are of the same
+ * class and their fields and children are equal. Hash codes are computed
+ * from the same fields and children, and are cached, as is the rendered text.
+ * A comparison uses hash codes only when both are already cached, and
+ * otherwise compares the children directly.
+ *
+ * Every part has its own revision, which moves forward when the part or
+ * any part below it changes, and a cached value is only used while the
+ * revision it was computed at is current. To get there, parts know their
+ * parents: a part adopts its children, and invalidate() moves the revision
+ * of the changed part and of all parts above it up to the root. Parts that
+ * were not changed and are not above a change keep what they cached.
+ *
+ * Parts may be shared between trees (isolation, inlining and merging all
+ * reuse existing nodes), so a part may have more than one parent. The first
+ * parent is held directly; once there are more, they are held weakly, so
+ * that a shared part does not keep a discarded tree alive.
+ *
+ * Parts write their code straight to an Appendable, so that
+ * a whole script can be streamed out without building it as a String.
+ */
 public abstract class AbstractReadable {
 
+    private static final AtomicLongFieldUpdater<AbstractReadable> REVISION =
+            AtomicLongFieldUpdater.newUpdater(AbstractReadable.class, "revision");
+    private static final AtomicReferenceFieldUpdater<AbstractReadable, Object> PARENTS =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractReadable.class, Object.class, "parents");
+
+    /**
+     * Outside of the range of hash codes
+     */
+    private static final long UNKNOWN_HASH = Long.MIN_VALUE;
+
+    /**
+     * Revision of this part; moves forward when this part or a part below it changes
+     */
+    private volatile long revision;
+
+    /**
+     * Null, the only parent, or SharedParents once there is more than one
+     */
+    private volatile Object parents;
+
+    private volatile CachedHash cachedHash;
+    private volatile CachedText cachedText;
+
     protected final String rename(String original, String oldName, String newName) {
         if(original.equals(oldName)) {
             return newName;
@@ -12,4 +69,281 @@ public abstract class AbstractReadable {
         }
     }
 
+    /**
+     * Looks up the new name of a name, or of a function passed as code
+     *
+     * @param original  Name as written, possibly after "function "
+     * @param names     Existing names mapped to desired names
+     * @return          Renamed text, or the original if the name is not mapped
+     */
+    protected final String rename(String original, Map<String, String> names) {
+        String renamed = names.get(original);
+        if(renamed != null) {
+            return renamed;
+        }
+        if(original.startsWith("function ")) {
+            renamed = names.get(original.substring("function ".length()));
+            if(renamed != null) {
+                return "function " + renamed;
+            }
+        }
+        return original;
+    }
+
+    /**
+     * Must be called whenever a field of this part changes,
+     * so that values cached for it and for its parents are recomputed.
+     */
+    protected final void invalidate() {
+        AbstractReadable part = this;
+        while(part != null) {
+            REVISION.incrementAndGet(part);
+            Object above = part.parents;
+            if(above instanceof SharedParents) {
+                for(AbstractReadable parent : ((SharedParents) above).get()) {
+                    parent.invalidate();
+                }
+                part = null;
+            } else {
+                part = (AbstractReadable) above;
+            }
+        }
+    }
+
+    /**
+     * Gets the revision of this part.
+     * Anything derived from this part, and from the parts below it,
+     * stays valid while the revision is unchanged.
+     *
+     * @return  Current revision of this part
+     */
+    public final long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Makes this part a parent of a child, so that changes to the child
+     * reach this part. Must be called for every part this part holds.
+     *
+     * @param child Part held by this part, or null
+     * @param <T>   Type of the child
+     * @return      The child
+     */
+    protected final <T extends AbstractReadable> T adopt(T child) {
+        AbstractReadable part = child;
+        if(part != null && !PARENTS.compareAndSet(part, null, this) && part.parents != this) {
+            part.addParent(this);
+        }
+        return child;
+    }
+
+    /**
+     * Makes this part a parent of every child in a list
+     *
+     * @param children  Parts held by this part, or null
+     * @param <T>       Type of the list
+     * @return          The list
+     */
+    protected final <T extends List<? extends AbstractReadable>> T adoptAll(T children) {
+        if(children != null) {
+            for(AbstractReadable child : children) {
+                adopt(child);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Stops this part from being a parent of a child,
+     * once the child was taken out of this part or moved to another
+     *
+     * @param child Part no longer held by this part, or null
+     */
+    protected final void disown(AbstractReadable child) {
+        if(child != null && !PARENTS.compareAndSet(child, this, null)) {
+            child.removeParent(this);
+        }
+    }
+
+    private synchronized void addParent(AbstractReadable parent) {
+        Object current = parents;
+        if(current == null) {
+            parents = parent;
+        } else if(current instanceof SharedParents) {
+            ((SharedParents) current).add(parent);
+        } else if(current != parent) {
+            SharedParents shared = new SharedParents();
+            shared.add((AbstractReadable) current);
+            shared.add(parent);
+            parents = shared;
+        }
+    }
+
+    private synchronized void removeParent(AbstractReadable parent) {
+        Object current = parents;
+        if(current instanceof SharedParents) {
+            ((SharedParents) current).remove(parent);
+        }
+    }
+
+    /**
+     * Writes this part back in its original form.
+     * Indentation is not added.
+     *
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
+     */
+    public abstract void writeTo(Appendable output) throws IOException;
+
+    /**
+     * Converts this part back to its original form.
+     * Indentation is not added.
+     * The text is rendered once and reused until this part or a part below it changes.
+     *
+     * @return Original form of this part (code or string)
+     */
+    @Override
+    public final String toString() {
+        long revision = this.revision;
+        CachedText cached = cachedText;
+        if(cached == null || cached.revision != revision) {
+            StringBuilder builder = new StringBuilder();
+            try {
+                writeTo(builder);
+            } catch (IOException ex) {
+                // StringBuilder never throws
+                throw new WritingException(ex);
+            }
+            cached = new CachedText(revision, builder.toString());
+            cachedText = cached;
+        }
+        return cached.text;
+    }
+
+    /**
+     * Computes the hash code from this part's fields and children.
+     * By default, parts are only equal to themselves.
+     *
+     * @return  Structural hash code
+     */
+    protected int computeHashCode() {
+        return System.identityHashCode(this);
+    }
+
+    /**
+     * Compares this part's fields and children with another part of the same class.
+     * By default, parts are only equal to themselves.
+     *
+     * @param other Part of the same class, not this part
+     * @return      True if the parts are structurally equal; false if not.
+     */
+    protected boolean equalsStructure(AbstractReadable other) {
+        return false;
+    }
+
+    /**
+     * Gets the structural hash code. It is computed once and reused until this
+     * part or a part below it changes; parts above a change recompute their own
+     * hash from the hash codes their unchanged children kept.
+     *
+     * @return  Structural hash code
+     */
+    @Override
+    public final int hashCode() {
+        long revision = this.revision;
+        CachedHash cached = cachedHash;
+        if(cached == null || cached.revision != revision) {
+            cached = new CachedHash(revision, computeHashCode());
+            cachedHash = cached;
+        }
+        return cached.hash;
+    }
+
+    @Override
+    public final boolean equals(Object obj) {
+        if (obj == this) { return true; }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        AbstractReadable other = (AbstractReadable) obj;
+        // Hash codes only rule out equality when both are known; computing them would visit both parts anyway
+        long hash = currentHash();
+        long otherHash = other.currentHash();
+        if(hash != UNKNOWN_HASH && otherHash != UNKNOWN_HASH && hash != otherHash) {
+            return false;
+        }
+        return equalsStructure(other);
+    }
+
+    /**
+     * Gets the cached hash code if it is still current, without computing it
+     *
+     * @return  Hash code, or UNKNOWN_HASH if it is not cached
+     */
+    private long currentHash() {
+        CachedHash cached = cachedHash;
+        return cached == null || cached.revision != revision ? UNKNOWN_HASH : cached.hash;
+    }
+
+    /**
+     * A hash code together with the revision it was computed at
+     */
+    private static final class CachedHash {
+
+        private final long revision;
+        private final int hash;
+
+        private CachedHash(long revision, int hash) {
+            this.revision = revision;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Parents of a part that has more than one, held weakly
+     */
+    private static final class SharedParents {
+
+        private final List<WeakReference<AbstractReadable>> references = new ArrayList<>(2);
+
+        private synchronized void add(AbstractReadable parent) {
+            for(WeakReference<AbstractReadable> reference : references) {
+                if(reference.get() == parent) {
+                    return;
+                }
+            }
+            // Parents of discarded trees are dropped as new ones come in
+            references.removeIf(reference -> reference.get() == null);
+            references.add(new WeakReference<>(parent));
+        }
+
+        private synchronized void remove(AbstractReadable parent) {
+            references.removeIf(reference -> reference.get() == null || reference.get() == parent);
+        }
+
+        private synchronized List<AbstractReadable> get() {
+            List<AbstractReadable> live = new ArrayList<>(references.size());
+            for(WeakReference<AbstractReadable> reference : references) {
+                AbstractReadable parent = reference.get();
+                if(parent != null) {
+                    live.add(parent);
+                }
+            }
+            return live;
+        }
+    }
+
+    /**
+     * Rendered text together with the revision it was rendered at
+     */
+    private static final class CachedText {
+
+        private final long revision;
+        private final String text;
+
+        private CachedText(long revision, String text) {
+            this.revision = revision;
+            this.text = text;
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package nodes;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
 import java.util.List;
@@ -11,7 +13,7 @@ import java.util.Scanner;
 /**
  * Represents a statement, i.e. an entity that can appear inside a Function
  */
-public abstract class AbstractStatement extends AbstractNode implements IFunctionRenameable, IVariableRenameable {
+public abstract class AbstractStatement extends AbstractNode implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     /**
      * Sets up this abstract node with a scanner to receive words.
@@ -22,6 +24,15 @@ public abstract class AbstractStatement extends AbstractNode implements IFunctio
         super(fileScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public AbstractStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
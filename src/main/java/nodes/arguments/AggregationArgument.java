@@ -1,9 +1,13 @@
 package nodes.arguments;
 
+import nodes.AbstractReadable;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class AggregationArgument extends ArgumentType {
 
@@ -20,7 +24,7 @@ public class AggregationArgument extends ArgumentType {
     private TreeContext context;
 
     public AggregationArgument(List<Argument> aggregation, String operator, TreeContext context) {
-        this.aggregation = aggregation;
+        this.aggregation = adoptAll(aggregation);
         this.operator = operator;
         this.context = context;
     }
@@ -38,6 +42,19 @@ public class AggregationArgument extends ArgumentType {
         }
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        for (Argument arg : aggregation) {
+            arg.renameAll(variables, functions);
+        }
+    }
+
     /**
      * Renames the variable and all uses of this variable.
      *
@@ -60,17 +77,14 @@ public class AggregationArgument extends ArgumentType {
         return new AggregationArgument(newAggregation, operator, context);
     }
 
-    public String toString() {
-        StringBuilder built = new StringBuilder();
-        for (Argument aggregate : aggregation) {
-            built.append(aggregate.toString()).append(" ").append(operator).append(" ");
-        }
-        for(int i = 0; i < operator.length() + 2; i++) {
-            if(built.length() > 0) {
-                built.deleteCharAt(built.length() - 1);
+    @Override
+    public void writeTo(Appendable output) throws IOException {
+        for(int i = 0; i < aggregation.size(); i++) {
+            if(i > 0) {
+                output.append(" ").append(operator).append(" ");
             }
+            aggregation.get(i).writeTo(output);
         }
-        return built.toString();
     }
 
     @Override
@@ -98,4 +112,16 @@ public class AggregationArgument extends ArgumentType {
         }
         return false;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(operator, aggregation);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        AggregationArgument other = (AggregationArgument) obj;
+        return Objects.equals(operator, other.operator) &&
+                Objects.equals(aggregation, other.aggregation);
+    }
 }
@@ -1,13 +1,17 @@
 package nodes.arguments;
 
-import exception.ParsingException;
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
-import nodes.functions.FunctionCall;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -21,8 +25,11 @@ import java.util.Scanner;
  * - Aggregation: other arguments joined by an operator (for example +)
  * - Array call: An access to an array. Like myArray[5]. Two parts to it.
  * - "Not" Argument: An argument with a Not part on it.
+ * - Negative argument: An argument with a unary minus on it.
+ *
+ * Parsing is done by ExpressionParser, which respects JASS operator precedence.
  */
-public final class Argument extends AbstractNode implements IFunctionRenameable, IVariableRenameable {
+public final class Argument extends AbstractNode implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private ArgumentType whichArgument;
 
@@ -32,21 +39,6 @@ public final class Argument extends AbstractNode implements IFunctionRenameable,
      */
     private boolean hasParenthesis;
 
-    private boolean isAggregate;
-
-    /**
-     * Operators that cen separate an aggregation.
-     * Note the spaces in the operator is important
-     * Or else we can't differentiate between < and <= for example
-     */
-    private static String[] OPERATORS = {"+", "-", "/", "*", " and ", " or ", "> ", "< ", ">=", "<=", "==", "!=", " not "};
-    /**
-     * Some additional characters that aren't really
-     * separators for an aggregation, but also can't be
-     * in a function name.
-     */
-    private static String[] INVALID_FUNCTION_CHARACTERS = {"\"", "\\", ")", "(", "[", "]", "\n", " "};
-
     /**
      * Sets up this node with a scanner to receive words.
      *
@@ -56,220 +48,55 @@ public final class Argument extends AbstractNode implements IFunctionRenameable,
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Argument(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public Argument(ArgumentType whichArgument, boolean hasParenthesis, TreeContext context) {
         super(context);
-        this.whichArgument = whichArgument;
+        this.whichArgument = adopt(whichArgument);
         this.hasParenthesis = hasParenthesis;
     }
 
     /**
-     * Determines whether or not this line is an
-     * atomic function call, for example:
-     *
-     * myFunction(x) : is a function call.
-     * myFunction(x) + 5 : is not a function call (it's an aggregation)
-     *
-     * @param line  Argument line
-     * @return      True if function call; false if not.
+     * Parse the JASS code contained in the Scanner into a model object
      */
-    private boolean isFunctionCall(String line) {
-        if (line.contains("(") && line.contains(")")) {
-            // Extract everything up to the first ( as the functon name
-            String functionName = line.substring(0, line.indexOf("("));
-            // Check function name for validity
-            // If it fails these checks, it wasn't a function call
-            for (String operator : OPERATORS) {
-                if (functionName.contains(operator)) {
-                    return false;
-                }
-            }
-            for (String operator : INVALID_FUNCTION_CHARACTERS) {
-                if (functionName.contains(operator)) {
-                    return false;
-                }
-            }
-            // Everything other than the function name should be the arguments
-            String argumentsPart = line.substring(functionName.length());
-            boolean quoted = false;
-            boolean firstParenthesisFound = false;
-            int parenthesisLevel = 0; // Keeps track of how many parenthesis deep we are in a line
-            // Used to handle escape chars
-            char lastChar1 = ' ';
-            char lastChar2 = ' ';
-            boolean shouldBeFinished = false;
-
-            for (char c : argumentsPart.toCharArray()) {
-                if (shouldBeFinished) {
-                    // We should have reached the end of line but didn't
-                    // Therefore this isn't an atomic function call
-                    return false;
-                }
-                if (c == '\"') {
-                    // Handle quotes appropriately, taking escape characters into account
-                    if (lastChar1 != '\\') {
-                        quoted = !quoted;
-                    } else {
-                        if (lastChar2 == '\\') {
-                            quoted = !quoted;
-                        }
-                    }
-                } else if (c == '(' && !quoted) {
-                    // Non-quoted parenthesis means we started a function call
-                    // and went one-parenthesis deeper than before
-                    parenthesisLevel++;
-                    firstParenthesisFound = true;
-                } else if (c == ')' && !quoted) {
-                    // Non-quoted end-parenthesis means we went up one
-                    // parenthesis level and maybe finished the function call
-                    parenthesisLevel--;
-                    if (parenthesisLevel == 0 && firstParenthesisFound) {
-                        // If we ended our function call, this needs to be the
-                        // last char of the line to be valid.
-                        // If not the last char of the line, this boolean will
-                        // make it return false
-                        shouldBeFinished = true;
-                    }
-                }
-                // Update the last 2 characters to handle escape characters correctly
-                lastChar2 = lastChar1;
-                lastChar1 = c;
-            }
-            // If we reach the end here without returning false, that means it IS atomic
-            return true;
-        } else {
-            // It doesn't have parenthesis at all so it's not a function call
-            return false;
-        }
+    @Override
+    protected final void readNode() {
+        readIntoArgument(readLine());
     }
 
     /**
-     * Parse the JASS code contained in the Scanner into a model object
+     * Parses the line with the expression parser, replacing
+     * the current contents of this argument.
+     *
+     * @param line  JASS expression
      */
-    @Override
-    protected final void readNode() {
-        String line = readLine();
-        line = line.replace("<", "< ");
-        line = line.replaceAll("< =", "<=");
-        line = line.replace(">", "> ");
-        line = line.replaceAll("> =", ">=");
-        readIntoArgument(line);
+    private void readIntoArgument(String line) {
+        Argument parsed = new ExpressionParser(line, context).parseArgument();
+        disown(this.whichArgument);
+        this.whichArgument = adopt(parsed.release());
+        this.hasParenthesis = parsed.hasParenthesis;
     }
 
-    private final void readIntoArgument(String line) {
-        line = line.trim();
-        line = formatSpacing(line);
-        // Handle the annoying "is it < or <=" case by using spacing
-        line = line.replaceAll("<^[\\=]", "< ");
-        line = line.replaceAll(">^[\\=]", "> ");
-        String basicArgument = null;
-        if (shouldTrim(line)) {
-            // Maintain original parenthesis
-            hasParenthesis = true;
-            line = trimParenthesis(line).trim();
-        } else {
-            hasParenthesis = false;
-        }
-        if(line.startsWith("not ")) {
-            line = " " + line;
-        }
-        List<String> splitParts = new ArrayList<>();
-        StringBuilder splitPart = new StringBuilder();
-        String operator;
-        List<Argument> aggregation = new ArrayList<>();
-        if (isFunctionCall(line)) {
-            this.whichArgument = new FunctionCallArgument(line, context);
-        } else {
-            // If it's not a function call, try to make it an
-            // aggregation first. If it's not, then make it a basic arg.
-            boolean foundOperator = false;
-            boolean quoted = false;
-            String whichOperator = "";
-            int parenthesisLevel = 0;
-            char lastChar1 = ' ';
-            char lastChar2 = ' ';
-            for (char c : line.toCharArray()) {
-                splitPart.append(c);
-                // Handle quotes and escapes quotes
-                if (c == '\"') {
-                    if (lastChar1 != '\\') {
-                        quoted = !quoted;
-                    } else {
-                        if (lastChar2 == '\\') {
-                            quoted = !quoted;
-                        }
-                    }
-                } else if (c == '(') {
-                    parenthesisLevel++;
-                } else if (c == ')') {
-                    parenthesisLevel--;
-                } else if (parenthesisLevel == 0) {
-                    for (String op : OPERATORS) {
-                        // Try to split by every operator
-                        // If we can split by this operator, then split
-                        // the remainder of the entry by it as well.
-                        if (splitPart.toString().endsWith(op) && !quoted && !foundOperator) {
-                            foundOperator = true;
-                            whichOperator = op + "";
-                            removeFinalCharacter(op.length(), splitPart);
-                            splitParts.add(splitPart.toString());
-                            splitPart.setLength(0);
-                        } else if (foundOperator) {
-                            // Split by already known operator
-                            if ((c + "").equals(whichOperator) && !quoted && splitPart.length() > 0) {
-                                removeFinalCharacter(op.length(), splitPart);
-                                splitParts.add(splitPart.toString());
-                                splitPart.setLength(0);
-                            }
-                        }
-                    }
-                }
-                // Manage last characters for escaped quotes handling
-                lastChar2 = lastChar1;
-                lastChar1 = c;
-            }
-            if(splitPart.length()>0) {
-                splitParts.add(splitPart.toString());
-            }
-            if (foundOperator) {
-                // If we found an operator, then it's an aggregation
-                operator = whichOperator.trim();
-                int size = splitParts.size();
-                for (String part : splitParts) {
-                    // Handle empty part, for example "-1" splits into "", "1"
-                    // But this is not an aggregation!
-                    if (part == null || part.isEmpty()) {
-                        size--;
-                    }
-                }
-                // This is for empty part handling again.
-                if (size >= 2) {
-                    for (String part : splitParts) {
-                        // Parse each sub-argument into arguments.
-                        Argument argumentPart = new Argument(new Scanner(part), context);
-                        aggregation.add(argumentPart);
-                    }
-                    whichArgument = new AggregationArgument(aggregation, operator, context);
-                    this.isAggregate = true;
-                } else if(size == 1 && operator.equals("not")) {
-                    whichArgument = new NotArgument(splitParts.get(1), context);
-                } else {
-                    basicArgument = line;
-                }
-            } else {
-                basicArgument = line;
-            }
-        }
-        if(basicArgument != null && basicArgument.matches(".*\\[.*\\]") && basicArgument.endsWith("]")) {
-            String firstPart = basicArgument.substring(0, basicArgument.indexOf("["));
-            String secondPart = basicArgument.substring(1+basicArgument.indexOf("["), basicArgument.length()-1);
-            // Clear out basicArgument and set array parts
-            whichArgument = new ArrayArgument(firstPart, secondPart, context);
-        } else if(basicArgument != null && !basicArgument.isEmpty()) {
-            whichArgument = new BasicArgument(basicArgument, context);
-        }
+    /**
+     * Takes the contents out of this argument, so that they can be
+     * held by another argument instead
+     *
+     * @return  Argument type, which no longer has this argument as parent
+     */
+    ArgumentType release() {
+        ArgumentType released = whichArgument;
+        disown(released);
+        return released;
     }
 
     /**
@@ -300,6 +127,20 @@ public final class Argument extends AbstractNode implements IFunctionRenameable,
         whichArgument.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        if(whichArgument == null) {
+            return;
+        }
+        whichArgument.renameAll(variables, functions);
+    }
+
     public Argument inline(String functionName, String newText) {
         if(whichArgument == null) {
             return this;
@@ -331,40 +172,38 @@ public final class Argument extends AbstractNode implements IFunctionRenameable,
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
+    public final void writeTo(Appendable output) throws IOException {
         if(whichArgument == null) {
-            return "";
+            return;
         }
-
-        StringBuilder built = new StringBuilder();
         if (hasParenthesis) {
             // Add back on the trimmed parenthesis, if required.
-            built.append("(");
+            output.append("(");
         }
-        built.append(whichArgument.toString());
+        whichArgument.writeTo(output);
         if (hasParenthesis) {
             // Add back on the trimmed parenthesis, if required.
-            built.append(")");
+            output.append(")");
         }
-        // Trim spaces from and/or because we added an extra one on.
-        return built.toString().replace("  and  ", " and ").replace("  or  ", " or ");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     public boolean isNot() {
@@ -377,6 +216,10 @@ public final class Argument extends AbstractNode implements IFunctionRenameable,
 
     public final List<Argument> getArguments() {
         List<Argument> baseArguments = new ArrayList<>();
+        if(whichArgument == null) {
+            // Empty argument, like the one of a plain return
+            return baseArguments;
+        }
 
         if(whichArgument instanceof BasicArgument || whichArgument instanceof  FunctionCallArgument) {
             baseArguments.add(this);
@@ -387,23 +230,29 @@ public final class Argument extends AbstractNode implements IFunctionRenameable,
         return baseArguments;
     }
 
+    /**
+     * Gets the form of this argument (basic, function call, aggregation, etc)
+     *
+     * @return  Argument type, or null if the argument is empty
+     */
+    public ArgumentType getArgumentType() {
+        return whichArgument;
+    }
+
     public void setArgument(String line) {
         readIntoArgument(line);
+        invalidate();
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(whichArgument, hasParenthesis);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Argument other = (Argument) obj;
-        return this.toString().equals(other.toString());
+        return hasParenthesis == other.hasParenthesis &&
+                Objects.equals(whichArgument, other.whichArgument);
     }
 }
@@ -1,14 +1,13 @@
 package nodes.arguments;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractReadable;
 
 import java.util.List;
 
-public abstract class ArgumentType extends AbstractReadable implements IVariableRenameable, IFunctionRenameable {
-
-    public abstract String toString();
+public abstract class ArgumentType extends AbstractReadable implements IBatchRenameable, IVariableRenameable, IFunctionRenameable {
 
     public abstract ArgumentType inline(String functionName, String newText);
 
@@ -1,10 +1,14 @@
 package nodes.arguments;
 
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Objects;
 
 public class ArrayArgument extends ArgumentType {
 
@@ -21,8 +25,14 @@ public class ArrayArgument extends ArgumentType {
     private TreeContext context;
 
     public ArrayArgument(String arrayName, String arrayCall, TreeContext context) {
-        this.arrayName = new Argument(new Scanner(arrayName), context);
-        this.arrayCall = new Argument(new Scanner(arrayCall), context);
+        this.arrayName = adopt(new Argument(LineStream.of(arrayName), context));
+        this.arrayCall = adopt(new Argument(LineStream.of(arrayCall), context));
+        this.context = context;
+    }
+
+    public ArrayArgument(Argument arrayName, Argument arrayCall, TreeContext context) {
+        this.arrayName = adopt(arrayName);
+        this.arrayCall = adopt(arrayCall);
         this.context = context;
     }
 
@@ -38,6 +48,18 @@ public class ArrayArgument extends ArgumentType {
         arrayName.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        arrayCall.renameAll(variables, functions);
+        arrayName.renameAll(variables, functions);
+    }
+
     /**
      * Renames the variable and all uses of this variable.
      *
@@ -69,6 +91,14 @@ public class ArrayArgument extends ArgumentType {
                 arrayName.usesAsFunction(functionName);
     }
 
+    public Argument getArrayName() {
+        return arrayName;
+    }
+
+    public Argument getArrayCall() {
+        return arrayCall;
+    }
+
     @Override
     public List<Argument> getArguments() {
         List<Argument> arguments = new ArrayList<>();
@@ -79,7 +109,23 @@ public class ArrayArgument extends ArgumentType {
         return arguments;
     }
 
-    public String toString() {
-        return arrayName.toString() + "[" + arrayCall + "]";
+    @Override
+    public void writeTo(Appendable output) throws IOException {
+        arrayName.writeTo(output);
+        output.append("[");
+        arrayCall.writeTo(output);
+        output.append("]");
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(arrayName, arrayCall);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        ArrayArgument other = (ArrayArgument) obj;
+        return Objects.equals(arrayName, other.arrayName) &&
+                Objects.equals(arrayCall, other.arrayCall);
     }
 }
@@ -1,9 +1,13 @@
 package nodes.arguments;
 
+import nodes.AbstractReadable;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class BasicArgument extends ArgumentType {
 
@@ -23,7 +27,22 @@ public class BasicArgument extends ArgumentType {
      */
     @Override
     public void renameFunction(String oldFunctionName, String newFunctionName) {
-        this.content = rename(content, oldFunctionName, newFunctionName);
+        setContent(rename(content, oldFunctionName, newFunctionName));
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        String renamed = rename(content, variables);
+        if(renamed.equals(content)) {
+            renamed = rename(content, functions);
+        }
+        setContent(renamed);
     }
 
     /**
@@ -34,7 +53,18 @@ public class BasicArgument extends ArgumentType {
      */
     @Override
     public void renameVariable(String oldVariableName, String newVariableName) {
-        this.content = rename(content, oldVariableName, newVariableName);
+        setContent(rename(content, oldVariableName, newVariableName));
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    private void setContent(String content) {
+        if(!content.equals(this.content)) {
+            this.content = content;
+            invalidate();
+        }
     }
 
     @Override
@@ -58,7 +88,19 @@ public class BasicArgument extends ArgumentType {
         return new ArrayList<>();
     }
 
-    public String toString() {
-        return content;
+    @Override
+    public void writeTo(Appendable output) throws IOException {
+        output.append(content);
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hashCode(content);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        BasicArgument other = (BasicArgument) obj;
+        return Objects.equals(content, other.content);
     }
 }
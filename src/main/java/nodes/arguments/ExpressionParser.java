@@ -0,0 +1,346 @@
+package nodes.arguments;
+
+import exception.ParsingException;
+import nodes.functions.FunctionCall;
+import parser.JassLexer;
+import parser.Token;
+import parser.TokenType;
+import tree.TreeContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operator-precedence parser that turns a JASS expression into Arguments.
+ * The expression is read token by token in a single pass; every
+ * sub-argument is built directly instead of being re-parsed from text.
+ *
+ * Precedence, from loosest to tightest binding:
+ *
+ * - and, or
+ * - not
+ * - comparisons (==, !=, <, >, <=, >=)
+ * - + and -
+ * - * and /
+ * - unary minus
+ *
+ * Chains of the same operator are kept as a single aggregation,
+ * so a + b + c is one aggregation with three parts.
+ */
+public final class ExpressionParser {
+
+    private static final int LOGICAL = 1;
+    private static final int NOT = 2;
+    private static final int COMPARISON = 3;
+    private static final int ADDITIVE = 4;
+    private static final int MULTIPLICATIVE = 5;
+    private static final int UNARY = 6;
+
+    private final CharSequence source;
+    private final JassLexer lexer;
+    private final TreeContext context;
+
+    /**
+     * Creates a parser over a single expression.
+     *
+     * @param source    JASS expression
+     * @param context   Tree context
+     */
+    public ExpressionParser(CharSequence source, TreeContext context) {
+        this.source = source;
+        this.lexer = new JassLexer(source);
+        this.context = context;
+    }
+
+    /**
+     * Parses the whole source as one argument.
+     * An empty source gives an empty argument.
+     *
+     * @return  Parsed argument
+     */
+    public Argument parseArgument() {
+        if(!lexer.hasNext()) {
+            return new Argument(null, false, context);
+        }
+        Argument argument = parseExpression(LOGICAL);
+        expectEnd();
+        return argument;
+    }
+
+    /**
+     * Parses the whole source as a single function call, like myFunction(x, 5)
+     *
+     * @return  Parsed function call
+     */
+    public FunctionCall parseFunctionCall() {
+        Token name = lexer.hasNext() ? lexer.next() : null;
+        if(name == null || name.getType() != TokenType.IDENTIFIER || !isNext(TokenType.LEFT_PARENTHESIS)) {
+            throw new ParsingException("Not a function call: " + source);
+        }
+        lexer.next();
+        FunctionCall functionCall = new FunctionCall(name.getText(), readCallArguments(), context);
+        expectEnd();
+        return functionCall;
+    }
+
+    /**
+     * Parses an expression made of operators binding at least as tightly as the given precedence.
+     *
+     * @param minPrecedence Loosest operator to accept
+     * @return              Parsed argument
+     */
+    private Argument parseExpression(int minPrecedence) {
+        Argument left = parsePrefix();
+        List<Argument> parts = null;
+        String operator = null;
+        while(true) {
+            Token next = lexer.peek();
+            int precedence = infixPrecedence(next);
+            if(precedence < minPrecedence) {
+                break;
+            }
+            lexer.next();
+            // Operators are left-associative, so the right side only takes tighter operators
+            Argument right = parseExpression(precedence + 1);
+            if(parts != null && next.getText().equals(operator)) {
+                parts.add(right);
+            } else {
+                if(parts != null) {
+                    left = aggregate(parts, operator);
+                }
+                parts = new ArrayList<>();
+                parts.add(left);
+                parts.add(right);
+                operator = next.getText();
+            }
+        }
+        if(parts != null) {
+            left = aggregate(parts, operator);
+        }
+        return left;
+    }
+
+    /**
+     * Parses a prefix operator or a single operand.
+     *
+     * @return  Parsed argument
+     */
+    private Argument parsePrefix() {
+        if(!lexer.hasNext()) {
+            throw new ParsingException("Expected argument at end of: " + source);
+        }
+        Token token = lexer.next();
+        switch(token.getType()) {
+            case INTEGER:
+            case REAL:
+            case STRING:
+            case RAWCODE:
+                return basic(token.getText());
+            case LEFT_PARENTHESIS:
+                Argument inner = parseExpression(LOGICAL);
+                expect(TokenType.RIGHT_PARENTHESIS);
+                // Nested parenthesis collapse into a single pair
+                return new Argument(inner.release(), true, context);
+            case OPERATOR:
+                if(token.is("-")) {
+                    return parseNegative();
+                }
+                break;
+            case KEYWORD:
+                if(token.is("not")) {
+                    return new Argument(new NotArgument(parseExpression(NOT), context), false, context);
+                } else if(token.is("function")) {
+                    Token name = lexer.hasNext() ? lexer.next() : null;
+                    if(name == null || name.getType() != TokenType.IDENTIFIER) {
+                        throw new ParsingException("Expected function name in: " + source);
+                    }
+                    return basic("function " + name.getText());
+                } else if(!token.is("and") && !token.is("or")) {
+                    // Words only reserved by vJASS may still be names in plain JASS
+                    return parseName(token);
+                }
+                break;
+            case IDENTIFIER:
+                return parseName(token);
+            default:
+                break;
+        }
+        throw new ParsingException("Unexpected " + token.getText() + " in argument: " + source);
+    }
+
+    /**
+     * Parses the operand of a unary minus.
+     * Negative number literals stay a single basic argument.
+     *
+     * @return  Parsed argument
+     */
+    private Argument parseNegative() {
+        if(isNext(TokenType.INTEGER) || isNext(TokenType.REAL)) {
+            return basic("-" + lexer.next().getText());
+        }
+        return new Argument(new NegativeArgument(parseExpression(UNARY), context), false, context);
+    }
+
+    /**
+     * Parses an operand starting with a name: a variable, array access or function call.
+     *
+     * @param name  Name token, already consumed
+     * @return      Parsed argument
+     */
+    private Argument parseName(Token name) {
+        Argument argument;
+        if(isNext(TokenType.LEFT_PARENTHESIS)) {
+            lexer.next();
+            FunctionCall functionCall = new FunctionCall(name.getText(), readCallArguments(), context);
+            argument = new Argument(new FunctionCallArgument(functionCall, context), false, context);
+        } else {
+            argument = basic(name.getText());
+            // vJASS two-dimensional arrays are indexed twice, like a[i][j]
+            while(isNext(TokenType.LEFT_BRACKET)) {
+                lexer.next();
+                Argument index = parseExpression(LOGICAL);
+                expect(TokenType.RIGHT_BRACKET);
+                argument = new Argument(new ArrayArgument(argument, index, context), false, context);
+            }
+        }
+        if(isMemberAccess()) {
+            // vJASS member access on a call or array (like a[i].x) is kept as written
+            int end = name.getEnd();
+            while(isMemberAccess()) {
+                end = skipMember();
+            }
+            argument = basic(source.subSequence(name.getStart(), end).toString());
+        }
+        return argument;
+    }
+
+    /**
+     * Reads the arguments of a function call up to the closing parenthesis.
+     * The opening parenthesis must already be consumed.
+     *
+     * @return  Arguments of the call
+     */
+    private List<Argument> readCallArguments() {
+        List<Argument> arguments = new ArrayList<>();
+        if(isNext(TokenType.RIGHT_PARENTHESIS)) {
+            lexer.next();
+            return arguments;
+        }
+        while(true) {
+            arguments.add(parseExpression(LOGICAL));
+            Token token = lexer.hasNext() ? lexer.next() : null;
+            if(token == null) {
+                throw new ParsingException("Function call without closing parenthesis: " + source);
+            } else if(token.getType() == TokenType.RIGHT_PARENTHESIS) {
+                return arguments;
+            } else if(token.getType() != TokenType.COMMA) {
+                throw new ParsingException("Unexpected " + token.getText() + " in function call: " + source);
+            }
+        }
+    }
+
+    /**
+     * Skips one vJASS member access, including its call or index if it has one
+     *
+     * @return  Offset after the member access
+     */
+    private int skipMember() {
+        int end = lexer.next().getEnd();
+        if(isNext(TokenType.LEFT_PARENTHESIS)) {
+            end = skipGroup(TokenType.LEFT_PARENTHESIS, TokenType.RIGHT_PARENTHESIS);
+        } else if(isNext(TokenType.LEFT_BRACKET)) {
+            end = skipGroup(TokenType.LEFT_BRACKET, TokenType.RIGHT_BRACKET);
+        }
+        return end;
+    }
+
+    /**
+     * Skips a balanced group of parenthesis or brackets
+     *
+     * @param open  Opening token type
+     * @param close Closing token type
+     * @return      Offset after the closing token
+     */
+    private int skipGroup(TokenType open, TokenType close) {
+        int depth = 0;
+        while(lexer.hasNext()) {
+            Token token = lexer.next();
+            if(token.getType() == open) {
+                depth++;
+            } else if(token.getType() == close) {
+                depth--;
+                if(depth == 0) {
+                    return token.getEnd();
+                }
+            }
+        }
+        throw new ParsingException("Unbalanced " + close + " in argument: " + source);
+    }
+
+    private boolean isMemberAccess() {
+        Token next = lexer.peek();
+        return next != null && next.getType() == TokenType.IDENTIFIER && next.getText().startsWith(".");
+    }
+
+    private boolean isNext(TokenType type) {
+        Token next = lexer.peek();
+        return next != null && next.getType() == type;
+    }
+
+    private void expect(TokenType type) {
+        Token token = lexer.hasNext() ? lexer.next() : null;
+        if(token == null || token.getType() != type) {
+            throw new ParsingException("Expected " + type + " in argument: " + source);
+        }
+    }
+
+    private void expectEnd() {
+        Token token = lexer.peek();
+        if(token != null && token.getType() != TokenType.COMMENT) {
+            throw new ParsingException("Unexpected " + token.getText() + " in argument: " + source);
+        }
+    }
+
+    /**
+     * Gets how tightly the token binds as an infix operator
+     *
+     * @param token Token to check
+     * @return      Precedence, or -1 if the token is not an infix operator
+     */
+    private static int infixPrecedence(Token token) {
+        if(token == null) {
+            return -1;
+        }
+        if(token.getType() == TokenType.KEYWORD) {
+            return token.is("and") || token.is("or") ? LOGICAL : -1;
+        }
+        if(token.getType() != TokenType.OPERATOR) {
+            return -1;
+        }
+        switch(token.getText()) {
+            case "==":
+            case "!=":
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+                return COMPARISON;
+            case "+":
+            case "-":
+                return ADDITIVE;
+            case "*":
+            case "/":
+                return MULTIPLICATIVE;
+            default:
+                return -1;
+        }
+    }
+
+    private Argument aggregate(List<Argument> parts, String operator) {
+        return new Argument(new AggregationArgument(parts, operator, context), false, context);
+    }
+
+    private Argument basic(String content) {
+        return new Argument(new BasicArgument(content, context), false, context);
+    }
+}
@@ -1,12 +1,16 @@
 package nodes.arguments;
 
+import nodes.AbstractReadable;
 import nodes.functions.Function;
 import nodes.functions.FunctionCall;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Objects;
 
 public class FunctionCallArgument extends ArgumentType {
 
@@ -19,15 +23,19 @@ public class FunctionCallArgument extends ArgumentType {
     private TreeContext context;
 
     public FunctionCallArgument(String content, TreeContext context) {
-        this.functionCall = new FunctionCall(new Scanner(content), context);
+        this.functionCall = adopt(new FunctionCall(LineStream.of(content), context));
         this.context = context;
     }
 
     public FunctionCallArgument(FunctionCall functionCall, TreeContext context) {
-        this.functionCall = functionCall;
+        this.functionCall = adopt(functionCall);
         this.context = context;
     }
 
+    public FunctionCall getFunctionCall() {
+        return functionCall;
+    }
+
     /**
      * Renames a function and uses to a new name
      *
@@ -39,6 +47,17 @@ public class FunctionCallArgument extends ArgumentType {
         this.functionCall.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        functionCall.renameAll(variables, functions);
+    }
+
     /**
      * Renames the variable and all uses of this variable.
      *
@@ -75,7 +94,19 @@ public class FunctionCallArgument extends ArgumentType {
         return arguments;
     }
 
-    public String toString() {
-        return functionCall.toString();
+    @Override
+    public void writeTo(Appendable output) throws IOException {
+        functionCall.writeTo(output);
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hashCode(functionCall);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        FunctionCallArgument other = (FunctionCallArgument) obj;
+        return Objects.equals(functionCall, other.functionCall);
     }
 }
@@ -0,0 +1,103 @@
+package nodes.arguments;
+
+import nodes.AbstractReadable;
+import tree.TreeContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class NegativeArgument extends ArgumentType {
+
+    /**
+     * Represents the argument being negated (negativePart)
+     * i.e. -GetUnitX(u)
+     */
+    private Argument negativePart;
+    private TreeContext context;
+
+    public NegativeArgument(Argument negativePart, TreeContext context) {
+        this.negativePart = adopt(negativePart);
+        this.context = context;
+    }
+
+    /**
+     * Renames a function and uses to a new name
+     *
+     * @param oldFunctionName Existing function name
+     * @param newFunctionName Desired function name
+     */
+    @Override
+    public void renameFunction(String oldFunctionName, String newFunctionName) {
+        negativePart.renameFunction(oldFunctionName, newFunctionName);
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        negativePart.renameAll(variables, functions);
+    }
+
+    /**
+     * Renames the variable and all uses of this variable.
+     *
+     * @param oldVariableName Existing variable name
+     * @param newVariableName Desired variable name
+     */
+    @Override
+    public void renameVariable(String oldVariableName, String newVariableName) {
+        negativePart.renameVariable(oldVariableName, newVariableName);
+    }
+
+    @Override
+    public ArgumentType inline(String functionName, String newText) {
+        return new NegativeArgument(negativePart.inline(functionName, newText), context);
+    }
+
+    @Override
+    public boolean calls(String functionName) {
+        return negativePart.calls(functionName);
+    }
+
+    @Override
+    public boolean usesAsFunction(String functionName) {
+        return negativePart.usesAsFunction(functionName);
+    }
+
+    @Override
+    public List<Argument> getArguments() {
+        List<Argument> arguments = new ArrayList<>();
+
+        arguments.addAll(negativePart.getArguments());
+
+        return arguments;
+    }
+
+    @Override
+    public void writeTo(Appendable output) throws IOException {
+        output.append("-");
+        negativePart.writeTo(output);
+    }
+
+    public Argument getNegativePart() {
+        return negativePart;
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hashCode(negativePart);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        NegativeArgument other = (NegativeArgument) obj;
+        return Objects.equals(negativePart, other.negativePart);
+    }
+}
@@ -1,10 +1,14 @@
 package nodes.arguments;
 
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Objects;
 
 public class NotArgument extends ArgumentType {
 
@@ -15,12 +19,12 @@ public class NotArgument extends ArgumentType {
     private TreeContext context;
 
     public NotArgument(String content, TreeContext context) {
-        this.notPart = new Argument(new Scanner(content), context);
+        this.notPart = adopt(new Argument(LineStream.of(content), context));
         this.context = context;
     }
 
     public NotArgument(Argument notPart, TreeContext context) {
-        this.notPart = notPart;
+        this.notPart = adopt(notPart);
         this.context = context;
     }
 
@@ -35,6 +39,17 @@ public class NotArgument extends ArgumentType {
         notPart.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        notPart.renameAll(variables, functions);
+    }
+
     /**
      * Renames the variable and all uses of this variable.
      *
@@ -70,11 +85,25 @@ public class NotArgument extends ArgumentType {
         return arguments;
     }
 
-    public String toString() {
-        return "not (" + notPart.toString() + ")";
+    @Override
+    public void writeTo(Appendable output) throws IOException {
+        output.append("not (");
+        notPart.writeTo(output);
+        output.append(")");
     }
 
     public Argument getNotPart() {
         return notPart;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hashCode(notPart);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        NotArgument other = (NotArgument) obj;
+        return Objects.equals(notPart, other.notPart);
+    }
 }
@@ -1,21 +1,27 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a simple call condition, like:
  * call myFunction(a,b,c)
  */
-public final class CallStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class CallStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private String functionName;
     private Argument callArgument;
@@ -29,13 +35,22 @@ public final class CallStatement extends AbstractStatement implements IFunctionR
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public CallStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public CallStatement(String functionName, Argument callArgument, TreeContext context) {
         super(context);
         this.functionName = functionName;
-        this.callArgument = callArgument;
+        this.callArgument = adopt(callArgument);
     }
 
     /**
@@ -60,6 +75,17 @@ public final class CallStatement extends AbstractStatement implements IFunctionR
         this.callArgument.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        callArgument.renameAll(variables, functions);
+    }
+
     /**
      * Converts the given function name into an inline function.
      * Replaces usages of function
@@ -91,7 +117,7 @@ public final class CallStatement extends AbstractStatement implements IFunctionR
         functionName = statementText.substring(0, statementText.indexOf("("));
         arguments = trimParenthesis(statementText.substring(statementText.indexOf("(")));
         this.functionName = functionName + "(" + arguments + ")";
-        this.callArgument = new Argument(new Scanner(statementText), context);
+        this.callArgument = adopt(new Argument(LineStream.of(statementText), context));
     }
 
     public boolean usesAsFunction(String functionName) {
@@ -99,28 +125,29 @@ public final class CallStatement extends AbstractStatement implements IFunctionR
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        return "call " + callArgument.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("call ");
+        callArgument.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append(this.toString());
-        return built.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        writeTo(output);
     }
 
     public final String getFunctionName() {
@@ -133,19 +160,18 @@ public final class CallStatement extends AbstractStatement implements IFunctionR
         return arguments;
     }
 
+    /**
+     * Only the call is hashed and compared: the function name is the text
+     * that was read, which renames and inlining do not keep up to date.
+     */
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(callArgument);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         CallStatement other = (CallStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(callArgument, other.callArgument);
     }
 }
@@ -1,20 +1,26 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents an exitwhen + condition statement
  */
-public final class ExitWhenStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class ExitWhenStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     /**
      * Declares when this loop should be exited
@@ -30,37 +36,47 @@ public final class ExitWhenStatement extends AbstractStatement implements IFunct
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public ExitWhenStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public ExitWhenStatement(Argument exitwhenCondition, TreeContext context) {
         super(context);
-        this.exitwhenCondition = exitwhenCondition;
+        this.exitwhenCondition = adopt(exitwhenCondition);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        return "exitwhen " + exitwhenCondition.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("exitwhen ");
+        exitwhenCondition.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append(this.toString());
-        return built.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        writeTo(output);
     }
 
     /**
@@ -102,6 +118,17 @@ public final class ExitWhenStatement extends AbstractStatement implements IFunct
         this.exitwhenCondition.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        exitwhenCondition.renameAll(variables, functions);
+    }
+
     /**
      * Parse the JASS code contained in the Scanner into a model object
      */
@@ -112,7 +139,7 @@ public final class ExitWhenStatement extends AbstractStatement implements IFunct
             throw new ParsingException("Not an exitwhen line: " + line);
         }
         line = line.substring("exitwhen ".length());
-        exitwhenCondition = new Argument(new Scanner(line), context);
+        exitwhenCondition = adopt(new Argument(LineStream.of(line), context));
     }
 
     public final Argument getExitwhenCondition() {
@@ -126,18 +153,13 @@ public final class ExitWhenStatement extends AbstractStatement implements IFunct
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(exitwhenCondition);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         ExitWhenStatement other = (ExitWhenStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(exitwhenCondition, other.exitwhenCondition);
     }
 }
@@ -1,25 +1,41 @@
 package nodes.functions;
 
 import exception.ParsingException;
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IMergable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractFunction;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
+import parser.LineStream;
+import tree.ParseListener;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a Function code block from the function declaration to endfunction
+ *
+ * When the tree context has lazy bodies, only the declaration is read while
+ * parsing. The lines of the body are kept and turned into Statements the
+ * first time they are needed; that happens once, even if several threads
+ * ask for them at the same time.
  */
-public final class Function extends AbstractFunction implements IMergable, IFunctionRenameable, IVariableRenameable {
+public final class Function extends AbstractFunction implements IMergable, IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private FunctionDeclaration functionDeclaration;
-    private Statements statements;
+    private volatile Statements statements;
+    /**
+     * Unparsed lines of the body, or null once statements are parsed
+     */
+    private LineStream body;
 
     /**
      * Sets up this node with a scanner to receive words.
@@ -30,10 +46,19 @@ public final class Function extends AbstractFunction implements IMergable, IFunc
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Function(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     public Function(FunctionDeclaration functionDeclaration, Statements statements, TreeContext context) {
         super(context);
-        this.functionDeclaration = functionDeclaration;
-        this.statements = statements;
+        this.functionDeclaration = adopt(functionDeclaration);
+        this.statements = adopt(statements);
     }
 
     /**
@@ -44,7 +69,7 @@ public final class Function extends AbstractFunction implements IMergable, IFunc
      */
     @Override
     public final void renameVariable(String oldVariableName, String newVariableName) {
-        statements.renameVariable(oldVariableName, newVariableName);
+        statements().renameVariable(oldVariableName, newVariableName);
     }
 
     /**
@@ -56,39 +81,53 @@ public final class Function extends AbstractFunction implements IMergable, IFunc
     @Override
     public final void renameFunction(String oldFunctionName, String newFunctionName) {
         functionDeclaration.renameFunction(oldFunctionName, newFunctionName);
-        statements.renameFunction(oldFunctionName, newFunctionName);
+        statements().renameFunction(oldFunctionName, newFunctionName);
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        functionDeclaration.renameAll(variables, functions);
+        statements().renameAll(variables, functions);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append(functionDeclaration.toString()).append("\n");
-        builder.append(statements.toString()).append("\n");
-        builder.append("endfunction");
-        return builder.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        functionDeclaration.writeTo(output);
+        output.append("\n");
+        statements().writeTo(output);
+        output.append("\n");
+        output.append("endfunction");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builder = new StringBuilder();
-        addTabs(builder, indentationLevel-1);
-        builder.append(functionDeclaration.toString()).append("\n");
-        builder.append(statements.toFormattedString(indentationLevel)).append("\n");
-        addTabs(builder, indentationLevel-1);
-        builder.append("endfunction");
-        return builder.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel-1);
+        functionDeclaration.writeTo(output);
+        output.append("\n");
+        statements().writeFormattedTo(output, indentationLevel);
+        output.append("\n");
+        addTabs(output, indentationLevel-1);
+        output.append("endfunction");
     }
 
     /**
@@ -97,37 +136,87 @@ public final class Function extends AbstractFunction implements IMergable, IFunc
     @Override
     protected final void readNode() {
         // Get first line as function declaration
-        this.functionDeclaration = readFunctionDeclaration(readLine());
+        this.functionDeclaration = adopt(readFunctionDeclaration(getInput()));
+        if(context.isLazyBodies() && skipBody(getInput())) {
+            return;
+        }
         // Get lines up to endfunction
-        StringBuilder lines = new StringBuilder();
-        while(hasNextLine()) {
-            String line = readLine();
-            if(!line.startsWith("endfunction")) {
-                lines.append(line).append("\n");
-            }
+        this.statements = adopt(readStatements(getInput()));
+        if(!hasNextLine()) {
+            throw new ParsingException("Found function without endfunction: " + functionDeclaration.toString());
         }
-        if(lines.length() > 0) {
-            lines.setLength(lines.length()-1);
+        String line = readLine();
+        if(!line.startsWith("endfunction")) {
+            throw new ParsingException("Found " + line + " inside function: " + functionDeclaration.toString());
         }
-        this.statements = readStatements(lines.toString());
     }
 
-    private FunctionDeclaration readFunctionDeclaration(String line) {
-        FunctionDeclaration declaration = new FunctionDeclaration(new Scanner(line), context);
+    private FunctionDeclaration readFunctionDeclaration(LineStream input) {
+        FunctionDeclaration declaration = new FunctionDeclaration(input, context);
         return declaration;
     }
 
-    private Statements readStatements(String lines) {
-        Statements statements = new Statements(new Scanner(lines), context);
+    private Statements readStatements(LineStream input) {
+        ParseListener listener = context.getListener();
+        if(listener == null) {
+            return new Statements(input, context);
+        }
+        long start = System.nanoTime();
+        Statements statements = new Statements(input, context);
+        listener.functionRead(this, System.nanoTime() - start);
         return statements;
     }
 
+    /**
+     * Keeps the lines up to endfunction for later and moves past them
+     *
+     * @param input Stream positioned after the function declaration
+     * @return      True if the body was kept; false if no endfunction was found
+     */
+    private boolean skipBody(LineStream input) {
+        int start = input.position();
+        int end = input.findLine(start, "endfunction");
+        if(end < 0) {
+            // Let the regular parse report the missing endfunction
+            return false;
+        }
+        this.body = input.slice(start, end);
+        input.skipTo(end);
+        readLine();
+        return true;
+    }
+
+    /**
+     * Gets the statements of this function, parsing the body if it was kept for later.
+     *
+     * @return  Statements of this function
+     */
+    private Statements statements() {
+        Statements result = statements;
+        if(result == null) {
+            synchronized (this) {
+                result = statements;
+                if(result == null) {
+                    // A fresh view, so that a failed parse can be repeated
+                    LineStream lines = body.slice(body.position(), body.endPosition());
+                    result = readStatements(lines);
+                    if(lines.hasNextLine()) {
+                        throw new ParsingException("Found " + lines.nextLine().trim() + " inside function: " + functionDeclaration.toString());
+                    }
+                    statements = adopt(result);
+                    body = null;
+                }
+            }
+        }
+        return result;
+    }
+
     public final FunctionDeclaration getFunctionDeclaration() {
         return functionDeclaration;
     }
 
     public final Statements getStatements() {
-        return statements;
+        return statements();
     }
 
     @Override
@@ -148,33 +237,29 @@ public final class Function extends AbstractFunction implements IMergable, IFunc
             throw new ParsingException("Incompatible merge: " + this.functionDeclaration.toString() + ", " + ((Function) other).functionDeclaration.toString());
         }
 
-        Statements otherStatements = (Statements)otherFunction.statements;
-        this.statements.merge(otherStatements);
+        Statements otherStatements = otherFunction.statements();
+        this.statements().merge(otherStatements);
     }
 
     public boolean usesAsFunction(String functionName) {
-        return statements.usesAsFunction(functionName);
+        return statements().usesAsFunction(functionName);
     }
 
-    @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    public final List<Argument> getArguments() {
+        List<Argument> arguments = new ArrayList<>();
+        arguments.addAll(statements().getArguments());
+        return arguments;
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
-        Function other = (Function) obj;
-        return this.toString().equals(other.toString());
+    protected int computeHashCode() {
+        return Objects.hash(functionDeclaration, statements());
     }
 
-    public final List<Argument> getArguments() {
-        List<Argument> arguments = new ArrayList<>();
-        arguments.addAll(statements.getArguments());
-        return arguments;
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        Function other = (Function) obj;
+        return Objects.equals(functionDeclaration, other.functionDeclaration) &&
+                Objects.equals(statements(), other.statements());
     }
 }
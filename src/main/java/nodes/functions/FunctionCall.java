@@ -1,19 +1,26 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
+import nodes.arguments.ExpressionParser;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a Function Call that gets split into argument pieces
  */
-public final class FunctionCall extends AbstractNode implements IFunctionRenameable, IVariableRenameable {
+public final class FunctionCall extends AbstractNode implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private String functionName;
     private List<Argument> argumentsList;
@@ -27,13 +34,22 @@ public final class FunctionCall extends AbstractNode implements IFunctionRenamea
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public FunctionCall(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public FunctionCall(String functionName, List<Argument> argumentsList, TreeContext context) {
         super(context);
         this.functionName = functionName;
-        this.argumentsList = argumentsList;
+        this.argumentsList = adoptAll(argumentsList);
     }
 
     /**
@@ -47,13 +63,13 @@ public final class FunctionCall extends AbstractNode implements IFunctionRenamea
 
     public FunctionCall inline(String functionName, String newText) {
         if(functionName.equals(this.functionName)) {
-            return new FunctionCall(new Scanner(newText), new TreeContext());
+            return new FunctionCall(LineStream.of(newText), context);
         }
         List<Argument> newArgumentsList = new ArrayList<>();
         for(Argument argument: argumentsList) {
             newArgumentsList.add(argument.inline(functionName, newText));
         }
-        return new FunctionCall(this.functionName, newArgumentsList, new TreeContext());
+        return new FunctionCall(this.functionName, newArgumentsList, context);
     }
 
     /**
@@ -61,86 +77,43 @@ public final class FunctionCall extends AbstractNode implements IFunctionRenamea
      */
     @Override
     protected final void readNode() {
-        String line = readLine();
-        String functionName = line.substring(0, line.indexOf("("));
-        String argumentsPart = line.substring(line.indexOf("("), line.lastIndexOf(")")+1).trim();
-        this.functionName = functionName;
-
-        List<String> functionCalls = new ArrayList<>();
-
-        int parenthesisLevel = 0;
-        StringBuilder currentPart = new StringBuilder();
-        boolean quoted = false;
-        char lastChar1 = ' ';
-        char lastChar2 = ' ';
-        for(char c : argumentsPart.toCharArray()) {
-            if(c == '\"') {
-                // Handle escape characters on quotes
-                if (lastChar1 != '\\') {
-                    quoted = !quoted;
-                } else {
-                    if (lastChar2 == '\\') {
-                        quoted = !quoted;
-                    }
-                }
-                currentPart.append(c);
-            } else if(c == '(' && !quoted) {
-                parenthesisLevel++;
-                if(parenthesisLevel > 1) {
-                    currentPart.append(c);
-                }
-            } else if(c == ')' && !quoted) {
-                if(parenthesisLevel > 1) {
-                    currentPart.append(c);
-                }
-                parenthesisLevel--;
-            } else if(c == ',' && parenthesisLevel == 1 && !quoted) {
-                functionCalls.add(currentPart.toString().trim());
-                currentPart.setLength(0);
-            } else {
-                currentPart.append(c);
-            }
-            lastChar2 = lastChar1;
-            lastChar1 = c;
-        }
-        if(currentPart.length() > 0) {
-            functionCalls.add(currentPart.toString().trim());
-        }
-        for(String arg : functionCalls) {
-            Argument argument = new Argument(new Scanner(arg), context);
-            argumentsList.add(argument);
+        FunctionCall parsed = new ExpressionParser(readLine(), context).parseFunctionCall();
+        this.functionName = parsed.functionName;
+        for(Argument argument : parsed.argumentsList) {
+            parsed.disown(argument);
         }
+        this.argumentsList = adoptAll(parsed.argumentsList);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder built = new StringBuilder();
-        built.append("(");
-        for(Argument argument: argumentsList) {
-            built.append(argument.toString()).append(",");
-        }
-        if(built.length()>1) {
-            built.setLength(built.length()-1);
+    public final void writeTo(Appendable output) throws IOException {
+        output.append(functionName).append("(");
+        for(int i = 0; i < argumentsList.size(); i++) {
+            if(i > 0) {
+                output.append(",");
+            }
+            argumentsList.get(i).writeTo(output);
         }
-        built.append(")");
-        return functionName + built.toString();
+        output.append(")");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     /**
@@ -179,7 +152,39 @@ public final class FunctionCall extends AbstractNode implements IFunctionRenamea
         for(Argument arg : argumentsList) {
             arg.renameFunction(oldFunctionName, newFunctionName);
         }
-        this.functionName = rename(functionName, oldFunctionName, newFunctionName);
+        renameCalledFunction(oldFunctionName, newFunctionName);
+    }
+
+    /**
+     * Renames the function being called, but not uses inside of the arguments
+     *
+     * @param oldFunctionName   Existing function name
+     * @param newFunctionName   Desired function name
+     */
+    public final void renameCalledFunction(String oldFunctionName, String newFunctionName) {
+        String renamed = rename(functionName, oldFunctionName, newFunctionName);
+        if(!renamed.equals(functionName)) {
+            this.functionName = renamed;
+            invalidate();
+        }
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        for(Argument arg : argumentsList) {
+            arg.renameAll(variables, functions);
+        }
+        String renamed = rename(functionName, functions);
+        if(!renamed.equals(functionName)) {
+            this.functionName = renamed;
+            invalidate();
+        }
     }
 
     public String getFunctionName() {
@@ -195,18 +200,14 @@ public final class FunctionCall extends AbstractNode implements IFunctionRenamea
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(functionName, argumentsList);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         FunctionCall other = (FunctionCall) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(functionName, other.functionName) &&
+                Objects.equals(argumentsList, other.argumentsList);
     }
 }
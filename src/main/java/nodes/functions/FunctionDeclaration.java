@@ -1,15 +1,18 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * Function Declaration line (i.e. function x takes y returns z)
  */
-public final class FunctionDeclaration extends GenericDeclaration implements IFunctionRenameable, IVariableRenameable {
+public final class FunctionDeclaration extends GenericDeclaration implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     /**
      * Sets up this node with a scanner to receive words.
@@ -21,6 +24,16 @@ public final class FunctionDeclaration extends GenericDeclaration implements IFu
         setStartText("function");
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public FunctionDeclaration(LineStream input, TreeContext context) {
+        super(input, context);
+        setStartText("function");
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -59,19 +72,15 @@ public final class FunctionDeclaration extends GenericDeclaration implements IFu
         this.setName(rename(this.getName(), oldFunctionName, newFunctionName));
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        this.setName(rename(this.getName(), functions));
     }
 
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
-        FunctionDeclaration other = (FunctionDeclaration) obj;
-        return this.toString().equals(other.toString());
-    }
 }
@@ -4,8 +4,12 @@ import exception.ParsingException;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -22,7 +26,10 @@ public abstract class GenericDeclaration extends AbstractNode {
     private String startText;
 
     public void setStartText(String startText) {
-        this.startText = startText;
+        if(!startText.equals(this.startText)) {
+            this.startText = startText;
+            invalidate();
+        }
     }
 
     /**
@@ -34,6 +41,15 @@ public abstract class GenericDeclaration extends AbstractNode {
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public GenericDeclaration(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -42,40 +58,43 @@ public abstract class GenericDeclaration extends AbstractNode {
     public GenericDeclaration(TreeContext context, String name, Inputs inputs, Output output, boolean constant, String accessModifier) {
         super(context);
         this.name = name;
-        this.inputs = inputs;
-        this.output = output;
+        this.inputs = adopt(inputs);
+        this.output = adopt(output);
         this.constant = constant;
         this.accessModifier = accessModifier;
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
+    public final void writeTo(Appendable output) throws IOException {
         if(accessModifier != null && !accessModifier.isEmpty()) {
-            builder.append(accessModifier + " ");
+            output.append(accessModifier).append(" ");
         }
         if(constant) {
-            builder.append("constant ");
+            output.append("constant ");
         }
-        builder.append(startText + " ").append(name).append(" ").append(inputs.toString()).append(" ").append(output.toString());
-        return builder.toString();
+        output.append(startText).append(" ").append(name).append(" ");
+        inputs.writeTo(output);
+        output.append(" ");
+        this.output.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     /**
@@ -111,8 +130,8 @@ public abstract class GenericDeclaration extends AbstractNode {
         String outputs = line;
 
         this.name = name;
-        this.inputs = new Inputs(new Scanner(inputs), context);
-        this.output = new Output(new Scanner(outputs), context);
+        this.inputs = adopt(new Inputs(LineStream.of(inputs), context));
+        this.output = adopt(new Output(LineStream.of(outputs), context));
     }
 
     public final String getName() {
@@ -120,7 +139,10 @@ public abstract class GenericDeclaration extends AbstractNode {
     }
 
     public final void setName(String name) {
-        this.name = name;
+        if(!name.equals(this.name)) {
+            this.name = name;
+            invalidate();
+        }
     }
 
     public final Inputs getInputs() {
@@ -138,4 +160,20 @@ public abstract class GenericDeclaration extends AbstractNode {
     public String getAccessModifier() {
         return accessModifier;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(startText, accessModifier, constant, name, inputs, output);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        GenericDeclaration other = (GenericDeclaration) obj;
+        return constant == other.constant &&
+                Objects.equals(startText, other.startText) &&
+                Objects.equals(accessModifier, other.accessModifier) &&
+                Objects.equals(name, other.name) &&
+                Objects.equals(inputs, other.inputs) &&
+                Objects.equals(output, other.output);
+    }
 }
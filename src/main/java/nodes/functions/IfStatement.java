@@ -1,21 +1,27 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents an If Statement which contains conditions and statement blocks
  */
-public final class IfStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class IfStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private Argument condition;
     private Statements thenStatements;
@@ -32,17 +38,26 @@ public final class IfStatement extends AbstractStatement implements IFunctionRen
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public IfStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public IfStatement(Argument condition, Statements thenStatements, Statements elseStatements,
                        List<Argument> elseifConditions, List<Statements> elseifStatements, TreeContext context) {
         super(context);
-        this.condition = condition;
-        this.thenStatements = thenStatements;
-        this.elseStatements = elseStatements;
-        this.elseifConditions = elseifConditions;
-        this.elseifStatements = elseifStatements;
+        this.condition = adopt(condition);
+        this.thenStatements = adopt(thenStatements);
+        this.elseStatements = adopt(elseStatements);
+        this.elseifConditions = adoptAll(elseifConditions);
+        this.elseifStatements = adoptAll(elseifStatements);
     }
 
     /**
@@ -95,6 +110,31 @@ public final class IfStatement extends AbstractStatement implements IFunctionRen
         }
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        if(condition != null) {
+            condition.renameAll(variables, functions);
+        }
+        if(thenStatements != null) {
+            thenStatements.renameAll(variables, functions);
+        }
+        if(elseStatements != null) {
+            elseStatements.renameAll(variables, functions);
+        }
+        for(Argument oldArgument : elseifConditions) {
+            oldArgument.renameAll(variables, functions);
+        }
+        for(Statements oldStatements : elseifStatements) {
+            oldStatements.renameAll(variables, functions);
+        }
+    }
+
     /**
      * Converts the given function name into an inline function.
      * Replaces usages of function
@@ -162,57 +202,69 @@ public final class IfStatement extends AbstractStatement implements IFunctionRen
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder built = new StringBuilder();
-        built.append("if ").append(condition.toString()).append(" then").append("\n");
-        built.append(thenStatements.toString()).append("\n");
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("if ");
+        condition.writeTo(output);
+        output.append(" then").append("\n");
+        thenStatements.writeTo(output);
+        output.append("\n");
         for(int i = 0; i < elseifConditions.size(); i++) {
             // Elseif order is maintained by List
-            built.append("elseif ").append(elseifConditions.get(i).toString()).append(" then").append("\n");
-            built.append(elseifStatements.get(i).toString()).append("\n");
+            output.append("elseif ");
+            elseifConditions.get(i).writeTo(output);
+            output.append(" then").append("\n");
+            elseifStatements.get(i).writeTo(output);
+            output.append("\n");
         }
         // Else comes last always
         if(elseStatements != null && !elseStatements.getStatements().isEmpty()) {
-            built.append("else").append("\n");
-            built.append(elseStatements.toString()).append("\n");
+            output.append("else").append("\n");
+            elseStatements.writeTo(output);
+            output.append("\n");
         }
-        built.append("endif");
-        return built.toString();
+        output.append("endif");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append("if ").append(condition.toString()).append(" then").append("\n");
-        built.append(thenStatements.toFormattedString(indentationLevel+1)).append("\n");
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        output.append("if ");
+        condition.writeTo(output);
+        output.append(" then").append("\n");
+        thenStatements.writeFormattedTo(output, indentationLevel+1);
+        output.append("\n");
         for(int i = 0; i < elseifConditions.size(); i++) {
             // Elseif order is maintained by List
-            addTabs(built, indentationLevel);
-            built.append("elseif ").append(elseifConditions.get(i).toString()).append(" then").append("\n");
-            built.append(elseifStatements.get(i).toFormattedString(indentationLevel+1)).append("\n");
+            addTabs(output, indentationLevel);
+            output.append("elseif ");
+            elseifConditions.get(i).writeTo(output);
+            output.append(" then").append("\n");
+            elseifStatements.get(i).writeFormattedTo(output, indentationLevel+1);
+            output.append("\n");
         }
         // Else comes last always
         if(elseStatements != null) {
-            addTabs(built, indentationLevel);
-            built.append("else").append("\n");
-            built.append(elseStatements.toFormattedString(indentationLevel+1)).append("\n");
+            addTabs(output, indentationLevel);
+            output.append("else").append("\n");
+            elseStatements.writeFormattedTo(output, indentationLevel+1);
+            output.append("\n");
         }
-        addTabs(built, indentationLevel);
-        built.append("endif");
-        return built.toString();
+        addTabs(output, indentationLevel);
+        output.append("endif");
     }
 
     /**
@@ -220,158 +272,71 @@ public final class IfStatement extends AbstractStatement implements IFunctionRen
      */
     @Override
     protected final void readNode() {
-        StringBuilder currentCondition = new StringBuilder(); // Contains the currently-read condition
-        StringBuilder currentStatements = new StringBuilder(); // Contains the currently-read statements block
-        List<String> assembledElseifConditions = new ArrayList<>(); // List of all discovered elseif statement conditions
-        List<String> assembledElseifStatements = new ArrayList<>(); // List of all discovered elseif statement blocks
-        int currentIfLevel = 0; // Maintain if level because there can be nested ifs
-        boolean readingThenStatement = false; // Set to true when If block Statements is being read
-        boolean readingElseStatement = false; // Set to true when Else block Statements is being read
-        boolean readingElseifStatement = false; // Set to true when Elseif block Statements is being read
-
-        while(hasNextLine()) {
-            String line = readLine();
-            if(line.endsWith("then")) {
-                line = line.substring(0, line.indexOf("then"));
-                line = line + " then";
+        String line = readConditionLine();
+        while(!line.startsWith("if")) {
+            // Skip anything before the if statement
+            if(!hasNextLine()) {
+                throw new ParsingException("Expected if statement: " + line);
             }
-            if(line.startsWith("if")) {
-                currentIfLevel++;
-                if(!readingThenStatement && !readingElseStatement && !readingElseifStatement) {
-                    // Found first if statement
-                    readingThenStatement = true;
-                    currentCondition.append(line);
-                } else {
-                    currentStatements.append(line).append("\n");
-                }
-            } else if(line.startsWith("endif") && currentIfLevel > 0) {
-                currentIfLevel--;
-                if(currentIfLevel == 0) {
-                    // This ended top-level condition, not nested condition
-                    // Find which condition was ended
-                    if(readingThenStatement) {
-                        saveThenStatement(currentCondition, currentStatements);
-                    } else if(readingElseStatement) {
-                        saveElseStatement(currentStatements);
-                    } else if(readingElseifStatement) {
-                        saveElseifStatement(currentCondition, currentStatements, assembledElseifConditions, assembledElseifStatements);
-                    } else {
-                        throw new ParsingException("Inconsistent state: " + line);
-                    }
-                } else {
-                    currentStatements.append(line).append("\n");
-                }
-            } else if(line.startsWith("else") && !line.startsWith("elseif") && currentIfLevel == 1) {
-                // Done with then/elseif statement, enter else statement
-                if(readingThenStatement && !readingElseStatement && !readingElseifStatement) {
-                    readingThenStatement = false;
-                    readingElseStatement = true;
-                    saveThenStatement(currentCondition, currentStatements);
-                } else if(readingElseStatement && !readingThenStatement && !readingElseifStatement) {
-                    readingThenStatement = true;
-                    readingElseStatement = false;
-                    saveElseStatement(currentStatements);
-                } else if(readingElseifStatement && !readingThenStatement && !readingElseStatement) {
-                    saveElseifStatement(currentCondition, currentStatements, assembledElseifConditions, assembledElseifStatements);
-                    readingElseifStatement = false;
-                    readingElseStatement = true;
-                    currentCondition.append(line);
-                } else {
-                    throw new ParsingException("Inconsistent state: " + line);
+            line = readConditionLine();
+        }
+        this.condition = adopt(readCondition(line));
+        this.thenStatements = adopt(new Statements(getInput(), context));
+        while(true) {
+            if(!hasNextLine()) {
+                throw new ParsingException("Found if without endif: " + condition);
+            }
+            line = readConditionLine();
+            if(line.startsWith("endif")) {
+                // Ends this if statement, nested ifs were read by the inner blocks
+                break;
+            } else if(line.startsWith("elseif")) {
+                if(elseStatements != null) {
+                    throw new ParsingException("Malformed syntax: " + line);
                 }
-            } else if(line.startsWith("elseif") && currentIfLevel == 1) {
-                if(readingThenStatement) {
-                    // We went from then statement to elseif statement
-                    readingThenStatement = false;
-                    readingElseifStatement = true;
-                    saveThenStatement(currentCondition, currentStatements);
-                    currentCondition.append(line);
-                } else if(readingElseifStatement) {
-                    // We went from elseif to elseif
-                    saveElseifStatement(currentCondition, currentStatements, assembledElseifConditions, assembledElseifStatements);
-                    currentCondition.append(line);
-                } else {
+                elseifConditions.add(adopt(readCondition(line)));
+                elseifStatements.add(adopt(new Statements(getInput(), context)));
+            } else if(line.startsWith("else")) {
+                if(elseStatements != null) {
                     throw new ParsingException("Malformed syntax: " + line);
                 }
-            } else if(currentIfLevel > 0) {
-                currentStatements.append(line).append("\n");
+                this.elseStatements = adopt(new Statements(getInput(), context));
+            } else {
+                throw new ParsingException("Found " + line + " inside if statement");
             }
         }
-        if(elseifConditions.size() != elseifStatements.size()) {
-            // Code got confused somehow. Throw exception here rather than later.
-            // Hopefully this never happens.
-            throw new ParsingException("Inconsistent internal state. Elseif conditions did not match elseif statements. Submit bug report.");
-        }
-        if(!assembledElseifConditions.isEmpty() && !assembledElseifStatements.isEmpty()) {
-            saveElseifFromLists(assembledElseifConditions, assembledElseifStatements);
-        }
     }
 
     /**
-     * Saves the given statement as an else statement block
-     *
-     * @param currentStatements String builder with statement lines
+     * Anything after endif is ignored when reading a standalone if statement
      */
-    private final void saveElseStatement(StringBuilder currentStatements) {
-        removeFinalCharacter(currentStatements);
-        this.elseStatements = new Statements(new Scanner(currentStatements.toString()), context);
-        clearStringBuilder(currentStatements);
-    }
-
-    /**
-     * Saves the given statement/condition pair as an elseif statement block
-     *
-     * @param currentCondition  The elseif condition
-     * @param currentStatements The elseif statements section
-     * @param assembledElseifConditions Existing array of elseif conditions
-     * @param assembledElseifStatements Existing array of elseif statements section
-     */
-    private final void saveElseifStatement(StringBuilder currentCondition, StringBuilder currentStatements, List<String> assembledElseifConditions, List<String> assembledElseifStatements) {
-        removeFinalCharacter(currentStatements);
-        assembledElseifConditions.add(trimCondition(currentCondition.toString()));
-        assembledElseifStatements.add(currentStatements.toString());
-        clearStringBuilder(currentCondition);
-        clearStringBuilder(currentStatements);
-    }
-
-    /**
-     * Saves then condition and statements
-     *
-     * @param currentCondition  Then condition
-     * @param currentStatements Then statements block
-     */
-    private final void saveThenStatement(StringBuilder currentCondition, StringBuilder currentStatements) {
-        removeFinalCharacter(currentStatements);
-        this.condition = new Argument(new Scanner(trimCondition(currentCondition.toString())), context);
-        this.thenStatements = new Statements(new Scanner(currentStatements.toString()), context);
-        clearStringBuilder(currentCondition);
-        clearStringBuilder(currentStatements);
+    @Override
+    protected final void verifyEndOfStream() {
+        // Do nothing
     }
 
     /**
-     * Converts from a String array into the elseif block models
+     * Reads a line and makes sure a trailing "then" is separated by a space
      *
-     * @param assembledElseifConditions Elseif conditions strings
-     * @param assembledElseifStatements Elseif statements strings
+     * @return  Line of code
      */
-    private void saveElseifFromLists(List<String> assembledElseifConditions, List<String> assembledElseifStatements) {
-        for(String condition : assembledElseifConditions) {
-            Argument newCondition = new Argument(new Scanner(condition), context);
-            this.elseifConditions.add(newCondition);
-        }
-        for(String condition : assembledElseifStatements) {
-            Statements newStatements = new Statements(new Scanner(condition), context);
-            this.elseifStatements.add(newStatements);
+    private String readConditionLine() {
+        String line = readLine();
+        if(line.endsWith("then")) {
+            line = line.substring(0, line.length() - "then".length());
+            line = line + " then";
         }
+        return line;
     }
 
     /**
-     * Resets the StringBuilder
+     * Parses the condition of an if or elseif line
      *
-     * @param builder   Builder to reset
+     * @param line  If or elseif line
+     * @return      Condition
      */
-    private void clearStringBuilder(StringBuilder builder) {
-        builder.setLength(0);
+    private Argument readCondition(String line) {
+        return new Argument(LineStream.of(trimCondition(line)), context);
     }
 
     /**
@@ -439,18 +404,17 @@ public final class IfStatement extends AbstractStatement implements IFunctionRen
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(condition, thenStatements, elseifConditions, elseifStatements, elseStatements);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         IfStatement other = (IfStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(condition, other.condition) &&
+                Objects.equals(thenStatements, other.thenStatements) &&
+                Objects.equals(elseifConditions, other.elseifConditions) &&
+                Objects.equals(elseifStatements, other.elseifStatements) &&
+                Objects.equals(elseStatements, other.elseStatements);
     }
 }
@@ -1,10 +1,14 @@
 package nodes.functions;
 
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.j.Variable;
 import exception.ParsingException;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -24,25 +28,36 @@ public final class Input extends AbstractNode {
     }
 
     /**
-     * Converts this node back to its original form.
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Input(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
+    /**
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        return inputVariable.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        inputVariable.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     /**
@@ -50,7 +65,7 @@ public final class Input extends AbstractNode {
      */
     @Override
     protected final void readNode() {
-        inputVariable = new Variable(new Scanner(readLine()), context);
+        inputVariable = adopt(new Variable(LineStream.of(readLine()), context));
         if(inputVariable.isConstant()) {
             throw new ParsingException("Constant input not allowed");
         }
@@ -71,18 +86,13 @@ public final class Input extends AbstractNode {
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(inputVariable);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Input other = (Input) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(inputVariable, other.inputVariable);
     }
 }
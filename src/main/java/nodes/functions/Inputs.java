@@ -2,11 +2,15 @@ package nodes.functions;
 
 import nodes.AbstractNode;
 import exception.ParsingException;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -25,6 +29,15 @@ public final class Inputs extends AbstractNode {
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Inputs(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * Sets up any class-level variables before
      * performing the node reading.
@@ -35,35 +48,37 @@ public final class Inputs extends AbstractNode {
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toString() {
+    public void writeTo(Appendable output) throws IOException {
         if(inputs.isEmpty()) {
-            return "takes nothing";
-        } else {
-            StringBuilder built = new StringBuilder();
-            built.append("takes ");
-            for(Input input: inputs) {
-                built.append(input.toString()).append(",");
+            output.append("takes nothing");
+            return;
+        }
+        output.append("takes ");
+        for(int i = 0; i < inputs.size(); i++) {
+            if(i > 0) {
+                output.append(",");
             }
-            built.setLength(built.length()-1);
-            return built.toString();
+            inputs.get(i).writeTo(output);
         }
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     /**
@@ -80,8 +95,8 @@ public final class Inputs extends AbstractNode {
         }
         line = line.substring("takes ".length());
         for(String part : line.split(",")) {
-            Input input = new Input(new Scanner(part), context);
-            inputs.add(input);
+            Input input = new Input(LineStream.of(part), context);
+            inputs.add(adopt(input));
         }
     }
 
@@ -90,18 +105,13 @@ public final class Inputs extends AbstractNode {
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(inputs);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Inputs other = (Inputs) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(inputs, other.inputs);
     }
 }
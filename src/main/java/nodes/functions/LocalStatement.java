@@ -1,22 +1,28 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import nodes.arguments.Argument;
 import nodes.j.Variable;
 import exception.ParsingException;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a local variable statement
  * This is basically a variable statement beginning with local
  */
-public final class LocalStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class LocalStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private Variable localVariable;
 
@@ -29,37 +35,47 @@ public final class LocalStatement extends AbstractStatement implements IFunction
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public LocalStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public LocalStatement(Variable localVariable, TreeContext context) {
         super(context);
-        this.localVariable = localVariable;
+        this.localVariable = adopt(localVariable);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        return "local " + localVariable.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("local ");
+        localVariable.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append(this.toString());
-        return built.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        writeTo(output);
     }
 
     /**
@@ -84,6 +100,17 @@ public final class LocalStatement extends AbstractStatement implements IFunction
         localVariable.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        localVariable.renameAll(variables, functions);
+    }
+
     /**
      * Converts the given function name into an inline function.
      * Replaces usages of function
@@ -111,7 +138,11 @@ public final class LocalStatement extends AbstractStatement implements IFunction
             throw new ParsingException("Not a local statement: " + line);
         }
         line = line.substring(6);
-        localVariable = new Variable(new Scanner(line), context);
+        localVariable = adopt(new Variable(LineStream.of(line), context));
+    }
+
+    public final Variable getLocalVariable() {
+        return localVariable;
     }
 
     public final String getType() {
@@ -139,18 +170,13 @@ public final class LocalStatement extends AbstractStatement implements IFunction
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(localVariable);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         LocalStatement other = (LocalStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(localVariable, other.localVariable);
     }
 }
@@ -1,20 +1,26 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a block of code starting with loop and going until endloop
  */
-public final class LoopStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class LoopStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private Statements statements;
 
@@ -27,44 +33,53 @@ public final class LoopStatement extends AbstractStatement implements IFunctionR
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public LoopStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public LoopStatement(Statements statements, TreeContext context) {
         super(context);
-        this.statements = statements;
+        this.statements = adopt(statements);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder built = new StringBuilder();
-        built.append("loop").append("\n");
-        built.append(statements.toString()).append("\n");
-        built.append("endloop");
-        return built.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("loop").append("\n");
+        statements.writeTo(output);
+        output.append("\n");
+        output.append("endloop");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append("loop").append("\n");
-        built.append(statements.toFormattedString(indentationLevel+1)).append("\n");
-        addTabs(built, indentationLevel);
-        built.append("endloop");
-        return built.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        output.append("loop").append("\n");
+        statements.writeFormattedTo(output, indentationLevel+1);
+        output.append("\n");
+        addTabs(output, indentationLevel);
+        output.append("endloop");
     }
 
     /**
@@ -101,6 +116,17 @@ public final class LoopStatement extends AbstractStatement implements IFunctionR
         statements.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        statements.renameAll(variables, functions);
+    }
+
     public boolean usesAsFunction(String functionName) {
         return statements.usesAsFunction(functionName);
     }
@@ -110,37 +136,31 @@ public final class LoopStatement extends AbstractStatement implements IFunctionR
      */
     @Override
     protected final void readNode() {
-        StringBuilder loopLines = new StringBuilder();
-        boolean readingLoop = false;
-        int loopLevel = 0; // There can be nested loops!
-        while(hasNextLine()) {
-            String line = readLine();
-            if(line.startsWith("loop")) {
-                loopLevel++;
-                if(loopLevel == 1) {
-                    readingLoop = true;
-                } else {
-                    loopLines.append(line).append("\n"); // It's a nested loop
-                }
-
-            } else if(line.startsWith("endloop")) {
-                if(loopLevel == 1) {
-                    if (readingLoop) {
-                        readingLoop = false;
-                    } else {
-                        throw new ParsingException("Found endloop before loop");
-                    }
-                } else {
-                    // If not, then it's an endloop for a nested loop
-                    loopLines.append(line).append("\n");
-                    loopLevel--;
-                }
-            } else if(readingLoop) {
-                loopLines.append(line).append("\n");
+        String line = readLine();
+        while(!line.startsWith("loop")) {
+            // Skip anything before the loop statement
+            if(!hasNextLine()) {
+                throw new ParsingException("Expected loop statement: " + line);
             }
+            line = readLine();
+        }
+        // Nested loops are read by the inner block
+        statements = adopt(new Statements(getInput(), context));
+        if(!hasNextLine()) {
+            throw new ParsingException("Found loop without endloop");
+        }
+        line = readLine();
+        if(!line.startsWith("endloop")) {
+            throw new ParsingException("Found " + line + " inside loop statement");
         }
-        removeFinalCharacter(loopLines);
-        statements = new Statements(new Scanner(loopLines.toString()), context);
+    }
+
+    /**
+     * Anything after endloop is ignored when reading a standalone loop statement
+     */
+    @Override
+    protected final void verifyEndOfStream() {
+        // Do nothing
     }
 
     public final Argument getExitCondition() {
@@ -163,18 +183,13 @@ public final class LoopStatement extends AbstractStatement implements IFunctionR
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(statements);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         LoopStatement other = (LoopStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(statements, other.statements);
     }
 }
@@ -1,20 +1,26 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractFunction;
 import exception.ParsingException;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a Native Function. Looks like a function, but begins with "native" rather than "function"
  */
-public final class NativeFunction extends AbstractFunction implements IFunctionRenameable, IVariableRenameable {
+public final class NativeFunction extends AbstractFunction implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private String name;
     private Inputs inputs;
@@ -30,6 +36,15 @@ public final class NativeFunction extends AbstractFunction implements IFunctionR
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public NativeFunction(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -38,8 +53,8 @@ public final class NativeFunction extends AbstractFunction implements IFunctionR
     public NativeFunction(TreeContext context, String name, Inputs inputs, Output output, boolean constant) {
         super(context);
         this.name = name;
-        this.inputs = inputs;
-        this.output = output;
+        this.inputs = adopt(inputs);
+        this.output = adopt(output);
         this.constant = constant;
     }
 
@@ -70,8 +85,8 @@ public final class NativeFunction extends AbstractFunction implements IFunctionR
         String outputs = line;
 
         this.name = name;
-        this.inputs = new Inputs(new Scanner(inputs), context);
-        this.output = new Output(new Scanner(outputs), context);
+        this.inputs = adopt(new Inputs(LineStream.of(inputs), context));
+        this.output = adopt(new Output(LineStream.of(outputs), context));
     }
 
     /**
@@ -93,34 +108,56 @@ public final class NativeFunction extends AbstractFunction implements IFunctionR
      */
     @Override
     public final void renameFunction(String oldFunctionName, String newFunctionName) {
-        this.name = rename(name, oldFunctionName, newFunctionName);
+        String renamed = rename(name, oldFunctionName, newFunctionName);
+        if(!renamed.equals(name)) {
+            this.name = renamed;
+            invalidate();
+        }
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        String renamed = rename(name, functions);
+        if(!renamed.equals(name)) {
+            this.name = renamed;
+            invalidate();
+        }
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
+    public final void writeTo(Appendable output) throws IOException {
         if(constant) {
-            builder.append("constant ");
+            output.append("constant ");
         }
-        builder.append("native ").append(name).append(" ").append(inputs.toString()).append(" ").append(output.toString());
-        return builder.toString();
+        output.append("native ").append(name).append(" ");
+        inputs.writeTo(output);
+        output.append(" ");
+        this.output.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     @Override
@@ -142,18 +179,16 @@ public final class NativeFunction extends AbstractFunction implements IFunctionR
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(name, inputs, output, constant);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         NativeFunction other = (NativeFunction) obj;
-        return this.toString().equals(other.toString());
+        return constant == other.constant &&
+                Objects.equals(name, other.name) &&
+                Objects.equals(inputs, other.inputs) &&
+                Objects.equals(output, other.output);
     }
 }
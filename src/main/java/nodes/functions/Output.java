@@ -2,8 +2,12 @@ package nodes.functions;
 
 import nodes.AbstractNode;
 import exception.ParsingException;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -23,25 +27,36 @@ public final class Output extends AbstractNode {
     }
 
     /**
-     * Converts this node back to its original form.
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Output(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
+    /**
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        return "returns " + getType();
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("returns ").append(getType());
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     /**
@@ -62,18 +77,13 @@ public final class Output extends AbstractNode {
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(type);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Output other = (Output) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(type, other.type);
     }
 }
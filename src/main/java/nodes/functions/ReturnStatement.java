@@ -1,20 +1,26 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a return statement, either returning something or nothing
  */
-public final class ReturnStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class ReturnStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private Argument returnArgument;
 
@@ -27,12 +33,21 @@ public final class ReturnStatement extends AbstractStatement implements IFunctio
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public ReturnStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      */
     public ReturnStatement(Argument returnArgument, TreeContext context) {
         super(context);
-        this.returnArgument = returnArgument;
+        this.returnArgument = adopt(returnArgument);
     }
 
     /**
@@ -57,6 +72,17 @@ public final class ReturnStatement extends AbstractStatement implements IFunctio
         returnArgument.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        returnArgument.renameAll(variables, functions);
+    }
+
     /**
      * Converts the given function name into an inline function.
      * Replaces usages of function
@@ -71,33 +97,34 @@ public final class ReturnStatement extends AbstractStatement implements IFunctio
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder returnStatement = new StringBuilder();
-        returnStatement.append("return");
-        if(returnArgument != null && !getReturnBody().isEmpty()) {
-            returnStatement.append(" ").append(getReturnBody());
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("return");
+        if(returnArgument != null) {
+            String returnBody = getReturnBody();
+            if(!returnBody.isEmpty()) {
+                output.append(" ").append(returnBody);
+            }
         }
-        return returnStatement.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append(this.toString());
-        return built.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        writeTo(output);
     }
 
     /**
@@ -110,7 +137,7 @@ public final class ReturnStatement extends AbstractStatement implements IFunctio
             throw new ParsingException("Not a return statement: " + line);
         }
         line = line.substring("return".length()).trim();
-        this.returnArgument = new Argument(new Scanner(line), context);
+        this.returnArgument = adopt(new Argument(LineStream.of(line), context));
     }
 
     public boolean usesAsFunction(String functionName) {
@@ -128,18 +155,13 @@ public final class ReturnStatement extends AbstractStatement implements IFunctio
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(returnArgument);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         ReturnStatement other = (ReturnStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(returnArgument, other.returnArgument);
     }
 }
@@ -1,20 +1,26 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a Set Statement, like "set x = 2"
  */
-public final class SetStatement extends AbstractStatement implements IFunctionRenameable, IVariableRenameable {
+public final class SetStatement extends AbstractStatement implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private Argument variable;
     private Argument variableArgument;
@@ -28,35 +34,47 @@ public final class SetStatement extends AbstractStatement implements IFunctionRe
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public SetStatement(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     private SetStatement(Argument variable, Argument variableArgument, TreeContext context) {
         super(context);
-        this.variable = variable;
-        this.variableArgument = variableArgument;
+        this.variable = adopt(variable);
+        this.variableArgument = adopt(variableArgument);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        return "set " + variable + " = " + variableArgument.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("set ");
+        variable.writeTo(output);
+        output.append(" = ");
+        variableArgument.writeTo(output);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        addTabs(built, indentationLevel);
-        built.append(this.toString());
-        return built.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel);
+        writeTo(output);
     }
 
     /**
@@ -70,14 +88,14 @@ public final class SetStatement extends AbstractStatement implements IFunctionRe
         }
         line = line.substring(4);
         String[] parts = line.split("=");
-        variable = new Argument(new Scanner(parts[0].trim()), context);
+        variable = adopt(new Argument(LineStream.of(parts[0].trim()), context));
         StringBuilder value = new StringBuilder();
         //Handle case of this SetStatement containing multiple equals (like set x = (a <= b))
         for(int i = 1; i < parts.length; i++) {
             value.append(parts[i]).append("=");
         }
         removeFinalCharacter(value);
-        this.variableArgument = new Argument(new Scanner(value.toString()), context);
+        this.variableArgument = adopt(new Argument(LineStream.of(value.toString()), context));
     }
 
     /**
@@ -104,6 +122,18 @@ public final class SetStatement extends AbstractStatement implements IFunctionRe
         variableArgument.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        variable.renameAll(variables, functions);
+        variableArgument.renameAll(variables, functions);
+    }
+
     /**
      * Converts the given function name into an inline function.
      * Replaces usages of function
@@ -129,6 +159,14 @@ public final class SetStatement extends AbstractStatement implements IFunctionRe
         return variableArgument.toString();
     }
 
+    public final Argument getTarget() {
+        return variable;
+    }
+
+    public final Argument getValueArgument() {
+        return variableArgument;
+    }
+
     public final List<Argument> getArguments() {
         List<Argument> arguments = new ArrayList<>();
         arguments.addAll(variableArgument.getArguments());
@@ -137,18 +175,14 @@ public final class SetStatement extends AbstractStatement implements IFunctionRe
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(variable, variableArgument);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         SetStatement other = (SetStatement) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(variable, other.variable) &&
+                Objects.equals(variableArgument, other.variableArgument);
     }
 }
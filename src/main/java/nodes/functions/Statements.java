@@ -1,23 +1,29 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IMergable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.AbstractStatement;
 import exception.ParsingException;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a block of one or more generic statements
  */
-public final class Statements extends AbstractNode implements IMergable, IFunctionRenameable, IVariableRenameable {
+public final class Statements extends AbstractNode implements IMergable, IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private List<AbstractStatement> statements;
 
@@ -39,10 +45,20 @@ public final class Statements extends AbstractNode implements IMergable, IFuncti
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Statements(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     public Statements(List<AbstractStatement> statements, TreeContext context) {
         super(context);
         this.statements = new ArrayList<>();
         this.statements.addAll(statements);
+        adoptAll(this.statements);
     }
 
     /**
@@ -88,88 +104,99 @@ public final class Statements extends AbstractNode implements IMergable, IFuncti
     }
 
     /**
-     * Converts this node back to its original form.
-     * Indentation is not added.
+     * Renames variables, functions and all uses of them in one pass.
      *
-     * @return Original form of this node (code or string)
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
      */
     @Override
-    public final String toString() {
-        StringBuilder built = new StringBuilder();
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
         for (AbstractStatement statement : statements) {
-            built.append(statement.toString()).append("\n");
+            statement.renameAll(variables, functions);
         }
-        if (built.length() > 0) {
-            built.setLength(built.length() - 1);
+    }
+
+    /**
+     * Writes this node back in its original form.
+     * Indentation is not added.
+     *
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
+     */
+    @Override
+    public final void writeTo(Appendable output) throws IOException {
+        for (int i = 0; i < statements.size(); i++) {
+            if (i > 0) {
+                output.append("\n");
+            }
+            statements.get(i).writeTo(output);
         }
-        return built.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder built = new StringBuilder();
-        for (AbstractStatement statement : statements) {
-            built.append(statement.toFormattedString(indentationLevel)).append("\n");
-        }
-        if (built.length() > 0) {
-            built.setLength(built.length() - 1);
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        for (int i = 0; i < statements.size(); i++) {
+            if (i > 0) {
+                output.append("\n");
+            }
+            statements.get(i).writeFormattedTo(output, indentationLevel);
         }
-        return built.toString();
     }
 
     /**
-     * Parse the JASS code contained in the Scanner into a model object
+     * Parse the JASS code contained in the Scanner into a model object.
+     * Reading stops before the line that ends the enclosing block.
      */
     @Override
     protected final void readNode() {
         boolean readingLocals = true; // set to false when any line other than locals is discovered
 
         while (hasNextLine()) {
-            String line = readLine();
+            String line = peekLine();
             // Determine what type of method to read and then read it
-            if (line.startsWith("call ")) {
+            if (isEndOfBlock(line)) {
+                // Belongs to the enclosing if/loop/function
+                break;
+            } else if (line.startsWith("call ")) {
                 // Call statements are a single line
-                CallStatement statement = new CallStatement(new Scanner(line), context);
-                statements.add(statement);
+                statements.add(adopt(new CallStatement(getInput(), context)));
                 readingLocals = false;
             } else if (line.startsWith("set ")) {
                 // Set statements are a single line
-                SetStatement statement = new SetStatement(new Scanner(line), context);
-                statements.add(statement);
+                statements.add(adopt(new SetStatement(getInput(), context)));
                 readingLocals = false;
             } else if (line.startsWith("local ")) {
                 // Local statements are a single line AND must come at the start of the file
                 if (readingLocals) {
-                    LocalStatement statement = new LocalStatement(new Scanner(line), context);
-                    statements.add(statement);
+                    statements.add(adopt(new LocalStatement(getInput(), context)));
                 } else {
-                    throw new ParsingException("Locals section out of place: " + line);
+                    throw new ParsingException("Locals section out of place: " + readLine());
                 }
             } else if (line.startsWith("if ")) {
                 // If statements contain inner blocks of code
-                readIfStatement(line);
+                statements.add(adopt(new IfStatement(getInput(), context)));
                 readingLocals = false;
             } else if (line.startsWith("loop")) {
                 // Loop statements contain inner blocks of code
-                readLoopStatememt(line);
+                statements.add(adopt(new LoopStatement(getInput(), context)));
                 readingLocals = false;
             } else if (line.startsWith("exitwhen ")) {
                 // Exitwhen statements exist on their own but will only be found inside loops
-                ExitWhenStatement statement = new ExitWhenStatement(new Scanner(line), context);
-                statements.add(statement);
+                statements.add(adopt(new ExitWhenStatement(getInput(), context)));
                 readingLocals = false;
             } else if (line.startsWith("return")) {
                 // There can be multiple returns in a single function.
-                ReturnStatement statement = new ReturnStatement(new Scanner(line), context);
-                statements.add(statement);
+                statements.add(adopt(new ReturnStatement(getInput(), context)));
                 readingLocals = false;
             } else {
+                readLine();
                 if (!line.isEmpty()) {
                     throw new ParsingException("Unrecognized line in statement: " + line);
                 }
@@ -178,60 +205,14 @@ public final class Statements extends AbstractNode implements IMergable, IFuncti
     }
 
     /**
-     * Reads from if -> endif and parses it as an IfStatement
+     * Checks whether the line closes the block these statements are in
      *
-     * @param firstLine First line that triggered this if reading
+     * @param line  Line of code
+     * @return      true if the line ends an if/loop/function/method block
      */
-    private final void readIfStatement(String firstLine) {
-        StringBuilder fullStatement = new StringBuilder();
-        fullStatement.append(firstLine).append("\n");
-        String newLine = "";
-        int ifLevel = 0;
-        boolean exit = false;
-        while (!exit) {
-            newLine = readLine();
-            fullStatement.append(newLine).append("\n");
-            if (newLine.startsWith("if ")) {
-                ifLevel++;
-            } else if (newLine.startsWith("endif")) {
-                if (ifLevel == 0) {
-                    exit = true;
-                }
-                ifLevel--;
-            }
-        }
-        IfStatement ifStatement = new IfStatement(new Scanner(fullStatement.toString()), context);
-        statements.add(ifStatement);
-    }
-
-    /**
-     * Reads from loop -> endloop and parses it as an LoopStatement
-     *
-     * @param firstLine First line that triggered this loop reading
-     */
-    private final void readLoopStatememt(String firstLine) {
-        StringBuilder fullStatement = new StringBuilder();
-        fullStatement.append(firstLine).append("\n");
-        String newLine = "";
-        int loopLevel = 1;
-        boolean exit = false;
-        while (!exit) {
-            newLine = readLine();
-            if (newLine.startsWith("loop")) {
-                loopLevel++;
-            } else if (newLine.startsWith("endloop")) {
-                loopLevel--;
-                if (loopLevel == 0) {
-                    exit = true;
-                }
-            }
-            fullStatement.append(newLine).append("\n");
-        }
-        if (fullStatement.length() > 0) {
-            fullStatement.setLength(fullStatement.length() - 1);
-        }
-        LoopStatement loopStatement = new LoopStatement(new Scanner(fullStatement.toString()), context);
-        statements.add(loopStatement);
+    private boolean isEndOfBlock(String line) {
+        return line.startsWith("endif") || line.startsWith("else") || line.startsWith("endloop")
+                || line.startsWith("endfunction") || line.startsWith("endmethod");
     }
 
     public boolean usesAsFunction(String functionName) {
@@ -340,7 +321,8 @@ public final class Statements extends AbstractNode implements IMergable, IFuncti
                 newStatements.add(statement);
             }
         }
-        this.statements = newStatements;
+        this.statements = adoptAll(newStatements);
+        invalidate();
     }
 
     public final List<Argument> getArguments() {
@@ -352,18 +334,13 @@ public final class Statements extends AbstractNode implements IMergable, IFuncti
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(statements);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Statements other = (Statements) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(statements, other.statements);
     }
 }
@@ -1,19 +1,25 @@
 package nodes.functions;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractFunction;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a Native Function. Looks like a function, but begins with "native" rather than "function"
  */
-public final class TypeDeclaration extends AbstractFunction implements IFunctionRenameable, IVariableRenameable {
+public final class TypeDeclaration extends AbstractFunction implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private String name;
     private String flags;
@@ -27,6 +33,15 @@ public final class TypeDeclaration extends AbstractFunction implements IFunction
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public TypeDeclaration(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -79,34 +94,53 @@ public final class TypeDeclaration extends AbstractFunction implements IFunction
      */
     @Override
     public final void renameFunction(String oldFunctionName, String newFunctionName) {
-        this.name = rename(name, oldFunctionName, newFunctionName);
+        String renamed = rename(name, oldFunctionName, newFunctionName);
+        if(!renamed.equals(name)) {
+            this.name = renamed;
+            invalidate();
+        }
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        String renamed = rename(name, functions);
+        if(!renamed.equals(name)) {
+            this.name = renamed;
+            invalidate();
+        }
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append("type ").append(name);
+    public final void writeTo(Appendable output) throws IOException {
+        output.append("type ").append(name);
         if(flags != null && !flags.isEmpty()) {
-            builder.append(" ").append(flags);
+            output.append(" ").append(flags);
         }
-        return builder.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     @Override
@@ -120,18 +154,14 @@ public final class TypeDeclaration extends AbstractFunction implements IFunction
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(name, flags);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         TypeDeclaration other = (TypeDeclaration) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(name, other.name) &&
+                Objects.equals(flags, other.flags);
     }
 }
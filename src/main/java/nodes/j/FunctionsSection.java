@@ -1,26 +1,33 @@
 package nodes.j;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IMergable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
 import nodes.AbstractFunction;
+import nodes.AbstractReadable;
 import nodes.functions.Function;
 import nodes.functions.NativeFunction;
 import exception.ParsingException;
 import nodes.functions.TypeDeclaration;
 import nodes.vjass.Method;
+import parser.LineStream;
+import tree.ParseTasks;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a code fragment from endglobals (not included) to the EOF
  */
-public final class FunctionsSection extends AbstractNode implements IMergable, IFunctionRenameable, IVariableRenameable {
+public final class FunctionsSection extends AbstractNode implements IMergable, IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private List<AbstractFunction> functions;
 
@@ -33,10 +40,20 @@ public final class FunctionsSection extends AbstractNode implements IMergable, I
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public FunctionsSection(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     public FunctionsSection(List<AbstractFunction> functions, TreeContext context) {
         super(context);
         this.functions = new ArrayList<>();
         this.functions.addAll(functions);
+        adoptAll(this.functions);
     }
 
     /**
@@ -65,6 +82,19 @@ public final class FunctionsSection extends AbstractNode implements IMergable, I
         }
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        for(AbstractFunction function : this.functions) {
+            function.renameAll(variables, functions);
+        }
+    }
+
     /**
      * Sets up any class-level variables before
      * performing the node reading.
@@ -75,35 +105,37 @@ public final class FunctionsSection extends AbstractNode implements IMergable, I
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
-        for(AbstractFunction function: functions) {
-            builder.append(function.toString()).append("\n");
+    public final void writeTo(Appendable output) throws IOException {
+        for(int i = 0; i < functions.size(); i++) {
+            if(i > 0) {
+                output.append("\n");
+            }
+            functions.get(i).writeTo(output);
         }
-        removeFinalCharacter(builder);
-        return builder.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builder = new StringBuilder();
-        for(AbstractFunction function: functions) {
-            builder.append(function.toFormattedString(indentationLevel)).append("\n");
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        for(int i = 0; i < functions.size(); i++) {
+            if(i > 0) {
+                output.append("\n");
+            }
+            functions.get(i).writeFormattedTo(output, indentationLevel);
         }
-        removeFinalCharacter(builder);
-        return builder.toString();
     }
 
     /**
@@ -111,62 +143,113 @@ public final class FunctionsSection extends AbstractNode implements IMergable, I
      */
     @Override
     protected final void readNode() {
-        StringBuilder currentFunction = new StringBuilder();
-        boolean readingFunction = false; // Set to true when function is discovered, back to false at endfunctions
-        boolean readingMethod = false;
+        ParseTasks<AbstractFunction> entries = new ParseTasks<>(context);
         while(hasNextLine()) {
-            String line = readLine();
-            if(line.startsWith("function ") || line.startsWith("constant function ")|| line.startsWith("private function ")|| line.startsWith("public function ") || line.startsWith("private constant function ")|| line.startsWith("public constant function ") ) {
-                if(!readingFunction && !readingMethod) {
-                    currentFunction.append(line).append("\n");
-                    readingFunction = true;
-                } else {
-                    throw new ParsingException("Found function without endfunction/endmethod: " + line);
-                }
-            } else if(line.startsWith("endfunction")) {
-                if(!readingFunction) {
-                    throw new ParsingException("Found endfunction without function: " + line);
-                } else {
-                    currentFunction.append(line);
-                    Function function = new Function(new Scanner(currentFunction.toString()), context);
-                    this.functions.add(function);
-                    currentFunction = new StringBuilder();
-                    readingFunction = false;
-                }
-            } else if(line.startsWith("native ") || line.startsWith("constant native ")) {
-                NativeFunction nativeFunction = new NativeFunction(new Scanner(line), context);
-                functions.add(nativeFunction);
-            } else if(line.startsWith("type ")) {
-                TypeDeclaration typeDeclaration = new TypeDeclaration(new Scanner(line), context);
-                functions.add(typeDeclaration);
-            } else if(line.startsWith("method ") || line.startsWith("constant method ")|| line.startsWith("private method ")|| line.startsWith("public method ") || line.startsWith("private constant method ")|| line.startsWith("public constant method ")) {
-                if(!readingFunction && !readingMethod) {
-                    currentFunction.append(line).append("\n");
-                    readingMethod = true;
-                } else {
-                    throw new ParsingException("Found method without endmethod/endfunction: " + line);
-                }
+            String line = peekLine();
+            if(line.isEmpty()) {
+                readLine();
+            } else {
+                readEntry(getInput(), line, context, entries);
+            }
+        }
+        functions.addAll(adoptAll(entries.join()));
+    }
+
+    /**
+     * Reads one function, method, native or type declaration from the stream.
+     * The entry reads its own lines, up to and including endfunction/endmethod.
+     * For a parallel parse, function and method bodies are only located here
+     * and then parsed on the context's executor.
+     *
+     * @param input     Stream positioned at the first line of the entry
+     * @param line      First line of the entry
+     * @param context   Tree context
+     * @param entries   Entries read so far, in order
+     */
+    static void readEntry(LineStream input, String line, TreeContext context, ParseTasks<AbstractFunction> entries) {
+        if(startsFunction(line)) {
+            LineStream body = entries.isParallel() ? readBody(input, "endfunction") : null;
+            if(body == null) {
+                entries.add(new Function(input, context));
+            } else {
+                entries.submit(() -> readWhole(new Function(body, context), body), body.endPosition() - body.position());
+            }
+        } else if(line.startsWith("native ") || line.startsWith("constant native ")) {
+            entries.add(new NativeFunction(input, context));
+        } else if(line.startsWith("type ")) {
+            entries.add(new TypeDeclaration(input, context));
+        } else if(startsMethod(line)) {
+            LineStream body = entries.isParallel() ? readBody(input, "endmethod") : null;
+            if(body == null) {
+                entries.add(new Method(input, context));
+            } else {
+                entries.submit(() -> readWhole(new Method(body, context), body), body.endPosition() - body.position());
+            }
+        } else {
+            context.setLastLine(line);
+            if(line.startsWith("endfunction")) {
+                throw new ParsingException("Found endfunction without function: " + line);
             } else if(line.startsWith("endmethod")) {
-                if(!readingMethod) {
-                    throw new ParsingException("Found endmethod without method: " + line);
-                } else {
-                    currentFunction.append(line);
-                    Method function = new Method(new Scanner(currentFunction.toString()), context);
-                    this.functions.add(function);
-                    currentFunction = new StringBuilder();
-                    readingMethod = false;
-                }
-            } else if(readingFunction || readingMethod) {
-                currentFunction.append(line).append("\n");
+                throw new ParsingException("Found endmethod without method: " + line);
             } else {
-                // Not a Function or Native
-                if(!line.isEmpty()) {
-                    throw new ParsingException("Unrecognized line in functions section: " + line);
-                }
+                throw new ParsingException("Unrecognized line in functions section: " + line);
             }
         }
     }
 
+    /**
+     * Checks whether a line declares a function
+     *
+     * @param line  Normalized line of code
+     * @return      True if the line starts a function; false if not.
+     */
+    static boolean startsFunction(String line) {
+        return line.startsWith("function ") || line.startsWith("constant function ")|| line.startsWith("private function ")|| line.startsWith("public function ") || line.startsWith("private constant function ")|| line.startsWith("public constant function ");
+    }
+
+    /**
+     * Checks whether a line declares a vJASS method
+     *
+     * @param line  Normalized line of code
+     * @return      True if the line starts a method; false if not.
+     */
+    static boolean startsMethod(String line) {
+        return line.startsWith("method ") || line.startsWith("constant method ")|| line.startsWith("private method ")|| line.startsWith("public method ") || line.startsWith("private constant method ")|| line.startsWith("public constant method ");
+    }
+
+    /**
+     * Finds the lines of a function or method body with a quick scan for
+     * its end line, and moves the stream past them.
+     *
+     * @param input     Stream positioned at the declaration line
+     * @param endText   Line that ends the body (endfunction or endmethod)
+     * @return          Stream over the whole function, or null if no end line was found
+     */
+    private static LineStream readBody(LineStream input, String endText) {
+        int start = input.position();
+        int end = input.findLine(start + 1, endText);
+        if(end < 0) {
+            // Let the regular parse report the missing end line
+            return null;
+        }
+        input.skipTo(end + 1);
+        return input.slice(start, end + 1);
+    }
+
+    /**
+     * Makes sure a function read from its own stream used all of it
+     *
+     * @param function  Function that was read
+     * @param body      Stream the function was read from
+     * @return          The function
+     */
+    private static AbstractFunction readWhole(AbstractFunction function, LineStream body) {
+        if(body.hasNextLine()) {
+            throw new ParsingException("Found " + body.nextLine().trim() + " after end of function: " + function.getName());
+        }
+        return function;
+    }
+
     public final List<AbstractFunction> getFunctions() {
         return Collections.unmodifiableList(functions);
     }
@@ -223,29 +306,26 @@ public final class FunctionsSection extends AbstractNode implements IMergable, I
         if(mainFunction != null) {
             newFunctions.add(mainFunction);
         }
-        this.functions = newFunctions;
+        this.functions = adoptAll(newFunctions);
+        invalidate();
     }
 
     public void addFunctionMain() {
         if(functions == null) {
             functions = new ArrayList<>();
         }
-        functions.add(new Function(new Scanner("function main takes nothing returns nothing\nendfunction"), new TreeContext()));
+        functions.add(adopt(new Function(LineStream.of("function main takes nothing returns nothing\nendfunction"), context)));
+        invalidate();
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(functions);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         FunctionsSection other = (FunctionsSection) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(functions, other.functions);
     }
 }
@@ -1,21 +1,27 @@
 package nodes.j;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IMergable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
 import exception.ParsingException;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a code fragment starting with "globals" and ending with "endglobals"
  */
-public final class GlobalsSection extends AbstractNode implements IMergable, IVariableRenameable {
+public final class GlobalsSection extends AbstractNode implements IMergable, IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private List<Variable> globalVariables;
 
@@ -28,10 +34,20 @@ public final class GlobalsSection extends AbstractNode implements IMergable, IVa
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public GlobalsSection(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     public GlobalsSection(List<Variable> globalVariables, TreeContext context) {
         super(context);
         this.globalVariables = new ArrayList<>();
         this.globalVariables.addAll(globalVariables);
+        adoptAll(this.globalVariables);
     }
 
     /**
@@ -56,6 +72,32 @@ public final class GlobalsSection extends AbstractNode implements IMergable, IVa
         }
     }
 
+    /**
+     * Renames uses of a function in the initial values of the variables
+     *
+     * @param oldFunctionName   Existing function name
+     * @param newFunctionName   Desired function name
+     */
+    @Override
+    public final void renameFunction(String oldFunctionName, String newFunctionName) {
+        for(Variable variable : globalVariables) {
+            variable.renameFunction(oldFunctionName, newFunctionName);
+        }
+    }
+
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        for(Variable variable : globalVariables) {
+            variable.renameAll(variables, functions);
+        }
+    }
+
     /**
      * Parse the JASS code contained in the Scanner into a model object
      */
@@ -65,63 +107,67 @@ public final class GlobalsSection extends AbstractNode implements IMergable, IVa
         String inputLine = "";
         boolean readingGlobals = false;
         while (reading) {
-            inputLine = readLine();
+            if (!hasNextLine()) {
+                throw new ParsingException("Found globals without endglobals");
+            }
+            inputLine = peekLine();
             if (inputLine.equals("globals")) {
+                readLine();
                 if (readingGlobals) {
                     throw new ParsingException("Found globals twice");
                 } else {
                     readingGlobals = true;
                 }
             } else if (inputLine.equals("endglobals")) {
+                readLine();
                 if (!readingGlobals) {
                     throw new ParsingException("Found endglobals before globals");
                 } else {
                     readingGlobals = false;
                     reading = false;
                 }
-            } else if (!inputLine.isEmpty()) {
-                if (readingGlobals) {
-                    // Each line should be a variable, if it's not empty.
-                    Variable variable = new Variable(new Scanner(inputLine), context);
-                    globalVariables.add(variable);
-                }
+            } else if (!inputLine.isEmpty() && readingGlobals) {
+                // Each line should be a variable, if it's not empty.
+                globalVariables.add(adopt(new Variable(getInput(), context)));
+            } else {
+                readLine();
             }
         }
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toString() {
-        StringBuilder builtString = new StringBuilder();
-        builtString.append("globals").append("\n");
+    public void writeTo(Appendable output) throws IOException {
+        output.append("globals").append("\n");
         for (Variable globalVariable : globalVariables) {
-            builtString.append(globalVariable.toString()).append("\n");
+            globalVariable.writeTo(output);
+            output.append("\n");
         }
-        builtString.append("endglobals");
-        return builtString.toString();
+        output.append("endglobals");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builtString = new StringBuilder();
-        builtString.append("globals").append("\n");
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        output.append("globals").append("\n");
         for (Variable globalVariable : globalVariables) {
-            addTabs(builtString, indentationLevel);
-            builtString.append(globalVariable.toFormattedString(indentationLevel+1)).append("\n");
+            addTabs(output, indentationLevel);
+            globalVariable.writeFormattedTo(output, indentationLevel+1);
+            output.append("\n");
         }
-        builtString.append("endglobals");
-        return builtString.toString();
+        output.append("endglobals");
     }
 
     public List<Variable> getGlobalVariables() {
@@ -135,22 +181,18 @@ public final class GlobalsSection extends AbstractNode implements IMergable, IVa
      * @param other Other AST node to combine
      */
     public final void merge(AbstractNode other) {
-        globalVariables.addAll(((GlobalsSection)other).globalVariables);
+        globalVariables.addAll(adoptAll(((GlobalsSection)other).globalVariables));
+        invalidate();
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(globalVariables);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         GlobalsSection other = (GlobalsSection) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(globalVariables, other.globalVariables);
     }
 }
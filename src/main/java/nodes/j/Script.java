@@ -1,26 +1,38 @@
 package nodes.j;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IMergable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractFunction;
 import nodes.AbstractNode;
 import exception.ParsingException;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
 import nodes.functions.TypeDeclaration;
 import nodes.vjass.Library;
 import nodes.vjass.Scope;
+import nodes.vjass.ScriptContainer;
 import nodes.vjass.Struct;
+import parser.LineStream;
+import tree.ParseListener;
+import tree.ParsePhase;
+import tree.ParseTasks;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.BiFunction;
 
 /**
  * Represents a .j file with a globals/functions section.
  */
-public final class Script extends AbstractNode implements IMergable, IFunctionRenameable, IVariableRenameable {
+public final class Script extends AbstractNode implements IMergable, IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private GlobalsSection globalsSection;
     private FunctionsSection functionsSection;
@@ -38,212 +50,229 @@ public final class Script extends AbstractNode implements IMergable, IFunctionRe
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Script(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     public Script(GlobalsSection globalsSection, FunctionsSection functionsSection, List<TypeDeclaration> types, TreeContext context) {
         super(context);
-        this.globalsSection = globalsSection;
-        this.functionsSection = functionsSection;
-        this.types = types;
+        this.globalsSection = adopt(globalsSection);
+        this.functionsSection = adopt(functionsSection);
+        this.types = adoptAll(types);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder returnValue = new StringBuilder();
-        if(globalsSection != null) {
-            returnValue.append(globalsSection.toString());
-            returnValue.append("\n");
-        }
-        if(functionsSection != null) {
-            returnValue.append(functionsSection.toString());
-            returnValue.append("\n");
-        }
-        if(libraries != null && libraries.size() > 0) {
-            for(Library library : libraries) {
-                returnValue.append(library.toString());
-                returnValue.append("\n");
+    public final void writeTo(Appendable output) throws IOException {
+        boolean first = true;
+        for(AbstractNode part : getParts()) {
+            if(!first) {
+                output.append("\n");
             }
+            part.writeTo(output);
+            first = false;
         }
-        if(scopes != null && scopes.size() > 0) {
-            for(Scope scope : scopes) {
-                returnValue.append(scope.toString());
-                returnValue.append("\n");
-            }
-        }
-        if(structs != null && structs.size() > 0) {
-            for(Struct struct : structs) {
-                returnValue.append(struct.toString());
-                returnValue.append("\n");
-            }
-        }
-
-        removeFinalCharacter(returnValue);
-        return returnValue.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builder = new StringBuilder();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        boolean first = true;
+        for(AbstractNode part : getParts()) {
+            if(!first) {
+                output.append("\n");
+            }
+            part.writeFormattedTo(output, indentationLevel + 1);
+            first = false;
+        }
+    }
+
+    /**
+     * Gets the sections and containers of this script in the order they are written
+     *
+     * @return  Sections, libraries, scopes and structs
+     */
+    private List<AbstractNode> getParts() {
+        List<AbstractNode> parts = new ArrayList<>();
         if(globalsSection != null) {
-            builder.append(globalsSection.toFormattedString(indentationLevel + 1));
-            builder.append("\n");
+            parts.add(globalsSection);
         }
         if(functionsSection != null) {
-            builder.append(functionsSection.toFormattedString(indentationLevel + 1));
-            builder.append("\n");
+            parts.add(functionsSection);
         }
-        if(libraries != null && libraries.size() > 0) {
-            for(Library library : libraries) {
-                builder.append(library.toFormattedString(indentationLevel + 1));
-                builder.append("\n");
-            }
+        if(libraries != null) {
+            parts.addAll(libraries);
         }
-        if(scopes != null && scopes.size() > 0) {
-            for(Scope scope : scopes) {
-                builder.append(scope.toFormattedString(indentationLevel + 1));
-                builder.append("\n");
-            }
+        if(scopes != null) {
+            parts.addAll(scopes);
         }
-        if(structs != null && structs.size() > 0) {
-            for(Struct struct : structs) {
-                builder.append(struct.toFormattedString(indentationLevel + 1));
-                builder.append("\n");
-            }
+        if(structs != null) {
+            parts.addAll(structs);
         }
-        removeFinalCharacter(builder);
-        return builder.toString();
+        return parts;
     }
 
     /**
-     * Parse the JASS code contained in the Scanner into a model object
+     * Parse the JASS code contained in the Scanner into a model object.
+     * Reading stops before a line that ends a vJASS container.
      */
     @Override
     protected final void readNode() {
-        boolean readingGlobals = false; // set to true when "globals" is discovered
-        boolean readingFunctions = true; // set to true when "endglobals" is discovered
-        StringBuilder currentAccumulatedString = new StringBuilder(); // contains either the globals or endglobal section
-        boolean readingLibrary = false;
-        boolean readingScope = false;
-        boolean readingStruct = false;
+        ParseTasks<AbstractFunction> entries = new ParseTasks<>(context);
+        ParseTasks<Library> libraries = new ParseTasks<>(context);
+        ParseTasks<Scope> scopes = new ParseTasks<>(context);
+        ParseTasks<Struct> structs = new ParseTasks<>(context);
+        boolean foundContainer = false;
+        ParseListener listener = context.getListener();
 
         while(hasNextLine()) {
-            String line = readLine();
-            if(line.equals("globals") && !readingLibrary && !readingScope && !readingStruct) {
-                // Read the entire script until endglobals
-                if (!readingGlobals) {
-                    readingGlobals = true;
-                    readingFunctions = false;
-                    currentAccumulatedString.append(line).append("\n");
+            String line = peekLine();
+            long start = listener == null ? 0 : System.nanoTime();
+            ParsePhase phase;
+            if(line.equals("globals")) {
+                GlobalsSection globals = new GlobalsSection(getInput(), context);
+                if(this.globalsSection == null) {
+                    this.globalsSection = adopt(globals);
                 } else {
-                    throw new ParsingException("Nested globals section not supported: " + line);
+                    this.globalsSection.merge(globals);
                 }
-            } else if(line.startsWith("type")  && !readingLibrary && !readingScope && !readingStruct) {
+                phase = ParsePhase.GLOBALS;
+            } else if(line.equals("endglobals")) {
+                throw new ParsingException("Found endglobals before globals: " + readLine());
+            } else if(line.startsWith("type")) {
                 if(types == null) {
                     types = new ArrayList<>();
                 }
-                TypeDeclaration typeDeclaration = new TypeDeclaration(new Scanner(line), context);
-                types.add(typeDeclaration);
-            } else if(line.equals("endglobals")  && !readingLibrary && !readingScope && !readingStruct) {
-                // Read the entire script until EOF
-                if (readingFunctions) {
-                    throw new ParsingException("Globals in functions section not supported: " + line);
-                }
-                if (readingGlobals) {
-                    readingGlobals = false;
-                    currentAccumulatedString.append(line);
-                    // Parse the globals before resetting
-                    this.globalsSection = new GlobalsSection(new Scanner(currentAccumulatedString.toString()), context);
-                    currentAccumulatedString = new StringBuilder();
-                    readingFunctions = true;
-                } else {
-                    throw new ParsingException("Found endglobals before globals: " + line);
-                }
+                types.add(adopt(new TypeDeclaration(getInput(), context)));
+                phase = ParsePhase.TYPES;
             } else if(line.startsWith("library")) {
-                if(currentAccumulatedString.length() > 0) {
-                    saveData(readingFunctions, currentAccumulatedString, readingLibrary, readingScope, readingStruct);
-                }
-                readingLibrary = true;
-                readingFunctions = false;
-                currentAccumulatedString.append(line).append("\n");
-            } else if(line.startsWith("endlibrary")) {
-                if (libraries == null) {
-                    libraries = new ArrayList<>();
-                }
-                currentAccumulatedString.append(line);
-                libraries.add(new Library(new Scanner(currentAccumulatedString.toString()), context));
-                currentAccumulatedString.setLength(0);
-                readingLibrary = false;
+                readContainer(libraries, Library::new);
+                foundContainer = true;
+                phase = ParsePhase.CONTAINERS;
             } else if(line.startsWith("scope")) {
-                if(currentAccumulatedString.length() > 0) {
-                    saveData(readingFunctions, currentAccumulatedString, readingLibrary, readingScope, readingStruct);
-                }
-                readingScope = true;
-                readingFunctions = false;
-                currentAccumulatedString.append(line).append("\n");
-            } else if(line.startsWith("endscope")) {
-                if (scopes == null) {
-                    scopes = new ArrayList<>();
-                }
-                currentAccumulatedString.append(line);
-                scopes.add(new Scope(new Scanner(currentAccumulatedString.toString()), context));
-                currentAccumulatedString.setLength(0);
-                readingScope = false;
+                readContainer(scopes, Scope::new);
+                foundContainer = true;
+                phase = ParsePhase.CONTAINERS;
             } else if(line.startsWith("struct")) {
-                if(currentAccumulatedString.length() > 0) {
-                    saveData(readingFunctions, currentAccumulatedString, readingLibrary, readingScope, readingStruct);
-                }
-                readingStruct = true;
-                readingFunctions = false;
-                currentAccumulatedString.append(line).append("\n");
-            } else if(line.startsWith("endstruct")) {
-                if (structs == null) {
-                    structs = new ArrayList<>();
-                }
-                currentAccumulatedString.append(line);
-                structs.add(new Struct(new Scanner(currentAccumulatedString.toString()), context));
-                currentAccumulatedString.setLength(0);
-                readingStruct = false;
+                readContainer(structs, Struct::new);
+                foundContainer = true;
+                phase = ParsePhase.CONTAINERS;
+            } else if(line.startsWith("endlibrary") || line.startsWith("endscope") || line.startsWith("endstruct")) {
+                // End of the container this script is inside of
+                break;
+            } else if(line.isEmpty()) {
+                readLine();
+                continue;
             } else {
-                currentAccumulatedString.append(line).append("\n");
+                FunctionsSection.readEntry(getInput(), line, context, entries);
+                phase = ParsePhase.FUNCTIONS;
             }
+            if(listener != null) {
+                listener.phaseFinished(phase, System.nanoTime() - start);
+            }
+        }
+        long start = listener == null ? 0 : System.nanoTime();
+        List<AbstractFunction> functions = entries.join();
+        if(!functions.isEmpty() || !foundContainer) {
+            this.functionsSection = adopt(new FunctionsSection(functions, context));
+        }
+        if(listener != null) {
+            // Waiting for functions parsed on the executor
+            listener.phaseFinished(ParsePhase.FUNCTIONS, System.nanoTime() - start);
+            start = System.nanoTime();
+        }
+        this.libraries = joinContainers(libraries);
+        this.scopes = joinContainers(scopes);
+        this.structs = joinContainers(structs);
+        if(listener != null) {
+            listener.phaseFinished(ParsePhase.CONTAINERS, System.nanoTime() - start);
         }
-        saveData(readingFunctions, currentAccumulatedString, readingLibrary, readingScope, readingStruct);
     }
 
-    private void saveData(boolean readingFunctions, StringBuilder currentAccumulatedString, boolean readingLibrary, boolean readingScope, boolean readingStruct) {
-        if (readingFunctions) {
-            // Finally parse the Functions
-            this.functionsSection = new FunctionsSection(new Scanner(currentAccumulatedString.toString()), context);
+    /**
+     * Reads a library, scope or struct from the stream.
+     * For a parallel parse, the container is only located here and its
+     * inner script is parsed on the context's executor. Containers inside of
+     * it are parsed on the same task, so tasks never wait on each other.
+     *
+     * @param containers    Containers of this kind read so far, in order
+     * @param constructor   Creates the container from a stream
+     * @param <T>           Type of container
+     */
+    private <T extends ScriptContainer> void readContainer(ParseTasks<T> containers, BiFunction<LineStream, TreeContext, T> constructor) {
+        LineStream input = getInput();
+        int start = input.position();
+        int end = containers.isParallel() ? findContainerEnd(input) : -1;
+        if(end < 0) {
+            containers.add(constructor.apply(input, context));
+            return;
         }
-        if (readingLibrary && currentAccumulatedString.length() > 0) {
-            if (libraries == null) {
-                libraries = new ArrayList<>();
+        LineStream body = input.slice(start, end);
+        input.skipTo(end);
+        TreeContext innerContext = context.sequential();
+        containers.submit(() -> {
+            T container = constructor.apply(body, innerContext);
+            if(body.hasNextLine()) {
+                throw new ParsingException("Found " + body.nextLine().trim() + " after end of container: " + container.getName());
             }
-            libraries.add(new Library(new Scanner(currentAccumulatedString.toString()), context));
-        }
-        if (readingScope && currentAccumulatedString.length() > 0) {
-            if (scopes == null) {
-                scopes = new ArrayList<>();
+            return container;
+        }, end - start);
+    }
+
+    /**
+     * Finds the end of the container starting at the stream's position
+     * with a quick scan that skips over globals and function bodies.
+     * Containers may be nested, like a struct inside of a library.
+     *
+     * @param input Stream positioned at the container's first line
+     * @return      Position after the container's end line, or -1 if it was not found
+     */
+    private static int findContainerEnd(LineStream input) {
+        int depth = 0;
+        for(int i = input.position(); i < input.endPosition(); i++) {
+            String line = input.lineAt(i).trim().replace("\t", " ");
+            if(line.startsWith("endlibrary") || line.startsWith("endscope") || line.startsWith("endstruct")) {
+                depth--;
+                if(depth == 0) {
+                    return i + 1;
+                }
+            } else if(line.startsWith("library") || line.startsWith("scope") || line.startsWith("struct")) {
+                depth++;
+            } else if(line.equals("globals")) {
+                i = input.findLine(i + 1, "endglobals");
+            } else if(FunctionsSection.startsFunction(line)) {
+                i = input.findLine(i + 1, "endfunction");
+            } else if(FunctionsSection.startsMethod(line)) {
+                i = input.findLine(i + 1, "endmethod");
             }
-            scopes.add(new Scope(new Scanner(currentAccumulatedString.toString()), context));
-        }
-        if (readingStruct && currentAccumulatedString.length() > 0) {
-            if (structs == null) {
-                structs = new ArrayList<>();
+            if(i < 0) {
+                break;
             }
-            structs.add(new Struct(new Scanner(currentAccumulatedString.toString()), context));
         }
-        currentAccumulatedString.setLength(0);
+        // Let the regular parse report the missing end line
+        return -1;
+    }
+
+    private <T extends ScriptContainer> List<T> joinContainers(ParseTasks<T> containers) {
+        List<T> joined = containers.join();
+        return joined.isEmpty() ? null : adoptAll(joined);
     }
 
     /**
@@ -266,9 +295,36 @@ public final class Script extends AbstractNode implements IMergable, IFunctionRe
      */
     @Override
     public final void renameFunction(String oldFunctionName, String newFunctionName) {
+        globalsSection.renameFunction(oldFunctionName, newFunctionName);
         functionsSection.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass,
+     * including those inside of libraries, scopes and structs.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        if(globalsSection != null) {
+            globalsSection.renameAll(variables, functions);
+        }
+        if(functionsSection != null) {
+            functionsSection.renameAll(variables, functions);
+        }
+        renameAll(getLibraries(), variables, functions);
+        renameAll(getScopes(), variables, functions);
+        renameAll(getStructs(), variables, functions);
+    }
+
+    private static void renameAll(List<? extends ScriptContainer> containers, Map<String, String> variables, Map<String, String> functions) {
+        for(ScriptContainer container : containers) {
+            container.getInnerScript().renameAll(variables, functions);
+        }
+    }
+
     public final GlobalsSection getGlobalsSection() {
         return globalsSection;
     }
@@ -277,6 +333,18 @@ public final class Script extends AbstractNode implements IMergable, IFunctionRe
         return functionsSection;
     }
 
+    public final List<Library> getLibraries() {
+        return libraries == null ? Collections.emptyList() : Collections.unmodifiableList(libraries);
+    }
+
+    public final List<Scope> getScopes() {
+        return scopes == null ? Collections.emptyList() : Collections.unmodifiableList(scopes);
+    }
+
+    public final List<Struct> getStructs() {
+        return structs == null ? Collections.emptyList() : Collections.unmodifiableList(structs);
+    }
+
     /**
      * Combines this AST Node with another and then checks
      * for errors. Gracefully handles function main.
@@ -317,25 +385,26 @@ public final class Script extends AbstractNode implements IMergable, IFunctionRe
 
     public void addFunctionMain() {
         if(functionsSection == null) {
-            functionsSection = new FunctionsSection(new Scanner("function main takes nothing returns nothing\nendfunction"), new TreeContext());
+            functionsSection = adopt(new FunctionsSection(LineStream.of("function main takes nothing returns nothing\nendfunction"), context));
+            invalidate();
         } else {
             functionsSection.addFunctionMain();
         }
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(globalsSection, functionsSection, types, libraries, scopes, structs);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Script other = (Script) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(globalsSection, other.globalsSection) &&
+                Objects.equals(functionsSection, other.functionsSection) &&
+                Objects.equals(types, other.types) &&
+                Objects.equals(libraries, other.libraries) &&
+                Objects.equals(scopes, other.scopes) &&
+                Objects.equals(structs, other.structs);
     }
 }
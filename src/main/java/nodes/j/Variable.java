@@ -1,20 +1,26 @@
 package nodes.j;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a JASS variable
  */
-public final class Variable extends AbstractNode implements IFunctionRenameable, IVariableRenameable {
+public final class Variable extends AbstractNode implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private String type; // variable type
     private Argument initialValue; // what the variable is initially set to
@@ -31,10 +37,19 @@ public final class Variable extends AbstractNode implements IFunctionRenameable,
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public Variable(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     public Variable(String type, Argument initialValue, String name, boolean isConstant, boolean isArray, TreeContext context) {
         super(context);
         this.type = type;
-        this.initialValue = initialValue;
+        this.initialValue = adopt(initialValue);
         this.name = name;
         this.isConstant = isConstant;
         this.isArray = isArray;
@@ -50,6 +65,7 @@ public final class Variable extends AbstractNode implements IFunctionRenameable,
     public final void renameVariable(String oldVariableName, String newVariableName) {
         if (this.name.equals(oldVariableName)) {
             this.name = newVariableName;
+            invalidate();
         } else {
             if (initialValue != null) {
                 initialValue.renameVariable(oldVariableName, newVariableName);
@@ -77,6 +93,24 @@ public final class Variable extends AbstractNode implements IFunctionRenameable,
         }
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        String renamed = rename(name, variables);
+        if (!renamed.equals(name)) {
+            this.name = renamed;
+            invalidate();
+        }
+        if (initialValue != null) {
+            initialValue.renameAll(variables, functions);
+        }
+    }
+
     /**
      * Parse the JASS code contained in the Scanner into a model object
      */
@@ -111,7 +145,7 @@ public final class Variable extends AbstractNode implements IFunctionRenameable,
             String valuePart = reCollected.substring(index + 1);
 
             name = namePart.trim();
-            initialValue = new Argument(new Scanner(valuePart.trim()), context);
+            initialValue = adopt(new Argument(LineStream.of(valuePart.trim()), context));
         } else {
             // Initial value was not specified
             name = reCollected.trim();
@@ -128,38 +162,39 @@ public final class Variable extends AbstractNode implements IFunctionRenameable,
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
+    public final void writeTo(Appendable output) throws IOException {
         // Put the String back together in the same way we pulled it apart.
-        StringBuilder converted = new StringBuilder();
         if (isConstant()) {
-            converted.append("constant ");
+            output.append("constant ");
         }
-        converted.append(type).append(" ");
+        output.append(type).append(" ");
         if (isArray()) {
-            converted.append("array ");
+            output.append("array ");
         }
-        converted.append(name);
+        output.append(name);
         if (initialValue != null) {
-            converted.append("=").append(initialValue);
+            output.append("=");
+            initialValue.writeTo(output);
         }
-        return converted.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        return this.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        writeTo(output);
     }
 
     public final String getType() {
@@ -183,18 +218,17 @@ public final class Variable extends AbstractNode implements IFunctionRenameable,
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(type, name, initialValue, isConstant, isArray);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Variable other = (Variable) obj;
-        return this.toString().equals(other.toString());
+        return isConstant == other.isConstant &&
+                isArray == other.isArray &&
+                Objects.equals(name, other.name) &&
+                Objects.equals(type, other.type) &&
+                Objects.equals(initialValue, other.initialValue);
     }
 }
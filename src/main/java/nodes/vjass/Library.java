@@ -1,5 +1,6 @@
 package nodes.vjass;
 
+import parser.LineStream;
 import tree.TreeContext;
 
 import java.util.Scanner;
@@ -19,6 +20,18 @@ public final class Library extends ScriptContainerInitializer {
         this.endText = "endlibrary";
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public Library(LineStream input, TreeContext context) {
+        super(input, context);
+        this.startText = "library";
+        this.endText = "endlibrary";
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
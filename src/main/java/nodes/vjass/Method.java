@@ -1,23 +1,30 @@
 package nodes.vjass;
 
 import exception.ParsingException;
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IMergable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractFunction;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.arguments.Argument;
 import nodes.functions.Statements;
+import parser.LineStream;
+import tree.ParseListener;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
  * Represents a Function code block from the function declaration to endfunction
  */
-public final class Method extends AbstractFunction implements IMergable, IFunctionRenameable, IVariableRenameable {
+public final class Method extends AbstractFunction implements IMergable, IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     private MethodDeclaration functionDeclaration;
     private Statements statements;
@@ -32,6 +39,16 @@ public final class Method extends AbstractFunction implements IMergable, IFuncti
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public Method(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * Copy constructor for Method
      *
@@ -41,8 +58,8 @@ public final class Method extends AbstractFunction implements IMergable, IFuncti
      */
     public Method(MethodDeclaration functionDeclaration, Statements statements, TreeContext context) {
         super(context);
-        this.functionDeclaration = functionDeclaration;
-        this.statements = statements;
+        this.functionDeclaration = adopt(functionDeclaration);
+        this.statements = adopt(statements);
     }
 
     /**
@@ -69,35 +86,49 @@ public final class Method extends AbstractFunction implements IMergable, IFuncti
     }
 
     /**
-     * Converts this node back to its original form.
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        this.functionDeclaration.renameAll(variables, functions);
+        this.statements.renameAll(variables, functions);
+    }
+
+    /**
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append(functionDeclaration.toString()).append("\n");
-        builder.append(statements.toString()).append("\n");
-        builder.append("endmethod");
-        return builder.toString();
+    public final void writeTo(Appendable output) throws IOException {
+        functionDeclaration.writeTo(output);
+        output.append("\n");
+        statements.writeTo(output);
+        output.append("\n");
+        output.append("endmethod");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builder = new StringBuilder();
-        addTabs(builder, indentationLevel-1);
-        builder.append(functionDeclaration.toString()).append("\n");
-        builder.append(statements.toFormattedString(indentationLevel)).append("\n");
-        addTabs(builder, indentationLevel-1);
-        builder.append("endmethod");
-        return builder.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel-1);
+        functionDeclaration.writeTo(output);
+        output.append("\n");
+        statements.writeFormattedTo(output, indentationLevel);
+        output.append("\n");
+        addTabs(output, indentationLevel-1);
+        output.append("endmethod");
     }
 
     /**
@@ -106,40 +137,43 @@ public final class Method extends AbstractFunction implements IMergable, IFuncti
     @Override
     protected final void readNode() {
         // Get first line as function declaration
-        this.functionDeclaration = readFunctionDeclaration(readLine());
-        // Get lines up to endfunction
-        StringBuilder lines = new StringBuilder();
-        while(hasNextLine()) {
-            String line = readLine();
-            if(!line.startsWith("endmethod")) {
-                lines.append(line).append("\n");
-            }
+        this.functionDeclaration = adopt(readFunctionDeclaration(getInput()));
+        // Get lines up to endmethod
+        this.statements = adopt(readStatements(getInput()));
+        if(!hasNextLine()) {
+            throw new ParsingException("Found method without endmethod: " + functionDeclaration.toString());
         }
-        if(lines.length() > 0) {
-            lines.setLength(lines.length()-1);
+        String line = readLine();
+        if(!line.startsWith("endmethod")) {
+            throw new ParsingException("Found " + line + " inside method: " + functionDeclaration.toString());
         }
-        this.statements = readStatements(lines.toString());
     }
 
     /**
      * Reads declaration line
      *
-     * @param line  Declaration line
+     * @param input Stream positioned at the declaration line
      * @return  Declaration object
      */
-    private MethodDeclaration readFunctionDeclaration(String line) {
-        MethodDeclaration declaration = new MethodDeclaration(new Scanner(line), context);
+    private MethodDeclaration readFunctionDeclaration(LineStream input) {
+        MethodDeclaration declaration = new MethodDeclaration(input, context);
         return declaration;
     }
 
     /**
      * Reads statements section
      *
-     * @param lines Lines to read
+     * @param input Stream positioned at the first statement
      * @return  Statements section
      */
-    private Statements readStatements(String lines) {
-        Statements statements = new Statements(new Scanner(lines), context);
+    private Statements readStatements(LineStream input) {
+        ParseListener listener = context.getListener();
+        if(listener == null) {
+            return new Statements(input, context);
+        }
+        long start = System.nanoTime();
+        Statements statements = new Statements(input, context);
+        listener.functionRead(this, System.nanoTime() - start);
         return statements;
     }
 
@@ -198,22 +232,6 @@ public final class Method extends AbstractFunction implements IMergable, IFuncti
         return statements.usesAsFunction(functionName);
     }
 
-    @Override
-    public int hashCode() {
-        return this.toString().hashCode();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
-        Method other = (Method) obj;
-        return this.toString().equals(other.toString());
-    }
-
     /**
      * Gets all Arguments used by this method
      *
@@ -224,4 +242,16 @@ public final class Method extends AbstractFunction implements IMergable, IFuncti
         arguments.addAll(statements.getArguments());
         return arguments;
     }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(functionDeclaration, statements);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        Method other = (Method) obj;
+        return Objects.equals(functionDeclaration, other.functionDeclaration) &&
+                Objects.equals(statements, other.statements);
+    }
 }
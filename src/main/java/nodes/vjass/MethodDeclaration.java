@@ -1,19 +1,22 @@
 package nodes.vjass;
 
+import interfaces.IBatchRenameable;
 import interfaces.IFunctionRenameable;
 import interfaces.IVariableRenameable;
 import nodes.AbstractNode;
 import nodes.functions.GenericDeclaration;
 import nodes.functions.Inputs;
 import nodes.functions.Output;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.util.Map;
 import java.util.Scanner;
 
 /**
  * Function Declaration line (i.e. function x takes y returns z)
  */
-public final class MethodDeclaration extends GenericDeclaration implements IFunctionRenameable, IVariableRenameable {
+public final class MethodDeclaration extends GenericDeclaration implements IBatchRenameable, IFunctionRenameable, IVariableRenameable {
 
     /**
      * Sets up this node with a scanner to receive words.
@@ -26,6 +29,17 @@ public final class MethodDeclaration extends GenericDeclaration implements IFunc
         setStartText("method");
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public MethodDeclaration(LineStream input, TreeContext context) {
+        super(input, context);
+        setStartText("method");
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -67,19 +81,15 @@ public final class MethodDeclaration extends GenericDeclaration implements IFunc
         this.setName(rename(this.getName(), oldFunctionName, newFunctionName));
     }
 
+    /**
+     * Renames variables, functions and all uses of them in one pass.
+     *
+     * @param variables Existing variable names mapped to desired names
+     * @param functions Existing function names mapped to desired names
+     */
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
+        this.setName(rename(this.getName(), functions));
     }
 
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
-        MethodDeclaration other = (MethodDeclaration) obj;
-        return this.toString().equals(other.toString());
-    }
 }
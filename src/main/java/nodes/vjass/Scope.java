@@ -1,5 +1,6 @@
 package nodes.vjass;
 
+import parser.LineStream;
 import tree.TreeContext;
 
 import java.util.Scanner;
@@ -19,6 +20,18 @@ public final class Scope extends ScriptContainerInitializer {
         this.endText = "endscope";
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public Scope(LineStream input, TreeContext context) {
+        super(input, context);
+        this.startText = "scope";
+        this.endText = "endscope";
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -40,19 +53,4 @@ public final class Scope extends ScriptContainerInitializer {
         this.endText = "endscope";
     }
 
-    @Override
-    public int hashCode() {
-        return this.toString().hashCode();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
-        Scope other = (Scope) obj;
-        return this.toString().equals(other.toString());
-    }
 }
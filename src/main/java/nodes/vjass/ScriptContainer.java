@@ -2,11 +2,15 @@ package nodes.vjass;
 
 import exception.ParsingException;
 import nodes.AbstractNode;
+import nodes.AbstractReadable;
 import nodes.j.Script;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
 
 public abstract class ScriptContainer extends AbstractNode {
@@ -27,6 +31,16 @@ public abstract class ScriptContainer extends AbstractNode {
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public ScriptContainer(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -66,18 +80,18 @@ public abstract class ScriptContainer extends AbstractNode {
     protected abstract void parseNameLine(String line);
 
     /**
-     * Converts the flags retrieved back into a String
+     * Writes the flags retrieved back out after the name
      *
-     * @param builder   StringBuilder to add to
+     * @param output        Destination for the code
+     * @throws IOException  If the destination cannot be written to
      */
-    protected abstract void buildFlags(StringBuilder builder);
+    protected abstract void writeFlags(Appendable output) throws IOException;
 
     /**
      * Parse the JASS code contained in the Scanner into a model object
      */
     @Override
     protected void readNode() {
-        StringBuilder contents = new StringBuilder();
         String line = readLine();
         if(line.startsWith(startText + " ")) {
             line = line.substring((startText + " ").length());
@@ -87,55 +101,68 @@ public abstract class ScriptContainer extends AbstractNode {
                 name = line;
             }
             parseNameLine(line);
-            while(!line.equalsIgnoreCase(endText)) {
-                if(!hasNextLine()) {
-                    throw new ParsingException("Did not find end of container: " + endText);
-                }
-                line = readLine();
-                if(!line.equalsIgnoreCase(endText)) {
-                    contents.append(line).append("\n");
-                }
+            // The inner script stops at the first line that ends a container
+            innerScript = adopt(new Script(getInput(), context));
+            if(!hasNextLine() || !readLine().equalsIgnoreCase(endText)) {
+                throw new ParsingException("Did not find end of container: " + endText);
             }
-            removeFinalCharacter(1, contents);
-            innerScript = new Script(new Scanner(contents.toString()), context);
         } else {
             throw new ParsingException("Container did not start with " + startText + " flag");
         }
     }
 
+    public String getName() {
+        return name;
+    }
+
+    public Script getInnerScript() {
+        return innerScript;
+    }
+
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toString() {
-        StringBuilder builder = new StringBuilder();
-        builder.append(startText + " ").append(name);
-        buildFlags(builder);
-        builder.append("\n");
-        builder.append(innerScript.toString());
-        builder.append("\n" + endText);
-        return builder.toString();
+    public void writeTo(Appendable output) throws IOException {
+        output.append(startText).append(" ").append(name);
+        writeFlags(output);
+        output.append("\n");
+        innerScript.writeTo(output);
+        output.append("\n").append(endText);
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builder = new StringBuilder();
-        addTabs(builder, indentationLevel-1);
-        builder.append(startText + " ").append(name);
-        buildFlags(builder);
-        builder.append("\n");
-        builder.append(innerScript.toFormattedString(indentationLevel));
-        addTabs(builder, indentationLevel-1);
-        builder.append("\n" + endText);
-        return builder.toString();
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        addTabs(output, indentationLevel-1);
+        output.append(startText).append(" ").append(name);
+        writeFlags(output);
+        output.append("\n");
+        innerScript.writeFormattedTo(output, indentationLevel);
+        addTabs(output, indentationLevel-1);
+        output.append("\n").append(endText);
+    }
+
+    @Override
+    protected int computeHashCode() {
+        return Objects.hash(startText, name, innerScript);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        ScriptContainer other = (ScriptContainer) obj;
+        return Objects.equals(startText, other.startText) &&
+                Objects.equals(name, other.name) &&
+                Objects.equals(innerScript, other.innerScript);
     }
 }
@@ -1,7 +1,11 @@
 package nodes.vjass;
 
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Objects;
 import java.util.Scanner;
 
 public abstract class ScriptContainerInitializer extends ScriptContainer {
@@ -18,6 +22,16 @@ public abstract class ScriptContainerInitializer extends ScriptContainer {
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public ScriptContainerInitializer(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -42,14 +56,27 @@ public abstract class ScriptContainerInitializer extends ScriptContainer {
 
     /**
      * Creates needed flags to turn this ScriptContainer into
-     * a String
+     * code
      *
-     * @param builder   StringBuilder to add to
+     * @param output        Destination for the code
+     * @throws IOException  If the destination cannot be written to
      */
     @Override
-    protected void buildFlags(StringBuilder builder) {
+    protected void writeFlags(Appendable output) throws IOException {
         if (initializer != null && !initializer.isEmpty()) {
-            builder.append(" initializer ").append(initializer);
+            output.append(" initializer ").append(initializer);
         }
     }
+
+    @Override
+    protected int computeHashCode() {
+        return 31 * super.computeHashCode() + Objects.hashCode(initializer);
+    }
+
+    @Override
+    protected boolean equalsStructure(AbstractReadable obj) {
+        ScriptContainerInitializer other = (ScriptContainerInitializer) obj;
+        return super.equalsStructure(other) &&
+                Objects.equals(initializer, other.initializer);
+    }
 }
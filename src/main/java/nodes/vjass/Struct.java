@@ -1,7 +1,11 @@
 package nodes.vjass;
 
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Objects;
 import java.util.Scanner;
 
 public final class Struct extends ScriptContainer {
@@ -20,6 +24,18 @@ public final class Struct extends ScriptContainer {
         this.endText = "endstruct";
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input   Stream containing JASS code
+     * @param context Tree context
+     */
+    public Struct(LineStream input, TreeContext context) {
+        super(input, context);
+        this.startText = "struct";
+        this.endText = "endstruct";
+    }
+
     /**
      * No-args constructor used for creating from an existing
      *
@@ -46,14 +62,15 @@ public final class Struct extends ScriptContainer {
 
     /**
      * Converts the name line back into
-     * a String
+     * code
      *
-     * @param builder   StringBuilder to add to
+     * @param output        Destination for the code
+     * @throws IOException  If the destination cannot be written to
      */
     @Override
-    protected void buildFlags(StringBuilder builder) {
+    protected void writeFlags(Appendable output) throws IOException {
         if(lineFlags != null && !lineFlags.isEmpty()) {
-            builder.append(lineFlags);
+            output.append(lineFlags);
         }
     }
 
@@ -68,18 +85,14 @@ public final class Struct extends ScriptContainer {
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return 31 * super.computeHashCode() + Objects.hashCode(lineFlags);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         Struct other = (Struct) obj;
-        return this.toString().equals(other.toString());
+        return super.equalsStructure(other) &&
+                Objects.equals(lineFlags, other.lineFlags);
     }
 }
@@ -2,8 +2,12 @@ package nodes.wts;
 
 import nodes.AbstractNode;
 import exception.ParsingException;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -31,6 +35,15 @@ public final class WtsString extends AbstractNode {
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public WtsString(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * Sets up any class-level variables before
      * performing the node reading.
@@ -55,6 +68,9 @@ public final class WtsString extends AbstractNode {
 
         try {
             while (reading) {
+                if (!hasNextLine()) {
+                    throw new ParsingException("Did not find end of string: " + CLOSE_CHARACTER);
+                }
                 line = readLine();
                 if (readingKey) {
                     if (line.startsWith(COMMENT_CHARACTER)) {
@@ -113,52 +129,48 @@ public final class WtsString extends AbstractNode {
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public final String toString() {
-        String builtString = getKey() + "\n" +
-                "{" + "\n" +
-                value + "\n" +
-                "}";
-        return builtString;
+    public final void writeTo(Appendable output) throws IOException {
+        output.append(getKey()).append("\n");
+        output.append("{").append("\n");
+        output.append(value).append("\n");
+        output.append("}");
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builtString = new StringBuilder();
-        builtString.append(getKey()).append("\n");
-        builtString.append("{").append("\n");
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        output.append(getKey()).append("\n");
+        output.append("{").append("\n");
         for(String line : value.toString().split("\n")) {
-            addTabs(builtString, indentationLevel);
-            builtString.append(line).append("\n");
+            addTabs(output, indentationLevel);
+            output.append(line).append("\n");
         }
-        builtString.append("}");
-        return builtString.toString();
+        output.append("}");
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hash(getKey(), getComment(), getValue());
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         WtsString other = (WtsString) obj;
-        return this.toString().equals(other.toString());
+        return getKey().equals(other.getKey()) &&
+                getComment().equals(other.getComment()) &&
+                getValue().equals(other.getValue());
     }
 }
@@ -2,11 +2,15 @@ package nodes.wts;
 
 import nodes.AbstractNode;
 import exception.ParsingException;
+import nodes.AbstractReadable;
+import parser.LineStream;
 import tree.TreeContext;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -25,6 +29,15 @@ public final class WtsStringsFile extends AbstractNode {
         super(inputScanner, context);
     }
 
+    /**
+     * Sets up this node with a stream to receive lines.
+     *
+     * @param input Stream containing JASS code
+     */
+    public WtsStringsFile(LineStream input, TreeContext context) {
+        super(input, context);
+    }
+
     /**
      * Sets up any class-level variables before
      * performing the node reading.
@@ -39,29 +52,14 @@ public final class WtsStringsFile extends AbstractNode {
      */
     @Override
     protected void readNode() {
-        String inputWord = "";
-        StringBuilder builder = null;
-        boolean readingWtsString = false;
-
         try {
             // Continually read wts string until none remain
             while (hasNextLine()) {
-                inputWord = readLine();
-                if(!readingWtsString) {
-                    if (!inputWord.isEmpty()) {
-                        // We located text, so that begins a wts string
-                        readingWtsString = true;
-                        builder = new StringBuilder();
-                        builder.append(inputWord).append("\n");
-                    }
+                if (peekLine().isEmpty()) {
+                    readLine();
                 } else {
-                    builder.append(inputWord).append("\n");
-                    if(inputWord.contains(WtsString.CLOSE_CHARACTER)) {
-                        // Found the end of this wts string to parse it.
-                        readingWtsString = false;
-                        WtsString newString = new WtsString(new Scanner(builder.toString()), context);
-                        strings.add(newString);
-                    }
+                    // We located text, so that begins a wts string
+                    strings.add(adopt(new WtsString(getInput(), context)));
                 }
             }
         } catch (Exception ex) {
@@ -70,36 +68,38 @@ public final class WtsStringsFile extends AbstractNode {
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      * Indentation is not added.
      *
-     * @return Original form of this node (code or string)
+     * @param output Destination for the code
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toString() {
-        StringBuilder builder = new StringBuilder();
-        for(WtsString string : strings) {
-            builder.append(string.toString()).append("\n");
+    public void writeTo(Appendable output) throws IOException {
+        for(int i = 0; i < strings.size(); i++) {
+            if(i > 0) {
+                output.append("\n");
+            }
+            strings.get(i).writeTo(output);
         }
-        removeFinalCharacter(builder);
-        return builder.toString();
     }
 
     /**
-     * Converts this node back to its original form.
+     * Writes this node back in its original form.
      *
+     * @param output           Destination for the code
      * @param indentationLevel Current indentation level
-     * @return Original form of this node (code or string) with indentation
+     * @throws IOException If the destination cannot be written to
      */
     @Override
-    public String toFormattedString(int indentationLevel) {
-        StringBuilder builder = new StringBuilder();
-        for(WtsString string : strings) {
-            addTabs(builder, indentationLevel);
-            builder.append(string.toFormattedString(indentationLevel+1)).append("\n");
+    public void writeFormattedTo(Appendable output, int indentationLevel) throws IOException {
+        for(int i = 0; i < strings.size(); i++) {
+            if(i > 0) {
+                output.append("\n");
+            }
+            addTabs(output, indentationLevel);
+            strings.get(i).writeFormattedTo(output, indentationLevel+1);
         }
-        removeFinalCharacter(builder);
-        return builder.toString();
     }
 
     /**
@@ -112,18 +112,13 @@ public final class WtsStringsFile extends AbstractNode {
     }
 
     @Override
-    public int hashCode() {
-        return this.toString().hashCode();
+    protected int computeHashCode() {
+        return Objects.hashCode(strings);
     }
 
     @Override
-    public boolean equals(Object obj) {
-        if (obj == null) { return false; }
-        if (obj == this) { return true; }
-        if (obj.getClass() != getClass()) {
-            return false;
-        }
+    protected boolean equalsStructure(AbstractReadable obj) {
         WtsStringsFile other = (WtsStringsFile) obj;
-        return this.toString().equals(other.toString());
+        return Objects.equals(strings, other.strings);
     }
 }
@@ -0,0 +1,296 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Splits a range of JASS code into tokens.
+ * Tokens are produced on demand, so reading only the first
+ * token of a line does not cost a scan of the whole line.
+ * The lexer never fails; characters it does not understand
+ * are returned as UNKNOWN tokens for the parser to reject.
+ */
+public final class JassLexer {
+
+    /**
+     * Reserved words of JASS and vJASS
+     */
+    private static final Set<String> KEYWORDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "and", "or", "not", "function", "takes", "returns", "nothing", "native", "constant",
+            "local", "set", "call", "if", "then", "else", "elseif", "endif", "loop", "endloop",
+            "exitwhen", "return", "globals", "endglobals", "endfunction", "type", "extends", "array",
+            "true", "false", "null", "debug", "library", "library_once", "endlibrary", "scope",
+            "endscope", "struct", "endstruct", "method", "endmethod", "private", "public", "static",
+            "initializer", "requires", "uses", "needs")));
+
+    private final CharSequence source;
+    private final int end;
+    private int position;
+    private Token next;
+
+    /**
+     * Creates a lexer over the whole character sequence.
+     *
+     * @param source    JASS code
+     */
+    public JassLexer(CharSequence source) {
+        this(source, 0, source.length());
+    }
+
+    /**
+     * Creates a lexer over part of a character sequence.
+     * Token offsets are relative to the start of the source, not the range.
+     *
+     * @param source    JASS code
+     * @param start     Offset to start reading from
+     * @param end       Offset to stop reading at
+     */
+    public JassLexer(CharSequence source, int start, int end) {
+        this.source = source;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * Splits the given JASS code into tokens.
+     *
+     * @param source    JASS code
+     * @return          All tokens, in order
+     */
+    public static List<Token> tokenize(CharSequence source) {
+        JassLexer lexer = new JassLexer(source);
+        List<Token> tokens = new ArrayList<>();
+        while(lexer.hasNext()) {
+            tokens.add(lexer.next());
+        }
+        return tokens;
+    }
+
+    /**
+     * Checks whether the word is reserved by JASS or vJASS
+     *
+     * @param word  Word to check
+     * @return      True if this is a keyword; false if not.
+     */
+    public static boolean isKeyword(String word) {
+        return KEYWORDS.contains(word);
+    }
+
+    /**
+     * Checks whether there's another token available
+     *
+     * @return True if has next token; false if not.
+     */
+    public boolean hasNext() {
+        return peek() != null;
+    }
+
+    /**
+     * Gets the next token without consuming it
+     *
+     * @return  Next token, or null at the end of input
+     */
+    public Token peek() {
+        if(next == null) {
+            next = readToken();
+        }
+        return next;
+    }
+
+    /**
+     * Gets and consumes the next token
+     *
+     * @return  Next token
+     */
+    public Token next() {
+        Token token = peek();
+        if(token == null) {
+            throw new NoSuchElementException("No more tokens");
+        }
+        next = null;
+        return token;
+    }
+
+    /**
+     * Reads a token from the current position.
+     *
+     * @return  Token read, or null if only whitespace remains
+     */
+    private Token readToken() {
+        while(position < end && isWhitespace(source.charAt(position))) {
+            position++;
+        }
+        if(position >= end) {
+            return null;
+        }
+        int start = position;
+        char c = source.charAt(position);
+        TokenType type;
+        if(c == '"') {
+            position = skipQuoted('"', start + 1);
+            type = TokenType.STRING;
+        } else if(c == '\'') {
+            position = skipQuoted('\'', start + 1);
+            type = TokenType.RAWCODE;
+        } else if(c == '/' && charAt(start + 1) == '/') {
+            while(position < end && source.charAt(position) != '\n' && source.charAt(position) != '\r') {
+                position++;
+            }
+            type = TokenType.COMMENT;
+        } else if(isDigit(c) || (c == '.' && isDigit(charAt(start + 1)))) {
+            type = readNumber();
+        } else if(c == '$') {
+            position++;
+            while(position < end && isHexDigit(source.charAt(position))) {
+                position++;
+            }
+            type = TokenType.INTEGER;
+        } else if(isIdentifierStart(c) || (c == '.' && isIdentifierStart(charAt(start + 1)))) {
+            position++;
+            readIdentifierPart();
+            type = TokenType.IDENTIFIER;
+        } else {
+            type = readSymbol(c);
+        }
+        String text = source.subSequence(start, position).toString();
+        if(type == TokenType.IDENTIFIER && isKeyword(text)) {
+            type = TokenType.KEYWORD;
+        }
+        return new Token(type, text, start, position);
+    }
+
+    /**
+     * Skips past a quoted literal, honoring backslash escapes.
+     * Unterminated literals run until the end of input.
+     *
+     * @param quote Closing quote character
+     * @param from  Offset after the opening quote
+     * @return      Offset after the closing quote
+     */
+    private int skipQuoted(char quote, int from) {
+        int i = from;
+        while(i < end) {
+            char c = source.charAt(i);
+            if(c == '\\') {
+                i += 2;
+            } else if(c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Reads a decimal, octal, hexadecimal or real number.
+     *
+     * @return  INTEGER or REAL
+     */
+    private TokenType readNumber() {
+        char first = source.charAt(position);
+        if(first == '0' && (charAt(position + 1) == 'x' || charAt(position + 1) == 'X')) {
+            position += 2;
+            while(position < end && isHexDigit(source.charAt(position))) {
+                position++;
+            }
+            return TokenType.INTEGER;
+        }
+        boolean real = false;
+        while(position < end) {
+            char c = source.charAt(position);
+            if(c == '.' && !real) {
+                real = true;
+            } else if(!isDigit(c)) {
+                break;
+            }
+            position++;
+        }
+        return real ? TokenType.REAL : TokenType.INTEGER;
+    }
+
+    /**
+     * Reads the rest of an identifier, including vJASS member access like this.x
+     */
+    private void readIdentifierPart() {
+        while(position < end) {
+            char c = source.charAt(position);
+            if(isIdentifierPart(c) || (c == '.' && isIdentifierStart(charAt(position + 1)))) {
+                position++;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Reads punctuation and operators.
+     *
+     * @param c First character of the symbol
+     * @return  Type of the symbol read
+     */
+    private TokenType readSymbol(char c) {
+        position++;
+        switch(c) {
+            case '(':
+                return TokenType.LEFT_PARENTHESIS;
+            case ')':
+                return TokenType.RIGHT_PARENTHESIS;
+            case '[':
+                return TokenType.LEFT_BRACKET;
+            case ']':
+                return TokenType.RIGHT_BRACKET;
+            case ',':
+                return TokenType.COMMA;
+            case '+':
+            case '-':
+            case '*':
+            case '/':
+                return TokenType.OPERATOR;
+            case '=':
+            case '<':
+            case '>':
+                if(charAt(position) == '=') {
+                    position++;
+                }
+                return TokenType.OPERATOR;
+            case '!':
+                if(charAt(position) == '=') {
+                    position++;
+                    return TokenType.OPERATOR;
+                }
+                return TokenType.UNKNOWN;
+            default:
+                return TokenType.UNKNOWN;
+        }
+    }
+
+    private char charAt(int index) {
+        return index < end ? source.charAt(index) : '\0';
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+}
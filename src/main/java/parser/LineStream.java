@@ -0,0 +1,294 @@
+package parser;
+
+import java.util.Iterator;
+import java.util.Scanner;
+
+/**
+ * Cursor over JASS code that hands out one line at a time.
+ * The code is indexed into lines once; slices of a stream share
+ * the same underlying buffer and index, so handing a block of
+ * lines to a child node never copies or re-scans the text.
+ * Line breaks are the same ones recognized by Scanner.nextLine().
+ */
+public final class LineStream {
+
+    private final LineIndex index;
+    private final int endLine;
+    private int position;
+    private int peekedPosition = -1;
+    private String peekedLine;
+
+    /**
+     * Creates a new stream over lines [startLine, endLine) of the index
+     *
+     * @param index     Shared line index
+     * @param startLine First line of the stream
+     * @param endLine   Line after the last line of the stream
+     */
+    private LineStream(LineIndex index, int startLine, int endLine) {
+        this.index = index;
+        this.position = startLine;
+        this.endLine = endLine;
+    }
+
+    /**
+     * Creates a new stream over the given JASS code.
+     * The sequence is not copied and must not change while in use.
+     *
+     * @param source    JASS code
+     * @return          Stream positioned at the first line
+     */
+    public static LineStream of(CharSequence source) {
+        LineIndex index = new LineIndex(source);
+        return new LineStream(index, 0, index.size());
+    }
+
+    /**
+     * Creates a new stream over lines pulled from the iterator.
+     * The lines are copied into one buffer and indexed as they are read,
+     * so the text is not scanned again for line breaks.
+     * Lines must not contain line breaks themselves.
+     *
+     * @param lines Lines of JASS code, without line terminators
+     * @return      Stream positioned at the first line
+     */
+    public static LineStream of(Iterator<? extends CharSequence> lines) {
+        LineIndex index = new LineIndex(lines);
+        return new LineStream(index, 0, index.size());
+    }
+
+    /**
+     * Creates a new stream with the remaining lines of the Scanner.
+     *
+     * @param inputScanner  Scanner containing JASS code
+     * @return              Stream positioned at the first line
+     */
+    public static LineStream of(Scanner inputScanner) {
+        StringBuilder builder = new StringBuilder();
+        while(inputScanner.hasNextLine()) {
+            builder.append(inputScanner.nextLine()).append("\n");
+        }
+        return of(builder);
+    }
+
+    /**
+     * Checks whether there's another line available
+     *
+     * @return True if has next line; false if not.
+     */
+    public boolean hasNextLine() {
+        return position < endLine;
+    }
+
+    /**
+     * Gets the next line without consuming it
+     *
+     * @return  Next line, without line terminator
+     */
+    public String peekLine() {
+        checkNextLine();
+        if(peekedPosition != position) {
+            peekedLine = index.line(position);
+            peekedPosition = position;
+        }
+        return peekedLine;
+    }
+
+    /**
+     * Gets and consumes the next line
+     *
+     * @return  Next line, without line terminator
+     */
+    public String nextLine() {
+        String line = peekLine();
+        position++;
+        return line;
+    }
+
+    /**
+     * Skips over the next line without reading it
+     */
+    public void skipLine() {
+        checkNextLine();
+        position++;
+    }
+
+    /**
+     * Gets the position of the next line.
+     * Positions are shared between a stream and its slices.
+     *
+     * @return  Position of the next line
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Gets the position after the last line of this stream
+     *
+     * @return  End position
+     */
+    public int endPosition() {
+        return endLine;
+    }
+
+    /**
+     * Finds the first line from the given position that starts with the text,
+     * ignoring leading whitespace. The cursor does not move.
+     *
+     * @param fromPosition  Position of the first line to check
+     * @param prefix        Text to look for
+     * @return              Position of the line, or -1 if no line starts with the text
+     */
+    public int findLine(int fromPosition, String prefix) {
+        for(int i = Math.max(fromPosition, 0); i < endLine; i++) {
+            if(index.startsWith(i, prefix)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a line at the given position without moving the cursor
+     *
+     * @param linePosition  Position of the line, before endPosition()
+     * @return              Line, without line terminator
+     */
+    public String lineAt(int linePosition) {
+        if(linePosition < 0 || linePosition >= endLine) {
+            throw new IndexOutOfBoundsException("Invalid line: " + linePosition);
+        }
+        return index.line(linePosition);
+    }
+
+    /**
+     * Moves the cursor forward, skipping every line before the position
+     *
+     * @param linePosition  Position of the next line to read
+     */
+    public void skipTo(int linePosition) {
+        if(linePosition < position || linePosition > endLine) {
+            throw new IndexOutOfBoundsException("Invalid line: " + linePosition);
+        }
+        position = linePosition;
+    }
+
+    /**
+     * Creates a view over part of this stream's lines.
+     * The view shares this stream's buffer; neither cursor affects the other.
+     *
+     * @param fromPosition  Position of the first line of the view
+     * @param toPosition    Position after the last line of the view
+     * @return              New stream over the given lines
+     */
+    public LineStream slice(int fromPosition, int toPosition) {
+        if(fromPosition > toPosition || toPosition > endLine || fromPosition < 0) {
+            throw new IndexOutOfBoundsException("Invalid slice: " + fromPosition + " to " + toPosition);
+        }
+        return new LineStream(index, fromPosition, toPosition);
+    }
+
+    /**
+     * Gets the code this stream reads from.
+     *
+     * @return  Underlying JASS code
+     */
+    public CharSequence getSource() {
+        return index.source;
+    }
+
+    private void checkNextLine() {
+        if(position >= endLine) {
+            throw new IllegalStateException("No more lines");
+        }
+    }
+
+    /**
+     * Start and end offsets of every line in a source, computed once.
+     */
+    private static final class LineIndex {
+
+        private final CharSequence source;
+        private int[] starts;
+        private int[] ends;
+        private int size;
+
+        private LineIndex(CharSequence source) {
+            this.source = source;
+            int capacity = Math.max(16, source.length() / 32);
+            this.starts = new int[capacity];
+            this.ends = new int[capacity];
+            int length = source.length();
+            int lineStart = 0;
+            int i = 0;
+            while(i < length) {
+                char c = source.charAt(i);
+                if(c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+                    add(lineStart, i);
+                    if(c == '\r' && i + 1 < length && source.charAt(i + 1) == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
+                }
+                i++;
+            }
+            if(lineStart < length) {
+                add(lineStart, length);
+            }
+        }
+
+        private LineIndex(Iterator<? extends CharSequence> lines) {
+            StringBuilder builder = new StringBuilder();
+            this.source = builder;
+            this.starts = new int[16];
+            this.ends = new int[16];
+            while(lines.hasNext()) {
+                int start = builder.length();
+                builder.append(lines.next());
+                add(start, builder.length());
+                builder.append('\n');
+            }
+        }
+
+        private void add(int start, int end) {
+            if(size == starts.length) {
+                int capacity = size * 2;
+                int[] newStarts = new int[capacity];
+                int[] newEnds = new int[capacity];
+                System.arraycopy(starts, 0, newStarts, 0, size);
+                System.arraycopy(ends, 0, newEnds, 0, size);
+                starts = newStarts;
+                ends = newEnds;
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private String line(int line) {
+            return source.subSequence(starts[line], ends[line]).toString();
+        }
+
+        private boolean startsWith(int line, String prefix) {
+            int start = starts[line];
+            int end = ends[line];
+            while(start < end && source.charAt(start) <= ' ') {
+                start++;
+            }
+            if(end - start < prefix.length()) {
+                return false;
+            }
+            for(int i = 0; i < prefix.length(); i++) {
+                if(source.charAt(start + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package parser;
+
+/**
+ * Represents a single lexical token read from JASS code.
+ * Offsets point into the source the token was read from.
+ */
+public final class Token {
+
+    private final TokenType type;
+    private final String text;
+    private final int start;
+    private final int end;
+
+    /**
+     * Creates a new token
+     *
+     * @param type  Kind of token
+     * @param text  Token text exactly as written in the source
+     * @param start Offset of the first character in the source
+     * @param end   Offset after the last character in the source
+     */
+    public Token(TokenType type, String text, int start, int end) {
+        this.type = type;
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Checks whether this token has the given text.
+     *
+     * @param text  Text to compare with
+     * @return      True if the text matches exactly; false if not.
+     */
+    public boolean is(String text) {
+        return this.text.equals(text);
+    }
+
+    /**
+     * Checks whether this token is of the given type.
+     *
+     * @param type  Type to compare with
+     * @return      True if the type matches; false if not.
+     */
+    public boolean is(TokenType type) {
+        return this.type == type;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + text + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package parser;
+
+/**
+ * Represents the kind of a single lexical token in JASS code
+ */
+public enum TokenType {
+    IDENTIFIER,
+    KEYWORD,
+    INTEGER,
+    REAL,
+    STRING,
+    RAWCODE,
+    OPERATOR,
+    LEFT_PARENTHESIS,
+    RIGHT_PARENTHESIS,
+    LEFT_BRACKET,
+    RIGHT_BRACKET,
+    COMMA,
+    COMMENT,
+    UNKNOWN
+}
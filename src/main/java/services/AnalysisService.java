@@ -5,17 +5,30 @@ import interfaces.IAnalysisService;
 import interfaces.ISyntaxTree;
 import model.IsolateResult;
 import nodes.AbstractFunction;
-import nodes.arguments.Argument;
 import nodes.j.Variable;
+import tree.CallGraph;
+import tree.Reachability;
+import tree.UseDefIndex;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  * Service to assist in code analysis
  */
 public final class AnalysisService implements IAnalysisService {
 
+    /**
+     * Number of frontier entries each task expands when isolating on an executor
+     */
+    private static final int CHUNK_SIZE = 256;
+
     private ExpansionStyle expansionStyle;
+    private final Executor executor;
 
     /**
      * Returns current expansion style
@@ -40,7 +53,7 @@ public final class AnalysisService implements IAnalysisService {
      * Constructs object with default expansion style (passive)
      */
     public AnalysisService() {
-        this.expansionStyle = ExpansionStyle.PASSIVE;
+        this(ExpansionStyle.PASSIVE);
     }
 
     /**
@@ -49,39 +62,67 @@ public final class AnalysisService implements IAnalysisService {
      * @param expansionStyle    Expansion style (@see IAnalysisService.ExpansionStyle)
      */
     public AnalysisService(ExpansionStyle expansionStyle) {
+        this(expansionStyle, null);
+    }
+
+    /**
+     * Constructs object with custom expansion style that expands
+     * large isolation frontiers concurrently on the executor.
+     * Results are the same as without an executor.
+     *
+     * @param expansionStyle    Expansion style (@see IAnalysisService.ExpansionStyle)
+     * @param executor          Executor to expand on, or null to expand on the calling thread
+     */
+    public AnalysisService(ExpansionStyle expansionStyle, Executor executor) {
         this.expansionStyle = expansionStyle;
+        this.executor = executor;
     }
 
     /**
-     * Runs recursive variable isolation (finding functions)
+     * Constructs object with custom expansion style that expands
+     * large isolation frontiers on the common ForkJoinPool.
+     * This pays off mostly with aggressive expansion, where frontiers grow fastest.
+     *
+     * @param expansionStyle    Expansion style (@see IAnalysisService.ExpansionStyle)
+     * @return                  Parallel analysis service
+     */
+    public static AnalysisService parallel(ExpansionStyle expansionStyle) {
+        return new AnalysisService(expansionStyle, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Isolates outwards from one function or global variable,
+     * one iteration at a time. Each iteration expands what the
+     * previous one found, so everything is expanded at most once,
+     * at the smallest number of iterations it can be reached in.
+     * Functions have the ids of the call graph and globals the
+     * ids of the use-def index.
      *
      * @param tree              Syntax tree
-     * @param variableName      Variable name to isolate
-     * @param iterationCount    Current iteration count (0 = over)
-     * @param recursiveResult   Recursive result to add to
+     * @param rootFunction      Function id to start from, or -1
+     * @param rootVariable      Global id to start from, or -1
+     * @param iterationCount    Total iterations (-1 = infinite)
      * @return                  Results of isolate command
      */
-    private IsolateResult isolateVariable(ISyntaxTree tree, String variableName,
-                                          int iterationCount, IsolateResult recursiveResult) {
+    private IsolateResult isolate(ISyntaxTree tree, int rootFunction, int rootVariable, int iterationCount) {
+        IsolateResult result = new IsolateResult();
         if (iterationCount == 0) {
-            // Base case - no more iterations to perform.
-            // This is not the only base case. The == is intended rather than <=
-            return recursiveResult;
-        } else {
-            // Add the requested variable to be isolated to the isolation result
-            Variable selectedVariable = selectVariable(tree, variableName);
-
-            recursiveResult.addVariable(selectedVariable);
-            // Find all functions that use this variable
-            Set<AbstractFunction> newAddedFunctions = performFunctionExpansion(tree, variableName, recursiveResult);
-
-            // Decrease iteration count because we just finished one
+            // Nothing is isolated, not even the starting point
+            return result;
+        }
+        Expansion expansion = new Expansion(tree, result);
+        if (rootFunction >= 0) {
+            expansion.visitFunction(rootFunction);
+        }
+        if (rootVariable >= 0) {
+            expansion.visitVariable(rootVariable);
+        }
+        // A negative count never reaches 0, so expansion goes on until nothing new is found
+        while (iterationCount != 0 && expansion.hasFrontier()) {
+            expansion.expandFrontier();
             iterationCount--;
-
-            // Perform recursive calls. Note the implicit base case.
-            performRecursiveFunctionSearch(tree, iterationCount, recursiveResult, newAddedFunctions);
-            return recursiveResult;
         }
+        return result;
     }
 
     /**
@@ -92,13 +133,7 @@ public final class AnalysisService implements IAnalysisService {
      * @return              Variable desired
      */
     private Variable selectVariable(ISyntaxTree tree, String variableName) {
-        Variable selectedVariable = null;
-        for (Variable variable : tree.getScript().getGlobalsSection().getGlobalVariables()) {
-            if (variable.getName().equals(variableName)) {
-                selectedVariable = variable;
-            }
-        }
-
+        Variable selectedVariable = tree.findGlobal(variableName);
         if (selectedVariable == null) {
             throw new ParsingException("Expected to be able to isolate on variable "
                     + variableName + " but was not found.");
@@ -107,78 +142,6 @@ public final class AnalysisService implements IAnalysisService {
         return selectedVariable;
     }
 
-    /**
-     * Expands variables and discovers all functions using it
-     *
-     * @param tree              Syntax tree
-     * @param variableName      Variable name to expand
-     * @param recursiveResult   Result to add to
-     * @return                  Set of discovered functions
-     */
-    private Set<AbstractFunction> performFunctionExpansion(ISyntaxTree tree, String variableName, IsolateResult recursiveResult) {
-        Set<AbstractFunction> newAddedFunctions = new LinkedHashSet <>();
-        for (AbstractFunction function : tree.getScript()
-                .getFunctionsSection().getFunctions()) {
-            for (Argument argument : function.getArguments()) {
-                if (argument.toString().equals(variableName)) {
-                    if (recursiveResult.addFunction(function)) {
-                        newAddedFunctions.add(function);
-                    }
-                    break; // exit inner loop
-                }
-            }
-        }
-        return newAddedFunctions;
-    }
-
-    /**
-     * Runs recursive function isolation
-     *
-     * @param tree              Syntax tree
-     * @param functionName      Function name to isolate
-     * @param iterationCount    Current iteration count (0 = over)
-     * @param recursiveResult   Result to append to
-     * @return                  Result created
-     */
-    private IsolateResult isolateFunction(ISyntaxTree tree, String functionName,
-                                          int iterationCount, IsolateResult recursiveResult) {
-        if (iterationCount == 0) {
-            // Base case - no more iterations to perform
-            // This is not the only base case. The == is intended rather than <=
-            return recursiveResult;
-        } else {
-            // Find all functions/variables used by this function
-            // First, let's grab this function's code.
-            AbstractFunction selectedFunction = selectFunction(tree, functionName);
-
-            recursiveResult.addFunction(selectedFunction);
-            // Grab all used arguments from this function
-            List<String> arguments = accumulateArguments(selectedFunction);
-
-            // Set up values for storing new found usages
-            Set<AbstractFunction> newAddedFunctions = new LinkedHashSet<>();
-            Set<Variable> newAddedVariables = new LinkedHashSet<>();
-
-            // Now scan all variables for usages in this function
-            performVariableExpansion(tree, recursiveResult, arguments, newAddedVariables);
-
-            // We do the same for functions (See if this function calls that function)
-            performPassiveFunctionExpansion(tree, recursiveResult, selectedFunction, newAddedFunctions);
-
-            // Now do the inverse of the above - check all functions and see if that function calls this function
-            // This will expand VERY FAST so we have a feature flag for it
-            performAggressiveFunctionExpansion(tree, functionName, recursiveResult, newAddedFunctions);
-
-            // Decrease iteration count because we just finished one
-            iterationCount--;
-
-            // Perform recursive calls. Note the implicit base case.
-            performRecursiveVariableSearch(tree, iterationCount, recursiveResult, newAddedVariables);
-            performRecursiveFunctionSearch(tree, iterationCount, recursiveResult, newAddedFunctions);
-            return recursiveResult;
-        }
-    }
-
     /**
      * Retrieves the desired function from syntax tree
      *
@@ -187,13 +150,7 @@ public final class AnalysisService implements IAnalysisService {
      * @return              Function retrieved
      */
     private AbstractFunction selectFunction(ISyntaxTree tree, String functionName) {
-        AbstractFunction selectedFunction = null;
-        for (AbstractFunction function : tree.getScript().getFunctionsSection().getFunctions()) {
-            if (function.getName().equals(functionName)) {
-                selectedFunction = function;
-                break;
-            }
-        }
+        AbstractFunction selectedFunction = tree.findFunction(functionName);
         if (selectedFunction == null) {
             throw new ParsingException("Expected to be able to isolate on function "
                     + functionName + " but was not found.");
@@ -202,167 +159,292 @@ public final class AnalysisService implements IAnalysisService {
     }
 
     /**
-     * Collects all arguments used in this function
+     * Retrieves all functions that use this variable.
+     * Variables are stored in an IsolateResult.
      *
-     * @param selectedFunction  Function to retrieve arguments for
-     * @return                  List of arguments
+     * @param tree           Syntax tree to work from
+     * @param variableName   Variable name to isolate
+     * @param iterationCount Total iterations (-1 = infinite)
+     * @return Isolate result containing only variables
      */
-    private List<String> accumulateArguments(AbstractFunction selectedFunction) {
-        List<String> arguments = new ArrayList<>();
-        for (Argument arg : selectedFunction.getArguments()) {
-            arguments.add(arg.toString());
-        }
-        return arguments;
+    @Override
+    public IsolateResult isolateVariable(ISyntaxTree tree, String variableName, int iterationCount) {
+        selectVariable(tree, variableName);
+        return isolate(tree, -1, tree.getUseDefIndex().globalIdOf(variableName), iterationCount);
     }
 
     /**
-     * Finds variables that are used by this function
+     * Retrieves all functions that are called by this
+     * function, and all variables that are used by this
+     * function.
      *
-     * @param tree              Syntax tree
-     * @param recursiveResult   Result to append to
-     * @param arguments         Function arguments to check for variable usages in
-     * @param newAddedVariables Set to store results (added variables)
+     * @param tree           Syntax tree to work from
+     * @param variableName   Function name to isolate
+     * @param iterationCount Total iterations (-1 = infinite)
+     * @return Isolate result containing variables/functions
      */
-    private void performVariableExpansion(ISyntaxTree tree, IsolateResult recursiveResult,
-                                          List<String> arguments, Set<Variable> newAddedVariables) {
-        for (Variable variable : tree.getScript().getGlobalsSection().getGlobalVariables()) {
-            if (arguments.contains(variable.getName())) {
-                if (recursiveResult.getIsolatedVariables().add(variable)) {
-                    newAddedVariables.add(variable);
-                }
-            }
-        }
+    @Override
+    public IsolateResult isolateFunction(ISyntaxTree tree, String variableName, int iterationCount) {
+        AbstractFunction selectedFunction = selectFunction(tree, variableName);
+        return isolate(tree, tree.getCallGraph().idOf(selectedFunction), -1, iterationCount);
     }
 
     /**
-     * Performs the first (passive) expansion step where we find
-     * all functions that are used by this function
+     * Finds what every function transitively depends on, and what depends
+     * on it, in one pass. Rows are filled on this service's executor, if any.
      *
-     * @param tree                  Syntax tree
-     * @param selectedFunction      Function to find other function usages from
-     * @param recursiveResult       Result to add to
-     * @param newAddedFunctions     Set to add discovered functions to
+     * @param tree  Syntax tree
+     * @return      Closure of the tree at its current revision
      */
-    private void performPassiveFunctionExpansion(ISyntaxTree tree, IsolateResult recursiveResult,
-                                                 AbstractFunction selectedFunction, Set<AbstractFunction>
-                                                         newAddedFunctions) {
-        if(expansionStyle != ExpansionStyle.INVERSE) {
-            for (AbstractFunction function : tree.getScript().getFunctionsSection().getFunctions()) {
-                for (Argument arg : selectedFunction.getArguments()) {
-                    if (arg.calls(function.getName())) {
-                        if (recursiveResult.getIsolatedFunctions().add(function)) {
-                            newAddedFunctions.add(function);
-                        }
-                    }
-                }
-            }
-        }
+    @Override
+    public Reachability findReachability(ISyntaxTree tree) {
+        return Reachability.of(tree.getCallGraph(), tree.getUseDefIndex(), executor);
     }
 
     /**
-     * Finds all functions that use this functions.
-     * This will grow the size of the isolation extremely quickly
-     * (generally selecting all code with enough iterations)
-     * and so is only enabled when aggressive style is selected
+     * Discovers scope of the specified variable name
      *
-     * @param tree                  Syntax tree
-     * @param functionName          Function name to find usages of
-     * @param recursiveResult       Result to add to
-     * @param newAddedFunctions     Set to add discovered functions to
+     * @param tree          Syntax tree
+     * @param variableName  Variable name to find scope of
+     * @return              Variable Scope enum representing variable usage
      */
-    private void performAggressiveFunctionExpansion(ISyntaxTree tree, String functionName, IsolateResult
-            recursiveResult, Set<AbstractFunction> newAddedFunctions) {
-        if (expansionStyle == ExpansionStyle.AGGRESSIVE || expansionStyle == ExpansionStyle.INVERSE) {
-            for (AbstractFunction function : tree.getScript().getFunctionsSection().getFunctions()) {
-                for (Argument arg : function.getArguments()) {
-                    if (arg.calls(functionName)) {
-                        if (recursiveResult.getIsolatedFunctions().add(function)) {
-                            newAddedFunctions.add(function);
-                        }
-                    }
-                }
-            }
+    public VariableScope findVariableScope(ISyntaxTree tree, String variableName) {
+        selectVariable(tree, variableName);
+        int size = tree.getUseDefIndex().users(variableName).length;
+        if(size == 0) {
+            return VariableScope.UNUSED;
+        } else if(size == 1) {
+            return VariableScope.SINGLE_USE;
+        } else {
+            return VariableScope.GLOBAL;
         }
     }
 
+
     /**
-     * Recursively attempts to isolate all variables that we
-     * discovered through our previous isolation.
+     * Functions and variables found by an isolation, and those
+     * found in the last iteration that still have to be expanded.
      *
-     * @param tree              Syntax tree
-     * @param iterationCount    Remaining iterations
-     * @param recursiveResult   Result to append to
-     * @param newAddedVariables Variables to isolate
+     * Each iteration first claims everything the frontier leads to,
+     * in chunks on the executor if there is one, and then adds what
+     * was claimed to the result in id order. The same functions and
+     * variables are found whether or not chunks run concurrently.
      */
-    private void performRecursiveVariableSearch(ISyntaxTree tree, int iterationCount, IsolateResult
-            recursiveResult, Set<Variable> newAddedVariables) {
-        for (Variable variable : newAddedVariables) {
-            isolateVariable(tree, variable.getName(), iterationCount, recursiveResult);
+    private final class Expansion {
+
+        private final CallGraph callGraph;
+        private final UseDefIndex index;
+        private final IsolateResult result;
+        private final VisitedSet visitedFunctions;
+        private final VisitedSet visitedVariables;
+        private IdList functionFrontier;
+        private IdList variableFrontier;
+
+        private Expansion(ISyntaxTree tree, IsolateResult result) {
+            this.callGraph = tree.getCallGraph();
+            this.index = tree.getUseDefIndex();
+            this.result = result;
+            this.visitedFunctions = new VisitedSet(callGraph.size());
+            this.visitedVariables = new VisitedSet(index.globalCount());
+            this.functionFrontier = new IdList();
+            this.variableFrontier = new IdList();
+        }
+
+        private boolean hasFrontier() {
+            return functionFrontier.size() > 0 || variableFrontier.size() > 0;
+        }
+
+        private void visitFunction(int function) {
+            if (visitedFunctions.claim(function)) {
+                functionFrontier.add(function);
+                result.addFunction(callGraph.getFunction(function));
+            }
+        }
+
+        private void visitVariable(int global) {
+            if (visitedVariables.claim(global)) {
+                variableFrontier.add(global);
+                result.addVariable(index.getGlobal(global));
+            }
+        }
+
+        /**
+         * Runs one iteration: expands everything found in the last one
+         */
+        private void expandFrontier() {
+            IdList functions = functionFrontier;
+            IdList variables = variableFrontier;
+            int total = functions.size() + variables.size();
+            List<Claims> claims = new ArrayList<>();
+            if (executor == null || total < 2 * CHUNK_SIZE) {
+                claims.add(expand(functions, variables, 0, total));
+            } else {
+                List<CompletableFuture<Claims>> chunks = new ArrayList<>();
+                for (int start = 0; start < total; start += CHUNK_SIZE) {
+                    int from = start;
+                    int to = Math.min(start + CHUNK_SIZE, total);
+                    chunks.add(CompletableFuture.supplyAsync(() -> expand(functions, variables, from, to), executor));
+                }
+                for (CompletableFuture<Claims> chunk : chunks) {
+                    claims.add(join(chunk));
+                }
+            }
+            functionFrontier = new IdList();
+            variableFrontier = new IdList();
+            for (Claims claimed : claims) {
+                functionFrontier.addAll(claimed.functions);
+                variableFrontier.addAll(claimed.variables);
+            }
+            functionFrontier.sort();
+            variableFrontier.sort();
+            for (int i = 0; i < functionFrontier.size(); i++) {
+                result.addFunction(callGraph.getFunction(functionFrontier.get(i)));
+            }
+            for (int i = 0; i < variableFrontier.size(); i++) {
+                result.addVariable(index.getGlobal(variableFrontier.get(i)));
+            }
+        }
+
+        /**
+         * Expands part of the frontier. Only reads the call graph and
+         * use-def index, so any number of parts may run at once.
+         *
+         * @param functions Functions of the frontier
+         * @param variables Variables of the frontier, which come after the functions
+         * @param from      Index of the first entry to expand
+         * @param to        Index after the last entry to expand
+         * @return          Functions and variables claimed
+         */
+        private Claims expand(IdList functions, IdList variables, int from, int to) {
+            Claims claimed = new Claims();
+            for (int i = from; i < to; i++) {
+                if (i < functions.size()) {
+                    expandFunction(functions.get(i), claimed);
+                } else {
+                    // Find all functions that use this variable
+                    for (int user : index.users(variables.get(i - functions.size()))) {
+                        claimFunction(user, claimed);
+                    }
+                }
+            }
+            return claimed;
+        }
+
+        private void expandFunction(int function, Claims claimed) {
+            // Variables used by this function
+            for (int global : index.globalsUsedBy(function)) {
+                if (visitedVariables.claim(global)) {
+                    claimed.variables.add(global);
+                }
+            }
+            if (expansionStyle != ExpansionStyle.INVERSE) {
+                // Functions this function calls or refers to
+                for (int callee : callGraph.callees(function)) {
+                    claimFunction(callee, claimed);
+                }
+            }
+            if (expansionStyle == ExpansionStyle.AGGRESSIVE || expansionStyle == ExpansionStyle.INVERSE) {
+                // Functions that call or refer to this function.
+                // This will expand VERY FAST and so is behind the expansion style
+                for (int caller : callGraph.callers(function)) {
+                    claimFunction(caller, claimed);
+                }
+            }
+        }
+
+        private void claimFunction(int function, Claims claimed) {
+            if (visitedFunctions.claim(function)) {
+                claimed.functions.add(function);
+            }
         }
     }
 
     /**
-     * Recursively attempts to isolate all functions that we
-     * discovered through our previous isolation.
+     * Waits for a chunk of an expansion, rethrowing what made it fail
      *
-     * @param tree              Syntax tree
-     * @param iterationCount    Remaining iterations
-     * @param recursiveResult   Result to append to
-     * @param newAddedFunctions Functions to isolate
+     * @param chunk Running chunk
+     * @return      Its claims
      */
-    private void performRecursiveFunctionSearch(ISyntaxTree tree, int iterationCount, IsolateResult
-            recursiveResult, Set<AbstractFunction> newAddedFunctions) {
-        for (AbstractFunction function : newAddedFunctions) {
-            isolateFunction(tree, function.getName(), iterationCount, recursiveResult);
+    private static Claims join(CompletableFuture<Claims> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            } else if (ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
         }
     }
 
     /**
-     * Retrieves all functions that use this variable.
-     * Variables are stored in an IsolateResult.
-     *
-     * @param tree           Syntax tree to work from
-     * @param variableName   Variable name to isolate
-     * @param iterationCount Total iterations (-1 = infinite)
-     * @return Isolate result containing only variables
+     * Functions and variables first reached by one chunk of an expansion
      */
-    @Override
-    public IsolateResult isolateVariable(ISyntaxTree tree, String variableName, int iterationCount) {
-        return isolateVariable(tree, variableName, iterationCount, new IsolateResult());
+    private static final class Claims {
+
+        private final IdList functions = new IdList();
+        private final IdList variables = new IdList();
     }
 
     /**
-     * Retrieves all functions that are called by this
-     * function, and all variables that are used by this
-     * function.
-     *
-     * @param tree           Syntax tree to work from
-     * @param variableName   Function name to isolate
-     * @param iterationCount Total iterations (-1 = infinite)
-     * @return Isolate result containing variables/functions
+     * Set of ids that many threads can add to at once.
+     * Exactly one of the threads adding an id is told it was new.
      */
-    @Override
-    public IsolateResult isolateFunction(ISyntaxTree tree, String variableName, int iterationCount) {
-        return isolateFunction(tree, variableName, iterationCount, new IsolateResult());
+    private static final class VisitedSet {
+
+        private final AtomicLongArray words;
+
+        private VisitedSet(int size) {
+            this.words = new AtomicLongArray((size + 63) >>> 6);
+        }
+
+        private boolean claim(int id) {
+            int word = id >>> 6;
+            long bit = 1L << id;
+            while (true) {
+                long current = words.get(word);
+                if ((current & bit) != 0) {
+                    return false;
+                }
+                if (words.compareAndSet(word, current, current | bit)) {
+                    return true;
+                }
+            }
+        }
     }
 
     /**
-     * Discovers scope of the specified variable name
-     *
-     * @param tree          Syntax tree
-     * @param variableName  Variable name to find scope of
-     * @return              Variable Scope enum representing variable usage
+     * Growable list of ids without boxing
      */
-    public VariableScope findVariableScope(ISyntaxTree tree, String variableName) {
-        IsolateResult result = isolateVariable(tree, variableName, 1);
-        int size = result.getIsolatedFunctions().size();
-        if(size == 0) {
-            return VariableScope.UNUSED;
-        } else if(size == 1) {
-            return VariableScope.SINGLE_USE;
-        } else {
-            return VariableScope.GLOBAL;
+    private static final class IdList {
+
+        private int[] ids = new int[8];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private void addAll(IdList other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.ids[i]);
+            }
         }
-    }
 
+        private void sort() {
+            Arrays.sort(ids, 0, size);
+        }
+
+        private int get(int i) {
+            return ids[i];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
 }
@@ -1,7 +1,14 @@
 package services;
 
+import exception.ParsingException;
 import interfaces.IPreprocessFileService;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Scanner;
 
 /**
@@ -32,17 +39,48 @@ public final class PreprocessFileService implements IPreprocessFileService {
         if(completeText.length()>0) {
             completeText.setLength(completeText.length()-1);
         }
-        this.text = filter(completeText.toString());
+        this.text = filter(new StringReader(completeText.toString()));
         return new Scanner(text);
     }
 
+    /**
+     * Preprocesses the given character input
+     * Removing comments and normalizing spacing/etc.
+     * The input is read in chunks and never copied as a whole.
+     *
+     * @param input Reader with data containing the user's input
+     * @return Preprocessed text
+     */
+    @Override
+    public CharSequence preprocessFile(Reader input) {
+        this.text = filter(input);
+        return text;
+    }
+
+    /**
+     * Preprocesses the given character input one line at a time
+     * Removing comments, normalizing spacing/etc. and dropping empty lines.
+     * The whole input is preprocessed before the first line is returned.
+     *
+     * @param input Reader with data containing the user's input
+     * @return Preprocessed lines without line terminators
+     */
+    @Override
+    public Iterator<String> preprocessLines(Reader input) {
+        this.text = filter(input);
+        if(text.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return Arrays.asList(text.split("\n")).iterator();
+    }
+
     /**
      * Removes unnecessary spacing, comments, and newlines from file
      *
-     * @param input Input string
+     * @param input Input reader
      * @return      Input string with unnecessary characters filtered
      */
-    private String filter(String input) {
+    private String filter(Reader input) {
         StringBuilder currentLineOfCode = new StringBuilder();
         StringBuilder assembledCode = new StringBuilder();
         boolean quoted = false; // Set to true if we encounter an unescaped quote
@@ -52,77 +90,96 @@ public final class PreprocessFileService implements IPreprocessFileService {
         // not affect stuff in quotes (text literals that should
         // be left alone)
 
-        for(char c : input.toCharArray()) {
-            if(c == '\\') {
-                numEscapeChars++;
-            }
-            if(c == '"') {
-                // Handle the quote character
-                if(!commented) {
-                    // Handle escaped quotes
-                    if (numEscapeChars == 0 || numEscapeChars % 2 == 0) {
-                        quoted = !quoted;
-                    }
-                    currentLineOfCode.append(c);
+        char[] buffer = new char[8192];
+        boolean carriageReturn = false; // Set to true if the last character read was \r
+        int read;
+        while((read = readChunk(input, buffer)) != -1) {
+            for(int i = 0; i < read; i++) {
+                char c = buffer[i];
+                // Line breaks are the same ones Scanner.nextLine() recognizes
+                if(c == '\n' && carriageReturn) {
+                    carriageReturn = false;
+                    continue;
                 }
-            } else if(c == '\n') {
-                // Detect end-of-line if it's not in quotes
-                if (!quoted) {
-                    // Found the end of our current line of code
-                    currentLineOfCode.append(c);
-                    commented = false;
-                    // Add this line to the assembled lines and clear current
-                    String line = currentLineOfCode.toString();
-                    currentLineOfCode.setLength(0);
-                    assembledCode.append(line.trim()).append("\n");
-                } else {
-                    // Ignore commented code
-                    if(!commented) {
-                        currentLineOfCode.append("|n");
-                    }
+                carriageReturn = c == '\r';
+                if(c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+                    c = '\n';
                 }
-            } else if(currentLineOfCode.length() > 0 && c == 'n' && currentLineOfCode.charAt(currentLineOfCode.length()-1) == '\\') {
-                // Handle literal characters "\n" as newline
-                // Is this necessary?
-                // Try regression testing without it
-                if(!commented) {
-                    if (!quoted) {
-                        currentLineOfCode.append("\n");
-                    } else {
+                if(c == '\\') {
+                    numEscapeChars++;
+                }
+                if(c == '"') {
+                    // Handle the quote character
+                    if(!commented) {
+                        // Handle escaped quotes
+                        if (numEscapeChars == 0 || numEscapeChars % 2 == 0) {
+                            quoted = !quoted;
+                        }
                         currentLineOfCode.append(c);
                     }
-                }
-            } else if (currentLineOfCode.length() > 0 && c == '/' && currentLineOfCode.charAt(currentLineOfCode.length()-1) == '/') {
-                // Detect when code gets commented out and ignore that code
-                if(!commented) {
+                } else if(c == '\n') {
+                    // Detect end-of-line if it's not in quotes
                     if (!quoted) {
-                        commented = true;
-                        // Remove the comment character
-                        currentLineOfCode.setLength(currentLineOfCode.length() - 1);
+                        // Found the end of our current line of code
+                        currentLineOfCode.append(c);
+                        commented = false;
+                        // Add this line to the assembled lines and clear current
+                        String line = currentLineOfCode.toString();
+                        currentLineOfCode.setLength(0);
+                        assembledCode.append(line.trim()).append("\n");
                     } else {
+                        // Ignore commented code
+                        if(!commented) {
+                            currentLineOfCode.append("|n");
+                        }
+                    }
+                } else if(currentLineOfCode.length() > 0 && c == 'n' && currentLineOfCode.charAt(currentLineOfCode.length()-1) == '\\') {
+                    // Handle literal characters "\n" as newline
+                    // Is this necessary?
+                    // Try regression testing without it
+                    if(!commented) {
+                        if (!quoted) {
+                            currentLineOfCode.append("\n");
+                        } else {
+                            currentLineOfCode.append(c);
+                        }
+                    }
+                } else if (currentLineOfCode.length() > 0 && c == '/' && currentLineOfCode.charAt(currentLineOfCode.length()-1) == '/') {
+                    // Detect when code gets commented out and ignore that code
+                    if(!commented) {
+                        if (!quoted) {
+                            commented = true;
+                            // Remove the comment character
+                            currentLineOfCode.setLength(currentLineOfCode.length() - 1);
+                        } else {
+                            currentLineOfCode.append(c);
+                        }
+                    }
+                } else {
+                    // Ignore commented out code
+                    if(!commented) {
                         currentLineOfCode.append(c);
                     }
                 }
-            } else {
-                // Ignore commented out code
-                if(!commented) {
-                    currentLineOfCode.append(c);
+                if(c != '\\') {
+                    numEscapeChars = 0;
                 }
             }
-            if(c != '\\') {
-                numEscapeChars = 0;
-            }
         }
         // Add the final line of code we found
         String line = currentLineOfCode.toString();
         currentLineOfCode.setLength(0);
         assembledCode.append(line.trim()).append("\n");
         // Final pre-processing before we give back code
-        String constructed = assembledCode.toString();
-        // Remove empty lines
-        while(constructed.contains("\n\n")) {
-            constructed = constructed.replace("\n\n","\n");
+        // Remove empty lines, in one pass over the code
+        StringBuilder nonEmptyLines = new StringBuilder(assembledCode.length());
+        for(int i = 0; i < assembledCode.length(); i++) {
+            char c = assembledCode.charAt(i);
+            if(c != '\n' || nonEmptyLines.length() == 0 || nonEmptyLines.charAt(nonEmptyLines.length() - 1) != '\n') {
+                nonEmptyLines.append(c);
+            }
         }
+        String constructed = nonEmptyLines.toString();
         // If the code starts with a newline, then remove it
         if(constructed.startsWith("\n")) {
             constructed = constructed.substring(1);
@@ -133,4 +190,19 @@ public final class PreprocessFileService implements IPreprocessFileService {
         }
         return constructed.trim();
     }
+
+    /**
+     * Reads the next chunk of input
+     *
+     * @param input     Input reader
+     * @param buffer    Buffer to read into
+     * @return          Number of characters read, or -1 at the end of input
+     */
+    private int readChunk(Reader input, char[] buffer) {
+        try {
+            return input.read(buffer);
+        } catch (IOException ex) {
+            throw new ParsingException(ex);
+        }
+    }
 }
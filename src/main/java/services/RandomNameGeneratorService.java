@@ -2,9 +2,9 @@ package services;
 
 import interfaces.IRandomNameGeneratorService;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 
 /**
  * Used to generate random and unique variable/function names
@@ -13,7 +13,7 @@ public class RandomNameGeneratorService implements IRandomNameGeneratorService {
 
     private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final int LENGTH = 12;
-    private final List<String> usedNames;
+    private final Set<String> usedNames;
     private final Random random;
 
     /**
@@ -21,7 +21,7 @@ public class RandomNameGeneratorService implements IRandomNameGeneratorService {
      */
     public RandomNameGeneratorService() {
         this.random = new Random();
-        this.usedNames = new ArrayList<>();
+        this.usedNames = new HashSet<>();
     }
 
     /**
@@ -31,15 +31,15 @@ public class RandomNameGeneratorService implements IRandomNameGeneratorService {
      */
     @Override
     public String next() {
-        StringBuilder name = new StringBuilder();
-        for(int i = 0; i < LENGTH; i++) {
-            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
-        }
-        if(usedNames.contains(name.toString())) {
-            return next();
-        } else {
-            usedNames.add(name.toString());
-            return name.toString();
+        while(true) {
+            StringBuilder name = new StringBuilder();
+            for(int i = 0; i < LENGTH; i++) {
+                name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            // Names already handed out are drawn again
+            if(usedNames.add(name.toString())) {
+                return name.toString();
+            }
         }
     }
 }
@@ -0,0 +1,433 @@
+package services;
+
+import exception.WritingException;
+import interfaces.IScriptGeneratorService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic scripts that use every construct the syntax tree reads:
+ * globals of each kind (including constants and arrays), types, natives,
+ * functions with locals, nested if / elseif / else blocks and loops with
+ * exitwhen, calls, function references, libraries, scopes, and structs
+ * with methods.
+ *
+ * Output is decided by the seed and the settings only, so a seed stands
+ * for the same script on every run. Functions only call functions declared
+ * before them, and containers come after the functions they call.
+ */
+public final class ScriptGeneratorService implements IScriptGeneratorService {
+
+    private static final String INDENT = "    ";
+
+    /**
+     * Rough size of one function of a scaled script, together with its
+     * share of the globals, natives and containers. Used by scaleTo.
+     */
+    private static final int BYTES_PER_FUNCTION = 1400;
+
+    private static final int LOCAL_COUNT = 3;
+
+    private final long seed;
+    private int globalCount;
+    private int typeCount;
+    private int nativeCount;
+    private int functionCount;
+    private int statementCount;
+    private int nestingDepth;
+    private int libraryCount;
+    private int scopeCount;
+    private int structCount;
+    private int methodCount;
+
+    private Random random;
+    private Appendable output;
+    private List<String> integerGlobals;
+    private List<String> constantGlobals;
+    private List<String> arrayGlobals;
+    private List<String> otherGlobals;
+    private int callableFunctions;
+    private boolean hasParameters;
+
+    /**
+     * Creates a generator with small default settings
+     *
+     * @param seed  Seed deciding the generated script
+     */
+    public ScriptGeneratorService(long seed) {
+        this.seed = seed;
+        this.globalCount = 12;
+        this.typeCount = 1;
+        this.nativeCount = 3;
+        this.functionCount = 10;
+        this.statementCount = 6;
+        this.nestingDepth = 2;
+        this.libraryCount = 1;
+        this.scopeCount = 1;
+        this.structCount = 1;
+        this.methodCount = 2;
+    }
+
+    public void setGlobalCount(int globalCount) {
+        this.globalCount = globalCount;
+    }
+
+    public void setTypeCount(int typeCount) {
+        this.typeCount = typeCount;
+    }
+
+    public void setNativeCount(int nativeCount) {
+        this.nativeCount = nativeCount;
+    }
+
+    public void setFunctionCount(int functionCount) {
+        this.functionCount = functionCount;
+    }
+
+    /**
+     * Sets the number of statements in a function body.
+     * Blocks nested inside of it get half as many, but at least one.
+     *
+     * @param statementCount    Statements per function
+     */
+    public void setStatementCount(int statementCount) {
+        this.statementCount = statementCount;
+    }
+
+    /**
+     * Sets how deep if statements and loops may be nested
+     *
+     * @param nestingDepth  Greatest number of blocks around a statement
+     */
+    public void setNestingDepth(int nestingDepth) {
+        this.nestingDepth = nestingDepth;
+    }
+
+    public void setLibraryCount(int libraryCount) {
+        this.libraryCount = libraryCount;
+    }
+
+    public void setScopeCount(int scopeCount) {
+        this.scopeCount = scopeCount;
+    }
+
+    public void setStructCount(int structCount) {
+        this.structCount = structCount;
+    }
+
+    public void setMethodCount(int methodCount) {
+        this.methodCount = methodCount;
+    }
+
+    /**
+     * Sets the number of globals, natives, functions and containers
+     * so that the generated script is about the given size.
+     * The statement count and nesting depth are kept.
+     *
+     * @param approximateBytes  Desired size of the script
+     */
+    @Override
+    public void scaleTo(long approximateBytes) {
+        int functions = (int) Math.max(1, Math.min(Integer.MAX_VALUE, approximateBytes / BYTES_PER_FUNCTION));
+        this.functionCount = functions;
+        this.globalCount = Math.max(6, functions);
+        this.typeCount = Math.max(1, functions / 100);
+        this.nativeCount = Math.max(1, functions / 20);
+        this.libraryCount = Math.max(1, functions / 20);
+        this.scopeCount = Math.max(1, functions / 20);
+        this.structCount = Math.max(1, functions / 20);
+    }
+
+    /**
+     * Generates the script. The same seed and settings
+     * always produce the same script.
+     *
+     * @return  Generated script
+     */
+    @Override
+    public String generate() {
+        StringBuilder script = new StringBuilder();
+        writeTo(script);
+        return script.toString();
+    }
+
+    /**
+     * Generates the script into any destination,
+     * without building it as a whole String
+     *
+     * @param output    Destination for the code
+     */
+    @Override
+    public void writeTo(Appendable output) {
+        this.random = new Random(seed);
+        this.output = output;
+        this.integerGlobals = new ArrayList<>();
+        this.constantGlobals = new ArrayList<>();
+        this.arrayGlobals = new ArrayList<>();
+        this.otherGlobals = new ArrayList<>();
+        this.callableFunctions = 0;
+        try {
+            writeGlobals();
+            for(int i = 0; i < typeCount; i++) {
+                line(0, "type t" + i + " extends handle");
+            }
+            for(int i = 0; i < nativeCount; i++) {
+                line(0, "native n" + i + " takes integer a returns integer");
+            }
+            for(int i = 0; i < functionCount; i++) {
+                writeFunction(0, "function f" + i, true);
+                callableFunctions++;
+            }
+            for(int i = 0; i < libraryCount; i++) {
+                writeLibrary(i);
+            }
+            for(int i = 0; i < scopeCount; i++) {
+                line(0, "scope S" + i + " initializer S" + i + "_init");
+                writeFunction(1, "function S" + i + "_init", false);
+                line(0, "endscope");
+            }
+            for(int i = 0; i < structCount; i++) {
+                line(0, "struct P" + i);
+                for(int j = 0; j < methodCount; j++) {
+                    writeFunction(1, (j % 2 == 0 ? "method" : "private method") + " m" + j, true);
+                }
+                line(0, "endstruct");
+            }
+        } catch (IOException ex) {
+            throw new WritingException(ex);
+        } finally {
+            this.output = null;
+        }
+    }
+
+    private void writeGlobals() throws IOException {
+        if(globalCount == 0) {
+            return;
+        }
+        line(0, "globals");
+        for(int i = 0; i < globalCount; i++) {
+            String name = "g" + i;
+            switch(i % 6) {
+                case 0:
+                    line(1, "integer " + name + " = " + random.nextInt(100));
+                    integerGlobals.add(name);
+                    break;
+                case 1:
+                    line(1, "integer array " + name);
+                    arrayGlobals.add(name);
+                    break;
+                case 2:
+                    line(1, "real " + name + " = " + random.nextInt(100) + ".5");
+                    otherGlobals.add("set " + name + " = " + name + " * 0.5");
+                    break;
+                case 3:
+                    line(1, "boolean " + name + " = " + random.nextBoolean());
+                    otherGlobals.add("set " + name + " = not " + name);
+                    break;
+                case 4:
+                    line(1, "string " + name + " = \"text " + i + "\"");
+                    otherGlobals.add("set " + name + " = " + name + " + I2S(l0)");
+                    break;
+                default:
+                    line(1, "constant integer " + name + " = " + random.nextInt(100));
+                    constantGlobals.add(name);
+                    break;
+            }
+        }
+        line(0, "endglobals");
+    }
+
+    private void writeLibrary(int index) throws IOException {
+        String name = "L" + index;
+        line(0, "library " + name + " initializer " + name + "_init");
+        line(1, "globals");
+        line(2, "private integer " + name + "_count = 0");
+        line(1, "endglobals");
+        writeFunction(1, "private function " + name + "_init", false);
+        line(0, "endlibrary");
+    }
+
+    /**
+     * Writes a function or method with locals, a body and a return value
+     *
+     * @param indentation   Indentation of the declaration line
+     * @param declaration   Start of the declaration line, up to the name
+     * @param hasParameters True for a function taking two integers and
+     *                      returning one, false for one taking and returning nothing
+     */
+    private void writeFunction(int indentation, String declaration, boolean hasParameters) throws IOException {
+        this.hasParameters = hasParameters;
+        String endText = declaration.contains("method ") ? "endmethod" : "endfunction";
+        if(hasParameters) {
+            line(indentation, declaration + " takes integer a, integer b returns integer");
+        } else {
+            line(indentation, declaration + " takes nothing returns nothing");
+        }
+        for(int i = 0; i < LOCAL_COUNT; i++) {
+            line(indentation + 1, "local integer l" + i + " = " + (hasParameters && i < 2 ? (i == 0 ? "a" : "b") : "0"));
+        }
+        writeStatements(indentation + 1, statementCount, nestingDepth);
+        if(hasParameters) {
+            line(indentation + 1, "return " + expression(1));
+        }
+        line(indentation, endText);
+    }
+
+    private void writeStatements(int indentation, int count, int depth) throws IOException {
+        for(int i = 0; i < count; i++) {
+            writeStatement(indentation, depth);
+        }
+    }
+
+    private void writeStatement(int indentation, int depth) throws IOException {
+        int kind = random.nextInt(depth > 0 ? 9 : 7);
+        switch(kind) {
+            case 0:
+            case 1:
+                line(indentation, "set " + local() + " = " + expression(2));
+                break;
+            case 2:
+                if(!integerGlobals.isEmpty()) {
+                    line(indentation, "set " + pick(integerGlobals) + " = " + expression(2));
+                } else {
+                    line(indentation, "set " + local() + " = " + expression(1));
+                }
+                break;
+            case 3:
+                if(!arrayGlobals.isEmpty()) {
+                    line(indentation, "set " + pick(arrayGlobals) + "[" + local() + "] = " + expression(1));
+                } else {
+                    line(indentation, "set " + local() + " = " + expression(1));
+                }
+                break;
+            case 4:
+                line(indentation, "call " + call());
+                break;
+            case 5:
+                if(callableFunctions > 0 && random.nextBoolean()) {
+                    line(indentation, "call TimerStart(CreateTimer(), 0.5, false, function f" + random.nextInt(callableFunctions) + ")");
+                } else {
+                    line(indentation, "set " + local() + " = " + call());
+                }
+                break;
+            case 6:
+                if(!otherGlobals.isEmpty()) {
+                    line(indentation, pick(otherGlobals));
+                } else {
+                    line(indentation, "set " + local() + " = " + expression(1));
+                }
+                break;
+            case 7:
+                writeIf(indentation, depth);
+                break;
+            default:
+                writeLoop(indentation, depth);
+                break;
+        }
+    }
+
+    private void writeIf(int indentation, int depth) throws IOException {
+        int count = Math.max(1, statementCount / 2);
+        line(indentation, "if " + condition(2) + " then");
+        writeStatements(indentation + 1, count, depth - 1);
+        int elseifCount = random.nextInt(3);
+        for(int i = 0; i < elseifCount; i++) {
+            line(indentation, "elseif " + condition(1) + " then");
+            writeStatements(indentation + 1, count, depth - 1);
+        }
+        if(random.nextBoolean()) {
+            line(indentation, "else");
+            writeStatements(indentation + 1, count, depth - 1);
+        }
+        line(indentation, "endif");
+    }
+
+    private void writeLoop(int indentation, int depth) throws IOException {
+        String counter = local();
+        line(indentation, "loop");
+        line(indentation + 1, "exitwhen " + counter + " > " + (1 + random.nextInt(20)));
+        writeStatements(indentation + 1, Math.max(1, statementCount / 2), depth - 1);
+        line(indentation + 1, "set " + counter + " = " + counter + " + 1");
+        line(indentation, "endloop");
+    }
+
+    /**
+     * Gets a call of a function declared earlier, or of a native
+     */
+    private String call() {
+        if(callableFunctions > 0 && (nativeCount == 0 || random.nextInt(4) > 0)) {
+            return "f" + random.nextInt(callableFunctions) + "(" + expression(1) + ", " + expression(0) + ")";
+        } else if(nativeCount > 0) {
+            return "n" + random.nextInt(nativeCount) + "(" + expression(1) + ")";
+        }
+        return "GetRandomInt(0, " + expression(0) + ")";
+    }
+
+    private String expression(int depth) {
+        if(depth == 0 || random.nextInt(3) == 0) {
+            return operand();
+        }
+        String left = expression(depth - 1);
+        String right = expression(depth - 1);
+        switch(random.nextInt(4)) {
+            case 0:
+                return left + " + " + right;
+            case 1:
+                return left + " - " + right;
+            case 2:
+                return left + " * " + right;
+            default:
+                return "(" + left + " + " + right + ")";
+        }
+    }
+
+    private String operand() {
+        switch(random.nextInt(6)) {
+            case 0:
+                return hasParameters ? (random.nextBoolean() ? "a" : "b") : local();
+            case 1:
+                return integerGlobals.isEmpty() ? local() : pick(integerGlobals);
+            case 2:
+                return constantGlobals.isEmpty() ? local() : pick(constantGlobals);
+            case 3:
+                return arrayGlobals.isEmpty() ? local() : pick(arrayGlobals) + "[" + local() + "]";
+            case 4:
+                return Integer.toString(random.nextInt(1000));
+            default:
+                return local();
+        }
+    }
+
+    private String condition(int depth) {
+        if(depth == 0 || random.nextInt(2) == 0) {
+            String[] comparisons = { " > ", " < ", " == ", " != ", " >= " };
+            return expression(1) + comparisons[random.nextInt(comparisons.length)] + expression(0);
+        }
+        switch(random.nextInt(3)) {
+            case 0:
+                return condition(depth - 1) + " and " + condition(depth - 1);
+            case 1:
+                return condition(depth - 1) + " or " + condition(depth - 1);
+            default:
+                return "not (" + condition(depth - 1) + ")";
+        }
+    }
+
+    private String local() {
+        return "l" + random.nextInt(LOCAL_COUNT);
+    }
+
+    private String pick(List<String> names) {
+        return names.get(random.nextInt(names.size()));
+    }
+
+    private void line(int indentation, String text) throws IOException {
+        for(int i = 0; i < indentation; i++) {
+            output.append(INDENT);
+        }
+        output.append(text).append("\n");
+    }
+}
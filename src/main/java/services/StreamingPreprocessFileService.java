@@ -0,0 +1,256 @@
+package services;
+
+import exception.ParsingException;
+import interfaces.IPreprocessFileService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * A class that can be used before sending data into the abstract syntax tree
+ * This will correct some parts of the jass code (like comments and spacing)
+ * so that it can be read without error.
+ *
+ * Unlike PreprocessFileService, input is never held in memory as a whole:
+ * lines are cleaned one at a time as the caller pulls them, and blank
+ * lines are dropped as they are found.
+ */
+public final class StreamingPreprocessFileService implements IPreprocessFileService {
+
+    /**
+     * Preprocesses the given scanner input
+     * Removing comments and normalizing spacing/etc.
+     *
+     * @param inputScanner  Scanner with data containing the user's input
+     * @return New scanner with preprocessed text
+     */
+    @Override
+    public Scanner preprocessFile(Scanner inputScanner) {
+        StringBuilder completeText = new StringBuilder();
+        while(inputScanner.hasNextLine()) {
+            completeText.append(inputScanner.nextLine()).append("\n");
+        }
+        return new Scanner(preprocessFile(new StringReader(completeText.toString())).toString());
+    }
+
+    /**
+     * Preprocesses the given character input
+     * Removing comments and normalizing spacing/etc.
+     *
+     * @param input Reader with data containing the user's input
+     * @return Preprocessed text
+     */
+    @Override
+    public CharSequence preprocessFile(Reader input) {
+        StringBuilder text = new StringBuilder();
+        Iterator<String> lines = preprocessLines(input);
+        while(lines.hasNext()) {
+            if(text.length() > 0) {
+                text.append("\n");
+            }
+            text.append(lines.next());
+        }
+        return text;
+    }
+
+    /**
+     * Preprocesses the given character input one line at a time.
+     * Nothing is read until the first line is requested.
+     *
+     * @param input Reader with data containing the user's input
+     * @return Preprocessed, non-empty lines without line terminators
+     */
+    @Override
+    public Iterator<String> preprocessLines(Reader input) {
+        return new PreprocessedLines(input);
+    }
+
+    /**
+     * Pulls characters from the input and hands out cleaned lines.
+     * Holds at most one line of code and one chunk of input at a time.
+     */
+    private static final class PreprocessedLines implements Iterator<String> {
+
+        private final Reader input;
+        private final char[] buffer = new char[8192];
+        private int bufferPosition;
+        private int bufferLength;
+        private boolean carriageReturn; // Set to true if the last character read was \r
+        private boolean endOfInput;
+
+        private final StringBuilder currentLineOfCode = new StringBuilder();
+        private boolean quoted; // Set to true if we encounter an unescaped quote
+        private boolean commented; // Set to true if code is commented out
+        private int numEscapeChars;
+
+        /**
+         * A literal \n outside of quotes splits a line of code in two.
+         * The rest of such a line waits here until it is requested.
+         */
+        private String pendingLine;
+        private int pendingOffset;
+        private String next;
+
+        private PreprocessedLines(Reader input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(next == null) {
+                next = readLine();
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException("No more lines");
+            }
+            String line = next;
+            next = null;
+            return line;
+        }
+
+        /**
+         * Finds the next non-empty line
+         *
+         * @return  Next line, or null at the end of input
+         */
+        private String readLine() {
+            while(true) {
+                if(pendingLine != null) {
+                    int end = pendingLine.indexOf('\n', pendingOffset);
+                    String part;
+                    if(end < 0) {
+                        part = pendingLine.substring(pendingOffset);
+                        pendingLine = null;
+                    } else {
+                        part = pendingLine.substring(pendingOffset, end);
+                        pendingOffset = end + 1;
+                    }
+                    if(!part.isEmpty()) {
+                        return part;
+                    }
+                } else if(endOfInput) {
+                    return null;
+                } else {
+                    String line = readLineOfCode();
+                    if(line.indexOf('\n') >= 0) {
+                        pendingLine = line;
+                        pendingOffset = 0;
+                    } else if(!line.isEmpty()) {
+                        return line;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reads up to the next newline that is not in quotes,
+         * removing comments along the way.
+         *
+         * @return  Trimmed line of code, possibly empty
+         */
+        private String readLineOfCode() {
+            currentLineOfCode.setLength(0);
+            int read;
+            while((read = readChar()) != -1) {
+                char c = (char) read;
+                if(c == '\\') {
+                    numEscapeChars++;
+                }
+                if(c == '"') {
+                    // Handle the quote character
+                    if(!commented) {
+                        // Handle escaped quotes
+                        if (numEscapeChars == 0 || numEscapeChars % 2 == 0) {
+                            quoted = !quoted;
+                        }
+                        currentLineOfCode.append(c);
+                    }
+                } else if(c == '\n') {
+                    if(!quoted) {
+                        // Found the end of our current line of code
+                        commented = false;
+                        numEscapeChars = 0;
+                        return currentLineOfCode.toString().trim();
+                    } else if(!commented) {
+                        // Keep quoted newlines on the same line
+                        currentLineOfCode.append("|n");
+                    }
+                } else if(lastCharIs('\\') && c == 'n') {
+                    // Handle literal characters "\n" as newline
+                    if(!commented) {
+                        if (!quoted) {
+                            currentLineOfCode.append("\n");
+                        } else {
+                            currentLineOfCode.append(c);
+                        }
+                    }
+                } else if(lastCharIs('/') && c == '/') {
+                    // Detect when code gets commented out and ignore that code
+                    if(!commented) {
+                        if (!quoted) {
+                            commented = true;
+                            // Remove the comment character
+                            currentLineOfCode.setLength(currentLineOfCode.length() - 1);
+                        } else {
+                            currentLineOfCode.append(c);
+                        }
+                    }
+                } else if(!commented) {
+                    currentLineOfCode.append(c);
+                }
+                if(c != '\\') {
+                    numEscapeChars = 0;
+                }
+            }
+            endOfInput = true;
+            return currentLineOfCode.toString().trim();
+        }
+
+        private boolean lastCharIs(char c) {
+            int length = currentLineOfCode.length();
+            return length > 0 && currentLineOfCode.charAt(length - 1) == c;
+        }
+
+        /**
+         * Reads one character, turning every kind of line break
+         * that Scanner.nextLine() recognizes into \n
+         *
+         * @return  Character read, or -1 at the end of input
+         */
+        private int readChar() {
+            while(true) {
+                if(bufferPosition == bufferLength) {
+                    try {
+                        bufferLength = input.read(buffer);
+                    } catch (IOException ex) {
+                        throw new ParsingException(ex);
+                    }
+                    bufferPosition = 0;
+                    if(bufferLength == -1) {
+                        bufferLength = 0;
+                        return -1;
+                    }
+                }
+                char c = buffer[bufferPosition++];
+                if(c == '\n' && carriageReturn) {
+                    carriageReturn = false;
+                    continue;
+                }
+                carriageReturn = c == '\r';
+                if(c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085') {
+                    return '\n';
+                }
+                return c;
+            }
+        }
+    }
+}
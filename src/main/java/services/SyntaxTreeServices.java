@@ -2,16 +2,21 @@ package services;
 
 import interfaces.IPreprocessFileService;
 import interfaces.IRandomNameGeneratorService;
+import interfaces.IScriptGeneratorService;
 
 public final class SyntaxTreeServices {
 
     public static IPreprocessFileService defaultPreprocessor() {
-        return new PreprocessFileService();
+        return new StreamingPreprocessFileService();
     }
 
     public static IRandomNameGeneratorService defaultRandomNameGenerator() {
         return new RandomNameGeneratorService();
     }
 
+    public static IScriptGeneratorService defaultScriptGenerator(long seed) {
+        return new ScriptGeneratorService(seed);
+    }
+
     private SyntaxTreeServices() {}
 }
@@ -0,0 +1,74 @@
+package tree;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reader that decodes bytes from a buffer as they are requested.
+ * Only as many characters as the caller asks for are decoded at a time,
+ * so a memory-mapped file never has to exist in memory as a whole String.
+ * Malformed input is replaced, the same as reading the file into a String would.
+ */
+final class ByteBufferReader extends Reader {
+
+    private final ByteBuffer input;
+    private final CharsetDecoder decoder;
+    private boolean flushing;
+    private boolean finished;
+
+    /**
+     * Creates a reader over the remaining bytes of the buffer.
+     * The position of the given buffer is not changed.
+     *
+     * @param input     Encoded text
+     * @param charset   Charset the text is encoded in
+     */
+    ByteBufferReader(ByteBuffer input, Charset charset) {
+        this.input = input.duplicate();
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Decodes up to length characters into the array
+     *
+     * @param buffer    Destination array
+     * @param offset    Offset to start writing at
+     * @param length    Maximum number of characters to decode
+     * @return          Number of characters decoded, or -1 at the end of input
+     */
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if(length == 0) {
+            return 0;
+        }
+        if(finished) {
+            return -1;
+        }
+        CharBuffer output = CharBuffer.wrap(buffer, offset, length);
+        if(!flushing) {
+            CoderResult result = decoder.decode(input, output, true);
+            // All bytes are decoded, the decoder may still hold some characters back
+            flushing = result.isUnderflow();
+        }
+        if(flushing && decoder.flush(output).isUnderflow()) {
+            finished = true;
+        }
+        int count = output.position() - offset;
+        return count == 0 && finished ? -1 : count;
+    }
+
+    /**
+     * Nothing to release; the buffer belongs to the caller
+     */
+    @Override
+    public void close() {
+        // Do nothing
+    }
+}
@@ -0,0 +1,347 @@
+package tree;
+
+import nodes.AbstractFunction;
+import nodes.arguments.Argument;
+import nodes.arguments.ArgumentType;
+import nodes.arguments.BasicArgument;
+import nodes.arguments.FunctionCallArgument;
+import nodes.j.Script;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which functions of a script call or refer to which others.
+ *
+ * Every function gets an id, its index in declaration order.
+ * Edges are kept by the name of the function they lead to, so that
+ * renaming a function only touches the edges leading to it, and calls to
+ * functions that are not declared (like natives from common.j) are kept
+ * until a function of that name exists. Lookups return ids in ascending
+ * order, which is declaration order.
+ *
+ * A graph describes the script at the revision it was built at;
+ * SyntaxTree keeps it current through function renames
+ * and builds a new one after other changes to the script.
+ */
+public final class CallGraph {
+
+    /**
+     * How one function uses another
+     */
+    public enum EdgeKind {
+        /**
+         * The function is called, like myFunction(5)
+         */
+        CALL,
+        /**
+         * The function is passed as code, like function myFunction
+         */
+        REFERENCE
+    }
+
+    private static final EdgeKind[] ALL_KINDS = EdgeKind.values();
+    private static final String REFERENCE_PREFIX = "function ";
+
+    private final Script script;
+    private final List<AbstractFunction> functions;
+    private final Map<AbstractFunction, Integer> ids;
+    private final Map<String, int[]> idsByName;
+    private final List<List<Set<String>>> calleeNames;
+    private final List<Map<String, Set<Integer>>> callerIds;
+    private long revision;
+
+    private CallGraph(Script script, List<AbstractFunction> functions) {
+        this.script = script;
+        this.functions = new ArrayList<>(functions);
+        this.ids = new IdentityHashMap<>();
+        this.idsByName = new HashMap<>();
+        this.calleeNames = new ArrayList<>();
+        this.callerIds = new ArrayList<>();
+        for(int kind = 0; kind < ALL_KINDS.length; kind++) {
+            List<Set<String>> forward = new ArrayList<>(functions.size());
+            for(int id = 0; id < functions.size(); id++) {
+                forward.add(new LinkedHashSet<>());
+            }
+            calleeNames.add(forward);
+            callerIds.add(new HashMap<>());
+        }
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Builds the call graph of the given functions
+     *
+     * @param script    Script the functions are declared in
+     * @param functions Functions of the script, in declaration order
+     * @return          Call graph at the current revision of the script
+     */
+    public static CallGraph of(Script script, List<AbstractFunction> functions) {
+        CallGraph graph = new CallGraph(script, functions);
+        for(int id = 0; id < functions.size(); id++) {
+            AbstractFunction function = functions.get(id);
+            graph.ids.putIfAbsent(function, id);
+            graph.addName(function.getName(), id);
+            for(Argument argument : function.getArguments()) {
+                ArgumentType type = argument.getArgumentType();
+                if(type instanceof FunctionCallArgument || type instanceof BasicArgument) {
+                    graph.addEdges(id, argument);
+                } else {
+                    // Like the array of a set statement; its calls are only found inside of it
+                    for(Argument part : argument.getArguments()) {
+                        graph.addEdges(id, part);
+                    }
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Checks whether this graph still describes the functions it was built from
+     *
+     * @return  True if no part of the script changed since this graph was last updated; false if not.
+     */
+    public boolean isCurrent() {
+        return revision == script.getRevision();
+    }
+
+    /**
+     * Gets the script this graph was built from
+     *
+     * @return  Script
+     */
+    Script getScript() {
+        return script;
+    }
+
+    /**
+     * Gets the number of functions, which is one more than the highest id
+     *
+     * @return  Number of functions
+     */
+    public int size() {
+        return functions.size();
+    }
+
+    /**
+     * Gets the function with the given id
+     *
+     * @param id    Function id
+     * @return      Function
+     */
+    public AbstractFunction getFunction(int id) {
+        return functions.get(id);
+    }
+
+    /**
+     * Gets all functions, indexed by id
+     *
+     * @return  Functions in declaration order
+     */
+    public List<AbstractFunction> getFunctions() {
+        return Collections.unmodifiableList(functions);
+    }
+
+    /**
+     * Gets the id of a function
+     *
+     * @param function  Function of this graph
+     * @return          Id, or -1 if the function is not part of this graph
+     */
+    public int idOf(AbstractFunction function) {
+        Integer id = ids.get(function);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the ids of all functions with the given name
+     *
+     * @param name  Function name
+     * @return      Ids in ascending order; usually one, or none if the name is not declared
+     */
+    public int[] idsOf(String name) {
+        int[] found = idsByName.get(name);
+        return found == null ? new int[0] : found.clone();
+    }
+
+    /**
+     * Gets the functions that a function calls or refers to
+     *
+     * @param id    Function id
+     * @return      Ids in ascending order
+     */
+    public int[] callees(int id) {
+        return callees(id, ALL_KINDS);
+    }
+
+    /**
+     * Gets the functions that a function uses in the given ways
+     *
+     * @param id    Function id
+     * @param kinds Kinds of edges to follow
+     * @return      Ids in ascending order
+     */
+    public int[] callees(int id, EdgeKind... kinds) {
+        IdCollector collected = new IdCollector();
+        for(EdgeKind kind : kinds) {
+            for(String name : calleeNames.get(kind.ordinal()).get(id)) {
+                collected.addAll(idsByName.get(name));
+            }
+        }
+        return collected.toSortedArray();
+    }
+
+    /**
+     * Gets the functions that call or refer to any function with the given name.
+     * The name does not have to be declared.
+     *
+     * @param name  Function name
+     * @return      Ids in ascending order
+     */
+    public int[] callers(String name) {
+        return callers(name, ALL_KINDS);
+    }
+
+    /**
+     * Gets the functions that use any function with the given name in the given ways
+     *
+     * @param name  Function name
+     * @param kinds Kinds of edges to follow
+     * @return      Ids in ascending order
+     */
+    public int[] callers(String name, EdgeKind... kinds) {
+        IdCollector collected = new IdCollector();
+        for(EdgeKind kind : kinds) {
+            Set<Integer> callers = callerIds.get(kind.ordinal()).get(name);
+            if(callers != null) {
+                for(int caller : callers) {
+                    collected.add(caller);
+                }
+            }
+        }
+        return collected.toSortedArray();
+    }
+
+    /**
+     * Gets the functions that call or refer to a function
+     *
+     * @param id    Function id
+     * @return      Ids in ascending order
+     */
+    public int[] callers(int id) {
+        return callers(functions.get(id).getName(), ALL_KINDS);
+    }
+
+    /**
+     * Updates the graph after a function and all uses of it were renamed.
+     * Only the edges leading to the function are touched.
+     * The graph is left as it was if a function with the old name still has it,
+     * since the rename then did not reach every function the graph knows of.
+     *
+     * @param oldFunctionName   Previous function name
+     * @param newFunctionName   New function name
+     * @return                  True if the graph was updated; false if it has to be built again.
+     */
+    boolean renameFunction(String oldFunctionName, String newFunctionName) {
+        if(!oldFunctionName.equals(newFunctionName)) {
+            int[] renamed = idsByName.get(oldFunctionName);
+            if(renamed != null) {
+                for(int id : renamed) {
+                    if(!functions.get(id).getName().equals(newFunctionName)) {
+                        return false;
+                    }
+                }
+                idsByName.remove(oldFunctionName);
+                for(int id : renamed) {
+                    addName(newFunctionName, id);
+                }
+            }
+            for(int kind = 0; kind < ALL_KINDS.length; kind++) {
+                Set<Integer> callers = callerIds.get(kind).remove(oldFunctionName);
+                if(callers != null) {
+                    for(int caller : callers) {
+                        Set<String> names = calleeNames.get(kind).get(caller);
+                        names.remove(oldFunctionName);
+                        names.add(newFunctionName);
+                    }
+                    callerIds.get(kind).computeIfAbsent(newFunctionName, name -> new LinkedHashSet<>()).addAll(callers);
+                }
+            }
+        }
+        this.revision = script.getRevision();
+        return true;
+    }
+
+    private void addName(String name, int id) {
+        int[] existing = idsByName.get(name);
+        if(existing == null) {
+            idsByName.put(name, new int[] { id });
+        } else {
+            int[] added = Arrays.copyOf(existing, existing.length + 1);
+            added[existing.length] = id;
+            Arrays.sort(added);
+            idsByName.put(name, added);
+        }
+    }
+
+    /**
+     * Adds the edge for a function call or function reference
+     *
+     * @param caller    Id of the function the argument is in
+     * @param argument  Basic or function call argument
+     */
+    private void addEdges(int caller, Argument argument) {
+        ArgumentType type = argument.getArgumentType();
+        if(type instanceof FunctionCallArgument) {
+            addEdge(caller, ((FunctionCallArgument) type).getFunctionCall().getFunctionName(), EdgeKind.CALL);
+        } else if(type instanceof BasicArgument) {
+            String content = ((BasicArgument) type).getContent();
+            if(content.startsWith(REFERENCE_PREFIX)) {
+                addEdge(caller, content.substring(REFERENCE_PREFIX.length()).trim(), EdgeKind.REFERENCE);
+            }
+        }
+    }
+
+    private void addEdge(int caller, String calleeName, EdgeKind kind) {
+        calleeNames.get(kind.ordinal()).get(caller).add(calleeName);
+        callerIds.get(kind.ordinal()).computeIfAbsent(calleeName, name -> new LinkedHashSet<>()).add(caller);
+    }
+
+    /**
+     * Gathers ids without repeats
+     */
+    private static final class IdCollector {
+
+        private final Set<Integer> seen = new LinkedHashSet<>();
+
+        private void add(int id) {
+            seen.add(id);
+        }
+
+        private void addAll(int[] ids) {
+            if(ids != null) {
+                for(int id : ids) {
+                    seen.add(id);
+                }
+            }
+        }
+
+        private int[] toSortedArray() {
+            int[] sorted = new int[seen.size()];
+            int i = 0;
+            for(int id : seen) {
+                sorted[i++] = id;
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package tree;
+
+import nodes.AbstractFunction;
+import nodes.AbstractNode;
+
+/**
+ * Receives events while a script is parsed, for example to find out where
+ * parse time goes. Attach one with TreeContext.withListener; a parse without
+ * a listener does not read the clock or count anything.
+ *
+ * All methods do nothing by default. For a parallel parse, they are called
+ * from the executor's threads as well, so implementations must be thread-safe.
+ * Parts are reported each time they are read: a phase may be reported many
+ * times per parse, and the phases of a script inside of a container are
+ * reported on their own as well as within the container.
+ */
+public interface ParseListener {
+
+    /**
+     * Called when a part of the parse is done
+     *
+     * @param phase Phase that was read
+     * @param nanos Nanoseconds spent reading it
+     */
+    default void phaseFinished(ParsePhase phase, long nanos) {
+        // Do nothing
+    }
+
+    /**
+     * Called when a node has been read from the input
+     *
+     * @param node  Node that was read
+     */
+    default void nodeRead(AbstractNode node) {
+        // Do nothing
+    }
+
+    /**
+     * Called when the body of a function or method has been read.
+     * With lazy bodies, this happens when the body is first needed.
+     *
+     * @param function  Function that was read; its body is not set yet
+     * @param nanos     Nanoseconds spent reading the body
+     */
+    default void functionRead(AbstractFunction function, long nanos) {
+        // Do nothing
+    }
+
+    /**
+     * Called when all of the input of a Reader or String has been read
+     *
+     * @param characters    Number of characters read
+     */
+    default void charactersRead(long characters) {
+        // Do nothing
+    }
+
+    /**
+     * Called when all of the input of a file or buffer has been read.
+     * Such input is reported in bytes only, not in characters.
+     *
+     * @param bytes Number of bytes read
+     */
+    default void bytesRead(long bytes) {
+        // Do nothing
+    }
+
+    /**
+     * Called when a whole script has been parsed into a tree
+     *
+     * @param nanos Nanoseconds from the start of the parse
+     */
+    default void parseFinished(long nanos) {
+        // Do nothing
+    }
+}
@@ -0,0 +1,151 @@
+package tree;
+
+import nodes.AbstractFunction;
+import nodes.AbstractNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parse listener that adds up what it is told, so that the totals
+ * can be read or exported after one or more parses.
+ * Safe to use for parallel parses and for many parses at once.
+ */
+public final class ParseMetrics implements ParseListener {
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(ParsePhase.values().length);
+    private final Map<Class<? extends AbstractNode>, LongAdder> nodeCounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> functionNanos = new ConcurrentHashMap<>();
+    private final AtomicLong characters = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong parses = new AtomicLong();
+
+    @Override
+    public void phaseFinished(ParsePhase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    @Override
+    public void nodeRead(AbstractNode node) {
+        nodeCounts.computeIfAbsent(node.getClass(), type -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void functionRead(AbstractFunction function, long nanos) {
+        // Methods of different structs may share a name
+        functionNanos.merge(function.getName(), nanos, Long::sum);
+    }
+
+    @Override
+    public void charactersRead(long characters) {
+        this.characters.addAndGet(characters);
+    }
+
+    @Override
+    public void bytesRead(long bytes) {
+        this.bytes.addAndGet(bytes);
+    }
+
+    @Override
+    public void parseFinished(long nanos) {
+        parseNanos.addAndGet(nanos);
+        parses.incrementAndGet();
+    }
+
+    /**
+     * Gets the time spent in a phase
+     *
+     * @param phase Phase of parsing
+     * @return      Nanoseconds spent in the phase
+     */
+    public long getPhaseNanos(ParsePhase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    /**
+     * Gets the number of nodes of a type that were read
+     *
+     * @param type  Class of node
+     * @return      Number of nodes of exactly that class
+     */
+    public long getNodeCount(Class<? extends AbstractNode> type) {
+        LongAdder count = nodeCounts.get(type);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Gets the number of nodes read of every type, by class name
+     *
+     * @return  Class names mapped to counts, sorted by name
+     */
+    public Map<String, Long> getNodeCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for(Map.Entry<Class<? extends AbstractNode>, LongAdder> entry : nodeCounts.entrySet()) {
+            counts.merge(entry.getKey().getSimpleName(), entry.getValue().sum(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the number of characters read from Readers and Strings
+     *
+     * @return  Number of characters
+     */
+    public long getCharactersRead() {
+        return characters.get();
+    }
+
+    /**
+     * Gets the number of bytes read from files and buffers
+     *
+     * @return  Number of bytes
+     */
+    public long getBytesRead() {
+        return bytes.get();
+    }
+
+    /**
+     * Gets the total time of all finished parses
+     *
+     * @return  Nanoseconds spent parsing
+     */
+    public long getParseNanos() {
+        return parseNanos.get();
+    }
+
+    /**
+     * Gets the number of finished parses
+     *
+     * @return  Number of parses
+     */
+    public long getParseCount() {
+        return parses.get();
+    }
+
+    /**
+     * Gets the functions whose bodies took the longest to read
+     *
+     * @param count Maximum number of functions to return
+     * @return      Function names mapped to nanoseconds, slowest first
+     */
+    public Map<String, Long> getSlowestFunctions(int count) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(functionNanos.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        Map<String, Long> slowest = new LinkedHashMap<>();
+        for(Map.Entry<String, Long> entry : entries) {
+            if(slowest.size() >= count) {
+                break;
+            }
+            slowest.put(entry.getKey(), entry.getValue());
+        }
+        return slowest;
+    }
+}
@@ -0,0 +1,32 @@
+package tree;
+
+/**
+ * Parts of reading a script that are timed separately
+ */
+public enum ParsePhase {
+
+    /**
+     * Reading the input and cleaning its lines
+     */
+    PREPROCESS,
+
+    /**
+     * Reading globals blocks
+     */
+    GLOBALS,
+
+    /**
+     * Reading type declarations outside of the functions
+     */
+    TYPES,
+
+    /**
+     * Reading functions, natives, methods and the types between them
+     */
+    FUNCTIONS,
+
+    /**
+     * Reading libraries, scopes and structs, including the script inside of them
+     */
+    CONTAINERS
+}
@@ -0,0 +1,221 @@
+package tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Collects the results of independent sub-parses in source order.
+ * Without an executor every parse runs immediately on the calling thread;
+ * with one, parses run concurrently and join() waits for them in order.
+ *
+ * Small parses are grouped into batches of roughly BATCH_LINES lines
+ * so that scheduling does not cost more than the parse itself.
+ *
+ * join() never waits for a batch that has not started: it runs such
+ * batches itself, and the executor skips them. A parse can therefore be
+ * started from a thread of its own executor, even a bounded one with all
+ * other threads busy, without waiting on work that cannot start.
+ *
+ * @param <T>   Type of node produced by each parse
+ */
+public final class ParseTasks<T> {
+
+    /**
+     * Number of lines of code to gather before handing a batch to the executor
+     */
+    private static final int BATCH_LINES = 256;
+
+    private final TreeContext context;
+    private final Executor executor;
+    private final List<T> values;
+    private final List<Batch> batches;
+    private List<Supplier<T>> batch;
+    private int batchLines;
+
+    /**
+     * Creates a new task list for the given parse
+     *
+     * @param context   Tree context; its executor (if any) runs the parses
+     */
+    public ParseTasks(TreeContext context) {
+        this.context = context;
+        this.executor = context.getExecutor();
+        this.values = executor == null ? new ArrayList<>() : null;
+        this.batches = executor == null ? null : new ArrayList<>();
+        this.batch = new ArrayList<>();
+    }
+
+    /**
+     * Checks whether parses are run concurrently
+     *
+     * @return  True if submitted parses run on an executor; false if not.
+     */
+    public boolean isParallel() {
+        return executor != null;
+    }
+
+    /**
+     * Adds a node that is already parsed
+     *
+     * @param value Parsed node
+     */
+    public void add(T value) {
+        if(executor == null) {
+            values.add(value);
+        } else {
+            batch.add(() -> value);
+        }
+    }
+
+    /**
+     * Runs a parse, on the executor if there is one
+     *
+     * @param parse Parse producing a node
+     * @param lines Number of lines the parse reads
+     */
+    public void submit(Supplier<T> parse, int lines) {
+        if(executor == null) {
+            values.add(parse.get());
+            return;
+        }
+        batch.add(parse);
+        batchLines += lines;
+        if(batchLines >= BATCH_LINES) {
+            flush();
+        }
+    }
+
+    /**
+     * Waits for all parses and returns their results.
+     * Batches the executor has not started yet are run on the calling thread.
+     * If any parse failed, the first failure in source order is rethrown
+     * and parses that have not started yet are cancelled. The calling thread's
+     * last line is then the last line read by the failed parse.
+     *
+     * @return  Parsed nodes, in the order they were added
+     */
+    public List<T> join() {
+        if(executor == null) {
+            return values;
+        }
+        flush();
+        List<T> results = new ArrayList<>();
+        for(int i = 0; i < batches.size(); i++) {
+            try {
+                results.addAll(batches.get(i).join());
+            } catch (CompletionException ex) {
+                for(int j = i + 1; j < batches.size(); j++) {
+                    batches.get(j).cancel();
+                }
+                Throwable cause = ex.getCause();
+                if(cause instanceof TaskFailure) {
+                    context.setLastLine(((TaskFailure) cause).lastLine);
+                    cause = cause.getCause();
+                }
+                if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if(cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw ex;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Hands the current batch to the executor
+     */
+    private void flush() {
+        if(batch.isEmpty()) {
+            return;
+        }
+        Batch parses = new Batch(batch);
+        batches.add(parses);
+        try {
+            executor.execute(parses);
+        } catch (RejectedExecutionException ex) {
+            // join() runs it instead
+        }
+        batch = new ArrayList<>();
+        batchLines = 0;
+    }
+
+    /**
+     * Parses run together, by whichever comes first: a thread of the
+     * executor, or the thread that joins the results
+     */
+    private final class Batch implements Runnable {
+
+        private final List<Supplier<T>> parses;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<List<T>> result = new CompletableFuture<>();
+
+        private Batch(List<Supplier<T>> parses) {
+            this.parses = parses;
+        }
+
+        @Override
+        public void run() {
+            if(claimed.compareAndSet(false, true)) {
+                parse();
+            }
+        }
+
+        /**
+         * Gets the results, running the parses first if no thread has started them
+         *
+         * @return  Parsed nodes, in order
+         * @throws CompletionException If a parse failed
+         */
+        private List<T> join() {
+            run();
+            return result.join();
+        }
+
+        /**
+         * Keeps the parses from being started
+         */
+        private void cancel() {
+            if(claimed.compareAndSet(false, true)) {
+                result.cancel(false);
+            }
+        }
+
+        private void parse() {
+            String previous = context.getLastLine();
+            try {
+                List<T> results = new ArrayList<>(parses.size());
+                for(Supplier<T> parse : parses) {
+                    results.add(parse.get());
+                }
+                result.complete(results);
+            } catch (RuntimeException | Error ex) {
+                result.completeExceptionally(new TaskFailure(ex, context.getLastLine()));
+            } finally {
+                context.restoreLastLine(previous);
+            }
+        }
+    }
+
+    /**
+     * Carries a failure out of a task together with the last line the task read
+     */
+    private static final class TaskFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String lastLine;
+
+        private TaskFailure(Throwable cause, String lastLine) {
+            super(cause.getMessage(), cause, false, false);
+            this.lastLine = lastLine;
+        }
+    }
+}
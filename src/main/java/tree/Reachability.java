@@ -0,0 +1,446 @@
+package tree;
+
+import exception.ParsingException;
+import model.IsolateResult;
+import nodes.j.Script;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/**
+ * What every function of a script transitively depends on,
+ * and what transitively depends on it, computed for all functions at once.
+ *
+ * A function depends on the functions it calls or refers to, the
+ * functions those depend on, and the globals any of them read or write.
+ * Functions that call each other in a cycle (a strongly connected
+ * component of the call graph) depend on exactly the same things, so
+ * each cycle is collapsed and gets one row of bits: one for the functions
+ * it reaches and one for the globals they use. Rows are filled in
+ * topological order, one level of the collapsed graph at a time; with an
+ * executor, the components of a level are filled concurrently.
+ *
+ * Functions and globals have the ids of the CallGraph and UseDefIndex the
+ * closure was built from. Lookups only read the rows, so they can be made
+ * as often as needed. A closure describes the script at the revision it was
+ * built at; after the script changes, a new one has to be built.
+ */
+public final class Reachability {
+
+    /**
+     * Number of components each task fills when building on an executor
+     */
+    private static final int CHUNK_SIZE = 64;
+
+    private final Script script;
+    private final long revision;
+    private final CallGraph callGraph;
+    private final UseDefIndex index;
+    private final int[] componentOf;
+    private final int[][] members;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final BitSet[] reachedFunctions;
+    private final BitSet[] reachedGlobals;
+    private final BitSet[] reachingFunctions;
+
+    private Reachability(CallGraph callGraph, UseDefIndex index, int[] componentOf, int[][] members) {
+        this.script = callGraph.getScript();
+        this.revision = script.getRevision();
+        this.callGraph = callGraph;
+        this.index = index;
+        this.componentOf = componentOf;
+        this.members = members;
+        this.successors = new int[members.length][];
+        this.predecessors = new int[members.length][];
+        this.reachedFunctions = new BitSet[members.length];
+        this.reachedGlobals = new BitSet[members.length];
+        this.reachingFunctions = new BitSet[members.length];
+    }
+
+    /**
+     * Builds the closure of a script
+     *
+     * @param callGraph Call graph of the script
+     * @param index     Use-def index of the script
+     * @param executor  Executor to fill rows on, or null to fill them on the calling thread
+     * @return          Closure at the current revision of the script
+     */
+    public static Reachability of(CallGraph callGraph, UseDefIndex index, Executor executor) {
+        int[][] callees = new int[callGraph.size()][];
+        for(int id = 0; id < callees.length; id++) {
+            callees[id] = callGraph.callees(id);
+        }
+        int[] componentOf = new int[callees.length];
+        int[][] members = findComponents(callees, componentOf);
+        Reachability closure = new Reachability(callGraph, index, componentOf, members);
+        closure.linkComponents(callees);
+        int[] heights = closure.heights();
+        int[] depths = closure.depths();
+        runLevels(heights, closure::fillDependencies, executor);
+        runLevels(depths, closure::fillDependents, executor);
+        return closure;
+    }
+
+    /**
+     * Checks whether this closure still describes the script it was built from
+     *
+     * @return  True if no part of the script changed since this closure was built; false if not.
+     */
+    public boolean isCurrent() {
+        return revision == script.getRevision();
+    }
+
+    /**
+     * Gets the number of strongly connected components, cycles of
+     * functions that call each other counting as one
+     *
+     * @return  Number of components
+     */
+    public int componentCount() {
+        return members.length;
+    }
+
+    /**
+     * Gets the component a function is part of. Components are numbered
+     * so that a component only depends on components with lower numbers.
+     *
+     * @param id    Function id
+     * @return      Component number
+     */
+    public int componentOf(int id) {
+        return componentOf[id];
+    }
+
+    /**
+     * Gets the functions a function transitively calls or refers to,
+     * the function itself, and the globals all of them use
+     *
+     * @param id    Function id
+     * @return      Isolate result of the dependencies
+     */
+    public IsolateResult dependenciesOf(int id) {
+        int component = componentOf[id];
+        return toResult(reachedFunctions[component], reachedGlobals[component]);
+    }
+
+    /**
+     * Gets the functions with the given name, everything they transitively
+     * call or refer to, and the globals all of them use
+     *
+     * @param functionName  Function name
+     * @return              Isolate result of the dependencies
+     */
+    public IsolateResult dependenciesOf(String functionName) {
+        BitSet functions = new BitSet();
+        BitSet globals = new BitSet();
+        for(int id : selectFunction(functionName)) {
+            functions.or(reachedFunctions[componentOf[id]]);
+            globals.or(reachedGlobals[componentOf[id]]);
+        }
+        return toResult(functions, globals);
+    }
+
+    /**
+     * Gets the functions that transitively call or refer to a function,
+     * and the function itself. Globals are not part of the result.
+     *
+     * @param id    Function id
+     * @return      Isolate result of the dependents
+     */
+    public IsolateResult dependentsOf(int id) {
+        return toResult(reachingFunctions[componentOf[id]], new BitSet());
+    }
+
+    /**
+     * Gets the functions with the given name and the functions
+     * that transitively call or refer to them
+     *
+     * @param functionName  Function name
+     * @return              Isolate result of the dependents
+     */
+    public IsolateResult dependentsOf(String functionName) {
+        BitSet functions = new BitSet();
+        for(int id : selectFunction(functionName)) {
+            functions.or(reachingFunctions[componentOf[id]]);
+        }
+        return toResult(functions, new BitSet());
+    }
+
+    /**
+     * Gets a global and the functions that depend on it,
+     * either by using it or by transitively calling a function that does
+     *
+     * @param variableName  Global variable name
+     * @return              Isolate result of the dependents
+     */
+    public IsolateResult dependentsOfVariable(String variableName) {
+        int global = index.globalIdOf(variableName);
+        if(global < 0) {
+            throw new ParsingException("Expected to find global " + variableName + " but was not found.");
+        }
+        BitSet functions = new BitSet();
+        for(int user : index.users(global)) {
+            functions.or(reachingFunctions[componentOf[user]]);
+        }
+        BitSet globals = new BitSet();
+        globals.set(global);
+        return toResult(functions, globals);
+    }
+
+    private int[] selectFunction(String functionName) {
+        int[] ids = callGraph.idsOf(functionName);
+        if(ids.length == 0) {
+            throw new ParsingException("Expected to find function " + functionName + " but was not found.");
+        }
+        return ids;
+    }
+
+    private IsolateResult toResult(BitSet functions, BitSet globals) {
+        IsolateResult result = new IsolateResult();
+        for(int id = functions.nextSetBit(0); id >= 0; id = functions.nextSetBit(id + 1)) {
+            result.addFunction(callGraph.getFunction(id));
+        }
+        for(int global = globals.nextSetBit(0); global >= 0; global = globals.nextSetBit(global + 1)) {
+            result.addVariable(index.getGlobal(global));
+        }
+        return result;
+    }
+
+    /**
+     * Finds the strongly connected components of the call graph with
+     * Tarjan's algorithm, keeping its own stack so that long call chains
+     * cannot overflow the thread's stack. A component is completed only
+     * after every component it leads to, so they come out in reverse
+     * topological order.
+     *
+     * @param callees       Callees of every function
+     * @param componentOf   Receives the component of every function
+     * @return              Functions of every component, in ascending order
+     */
+    private static int[][] findComponents(int[][] callees, int[] componentOf) {
+        int count = callees.length;
+        int[] order = new int[count];
+        int[] lowest = new int[count];
+        int[] nextEdge = new int[count];
+        boolean[] onStack = new boolean[count];
+        int[] stack = new int[count];
+        int[] path = new int[count];
+        Arrays.fill(order, -1);
+        List<int[]> components = new ArrayList<>();
+        int visited = 0;
+        int stackSize = 0;
+        for(int root = 0; root < count; root++) {
+            if(order[root] >= 0) {
+                continue;
+            }
+            int pathSize = 0;
+            path[pathSize++] = root;
+            order[root] = lowest[root] = visited++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while(pathSize > 0) {
+                int function = path[pathSize - 1];
+                if(nextEdge[function] < callees[function].length) {
+                    int callee = callees[function][nextEdge[function]++];
+                    if(order[callee] < 0) {
+                        order[callee] = lowest[callee] = visited++;
+                        stack[stackSize++] = callee;
+                        onStack[callee] = true;
+                        path[pathSize++] = callee;
+                    } else if(onStack[callee]) {
+                        lowest[function] = Math.min(lowest[function], order[callee]);
+                    }
+                    continue;
+                }
+                pathSize--;
+                if(pathSize > 0) {
+                    int caller = path[pathSize - 1];
+                    lowest[caller] = Math.min(lowest[caller], lowest[function]);
+                }
+                if(lowest[function] == order[function]) {
+                    // Everything above the function on the stack forms its component
+                    int start = stackSize;
+                    do {
+                        start--;
+                    } while(stack[start] != function);
+                    int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                    Arrays.sort(component);
+                    for(int member : component) {
+                        onStack[member] = false;
+                        componentOf[member] = components.size();
+                    }
+                    components.add(component);
+                    stackSize = start;
+                }
+            }
+        }
+        return components.toArray(new int[0][]);
+    }
+
+    /**
+     * Finds the edges between components, without repeats
+     *
+     * @param callees   Callees of every function
+     */
+    private void linkComponents(int[][] callees) {
+        int[] lastSeen = new int[members.length];
+        Arrays.fill(lastSeen, -1);
+        List<List<Integer>> callers = new ArrayList<>(members.length);
+        for(int component = 0; component < members.length; component++) {
+            callers.add(new ArrayList<>());
+        }
+        for(int component = 0; component < members.length; component++) {
+            int[] found = new int[0];
+            int foundCount = 0;
+            lastSeen[component] = component;
+            for(int member : members[component]) {
+                for(int callee : callees[member]) {
+                    int target = componentOf[callee];
+                    if(lastSeen[target] != component) {
+                        lastSeen[target] = component;
+                        if(foundCount == found.length) {
+                            found = Arrays.copyOf(found, Math.max(4, foundCount * 2));
+                        }
+                        found[foundCount++] = target;
+                        callers.get(target).add(component);
+                    }
+                }
+            }
+            successors[component] = Arrays.copyOf(found, foundCount);
+        }
+        for(int component = 0; component < members.length; component++) {
+            List<Integer> found = callers.get(component);
+            predecessors[component] = new int[found.size()];
+            for(int i = 0; i < found.size(); i++) {
+                predecessors[component][i] = found.get(i);
+            }
+        }
+    }
+
+    /**
+     * Levels for filling dependencies: a component comes one level after
+     * the highest component it leads to. Successors have lower numbers.
+     */
+    private int[] heights() {
+        int[] heights = new int[members.length];
+        for(int component = 0; component < members.length; component++) {
+            for(int successor : successors[component]) {
+                heights[component] = Math.max(heights[component], heights[successor] + 1);
+            }
+        }
+        return heights;
+    }
+
+    /**
+     * Levels for filling dependents: a component comes one level after
+     * the deepest component leading to it. Predecessors have higher numbers.
+     */
+    private int[] depths() {
+        int[] depths = new int[members.length];
+        for(int component = members.length - 1; component >= 0; component--) {
+            for(int predecessor : predecessors[component]) {
+                depths[component] = Math.max(depths[component], depths[predecessor] + 1);
+            }
+        }
+        return depths;
+    }
+
+    private void fillDependencies(int component) {
+        BitSet functions = new BitSet();
+        BitSet globals = new BitSet();
+        for(int member : members[component]) {
+            functions.set(member);
+            for(int global : index.globalsUsedBy(member)) {
+                globals.set(global);
+            }
+        }
+        for(int successor : successors[component]) {
+            functions.or(reachedFunctions[successor]);
+            globals.or(reachedGlobals[successor]);
+        }
+        reachedFunctions[component] = functions;
+        reachedGlobals[component] = globals;
+    }
+
+    private void fillDependents(int component) {
+        BitSet functions = new BitSet();
+        for(int member : members[component]) {
+            functions.set(member);
+        }
+        for(int predecessor : predecessors[component]) {
+            functions.or(reachingFunctions[predecessor]);
+        }
+        reachingFunctions[component] = functions;
+    }
+
+    /**
+     * Fills the components level by level. Components of one level only
+     * read rows of lower levels, so they may be filled at the same time;
+     * waiting for a level makes its rows visible to the next one.
+     *
+     * @param levels    Level of every component
+     * @param fill      Fills the rows of one component
+     * @param executor  Executor to fill on, or null to fill on the calling thread
+     */
+    private static void runLevels(int[] levels, IntConsumer fill, Executor executor) {
+        int levelCount = 0;
+        for(int level : levels) {
+            levelCount = Math.max(levelCount, level + 1);
+        }
+        int[] starts = new int[levelCount + 1];
+        for(int level : levels) {
+            starts[level + 1]++;
+        }
+        for(int level = 0; level < levelCount; level++) {
+            starts[level + 1] += starts[level];
+        }
+        int[] byLevel = new int[levels.length];
+        int[] next = Arrays.copyOf(starts, levelCount);
+        for(int component = 0; component < levels.length; component++) {
+            byLevel[next[levels[component]]++] = component;
+        }
+        for(int level = 0; level < levelCount; level++) {
+            int from = starts[level];
+            int to = starts[level + 1];
+            if(executor == null || to - from < 2 * CHUNK_SIZE) {
+                fillRange(byLevel, from, to, fill);
+                continue;
+            }
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for(int start = from; start < to; start += CHUNK_SIZE) {
+                int chunkFrom = start;
+                int chunkTo = Math.min(start + CHUNK_SIZE, to);
+                chunks.add(CompletableFuture.runAsync(() -> fillRange(byLevel, chunkFrom, chunkTo, fill), executor));
+            }
+            for(CompletableFuture<Void> chunk : chunks) {
+                join(chunk);
+            }
+        }
+    }
+
+    private static void fillRange(int[] components, int from, int to, IntConsumer fill) {
+        for(int i = from; i < to; i++) {
+            fill.accept(components[i]);
+        }
+    }
+
+    private static void join(CompletableFuture<Void> chunk) {
+        try {
+            chunk.join();
+        } catch (CompletionException ex) {
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            } else if(ex.getCause() instanceof Error) {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
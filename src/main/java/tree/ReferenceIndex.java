@@ -0,0 +1,261 @@
+package tree;
+
+import interfaces.IFunctionRenameable;
+import nodes.AbstractFunction;
+import nodes.AbstractStatement;
+import nodes.arguments.Argument;
+import nodes.arguments.ArgumentType;
+import nodes.arguments.BasicArgument;
+import nodes.arguments.FunctionCallArgument;
+import nodes.functions.Function;
+import nodes.functions.FunctionCall;
+import nodes.functions.IfStatement;
+import nodes.functions.LocalStatement;
+import nodes.functions.LoopStatement;
+import nodes.functions.SetStatement;
+import nodes.functions.Statements;
+import nodes.j.Script;
+import nodes.j.Variable;
+import nodes.vjass.Method;
+import nodes.vjass.ScriptContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every place a name is written in a script, so that a rename only
+ * has to visit the parts that mention the name.
+ *
+ * Names are kept apart by what can rename them: variable declarations
+ * (globals and locals) by variable renames, function declarations and
+ * the names of called functions by function renames, and basic arguments
+ * (which may be either, like x or function x) by both. The index covers
+ * the globals and functions at the top of the script and those inside of
+ * libraries, scopes and structs, so a rename reaches all of them.
+ *
+ * An index describes the script at the revision it was built at;
+ * renames made through it keep it current, and SyntaxTree builds
+ * a new one after other changes to the script.
+ */
+public final class ReferenceIndex {
+
+    private static final String REFERENCE_PREFIX = "function ";
+
+    private final Script script;
+    private final Map<String, List<Variable>> variables;
+    private final Map<String, List<IFunctionRenameable>> functions;
+    private final Map<String, List<BasicArgument>> arguments;
+    private long revision;
+
+    private ReferenceIndex(Script script) {
+        this.script = script;
+        this.variables = new HashMap<>();
+        this.functions = new HashMap<>();
+        this.arguments = new HashMap<>();
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Builds the reference index of a script
+     *
+     * @param script    Script to index
+     * @return          Reference index at the current revision of the script
+     */
+    public static ReferenceIndex of(Script script) {
+        ReferenceIndex index = new ReferenceIndex(script);
+        index.addScript(script);
+        return index;
+    }
+
+    /**
+     * Checks whether this index still describes the script it was built from
+     *
+     * @return  True if no part of the script changed since this index was last updated; false if not.
+     */
+    public boolean isCurrent() {
+        return revision == script.getRevision();
+    }
+
+    /**
+     * Counts the places a name is written, as a variable, a function or either
+     *
+     * @param name  Variable or function name
+     * @return      Number of declarations, calls and arguments with the name
+     */
+    public int countReferences(String name) {
+        return sizeOf(variables.get(name)) + sizeOf(functions.get(name)) + sizeOf(arguments.get(name));
+    }
+
+    /**
+     * Renames a variable and all uses of it, visiting only the parts that mention it
+     *
+     * @param oldVariableName   Existing variable name
+     * @param newVariableName   Desired variable name
+     */
+    public void renameVariable(String oldVariableName, String newVariableName) {
+        if(!oldVariableName.equals(newVariableName)) {
+            List<Variable> declarations = variables.remove(oldVariableName);
+            if(declarations != null) {
+                for(Variable variable : declarations) {
+                    variable.renameVariable(oldVariableName, newVariableName);
+                }
+                variables.computeIfAbsent(newVariableName, name -> new ArrayList<>()).addAll(declarations);
+            }
+            renameArguments(oldVariableName, newVariableName);
+        }
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Renames a function and all uses of it, visiting only the parts that mention it
+     *
+     * @param oldFunctionName   Existing function name
+     * @param newFunctionName   Desired function name
+     */
+    public void renameFunction(String oldFunctionName, String newFunctionName) {
+        if(!oldFunctionName.equals(newFunctionName)) {
+            List<IFunctionRenameable> uses = functions.remove(oldFunctionName);
+            if(uses != null) {
+                for(IFunctionRenameable use : uses) {
+                    use.renameFunction(oldFunctionName, newFunctionName);
+                }
+                functions.computeIfAbsent(newFunctionName, name -> new ArrayList<>()).addAll(uses);
+            }
+            renameArguments(oldFunctionName, newFunctionName);
+        }
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Renames the basic arguments written as the name, or as function name
+     */
+    private void renameArguments(String oldName, String newName) {
+        List<BasicArgument> uses = arguments.remove(oldName);
+        if(uses != null) {
+            for(BasicArgument argument : uses) {
+                argument.renameVariable(oldName, newName);
+            }
+            arguments.computeIfAbsent(newName, name -> new ArrayList<>()).addAll(uses);
+        }
+    }
+
+    /**
+     * Adds the names of a script and of the containers inside of it
+     *
+     * @param script    Script to add
+     */
+    private void addScript(Script script) {
+        if(script.getGlobalsSection() != null) {
+            for(Variable variable : script.getGlobalsSection().getGlobalVariables()) {
+                addVariable(variable);
+            }
+        }
+        if(script.getFunctionsSection() != null) {
+            for(AbstractFunction function : script.getFunctionsSection().getFunctions()) {
+                addFunction(function);
+            }
+        }
+        addContainers(script.getLibraries());
+        addContainers(script.getScopes());
+        addContainers(script.getStructs());
+    }
+
+    private void addContainers(List<? extends ScriptContainer> containers) {
+        for(ScriptContainer container : containers) {
+            addScript(container.getInnerScript());
+        }
+    }
+
+    private void addVariable(Variable variable) {
+        variables.computeIfAbsent(variable.getName(), name -> new ArrayList<>()).add(variable);
+        if(variable.getInitialValue() != null) {
+            addExpression(variable.getInitialValue());
+        }
+    }
+
+    private void addFunction(AbstractFunction function) {
+        if(function instanceof Function) {
+            Function body = (Function) function;
+            addFunctionName(body.getFunctionDeclaration().getName(), body.getFunctionDeclaration());
+            addStatements(body.getStatements());
+        } else if(function instanceof Method) {
+            Method body = (Method) function;
+            addFunctionName(body.getFunctionDeclaration().getName(), body.getFunctionDeclaration());
+            addStatements(body.getStatements());
+        } else {
+            // Natives and types are declared by name only
+            addFunctionName(function.getName(), function);
+        }
+    }
+
+    private void addFunctionName(String name, IFunctionRenameable use) {
+        functions.computeIfAbsent(name, key -> new ArrayList<>()).add(use);
+    }
+
+    /**
+     * Adds the names in a block of statements and the blocks inside of it
+     *
+     * @param statements    Statements to add
+     */
+    private void addStatements(Statements statements) {
+        if(statements == null) {
+            return;
+        }
+        for(AbstractStatement statement : statements.getStatements()) {
+            if(statement instanceof SetStatement) {
+                addExpression(((SetStatement) statement).getTarget());
+                addExpression(((SetStatement) statement).getValueArgument());
+            } else if(statement instanceof IfStatement) {
+                IfStatement ifStatement = (IfStatement) statement;
+                if(ifStatement.getCondition() != null) {
+                    addExpression(ifStatement.getCondition());
+                }
+                addStatements(ifStatement.getThenStatements());
+                for(Argument condition : ifStatement.getElseifConditions()) {
+                    addExpression(condition);
+                }
+                for(Statements elseifStatements : ifStatement.getElseifStatements()) {
+                    addStatements(elseifStatements);
+                }
+                addStatements(ifStatement.getElseStatements());
+            } else if(statement instanceof LoopStatement) {
+                addStatements(((LoopStatement) statement).getStatements());
+            } else if(statement instanceof LocalStatement) {
+                addVariable(((LocalStatement) statement).getLocalVariable());
+            } else {
+                addParts(statement.getArguments());
+            }
+        }
+    }
+
+    private void addExpression(Argument expression) {
+        addParts(expression.getArguments());
+    }
+
+    /**
+     * Adds the names of an expression that was broken into its basic parts
+     *
+     * @param parts Basic and function call arguments
+     */
+    private void addParts(List<Argument> parts) {
+        for(Argument part : parts) {
+            ArgumentType type = part.getArgumentType();
+            if(type instanceof BasicArgument) {
+                String content = ((BasicArgument) type).getContent();
+                if(content.startsWith(REFERENCE_PREFIX)) {
+                    content = content.substring(REFERENCE_PREFIX.length());
+                }
+                arguments.computeIfAbsent(content, name -> new ArrayList<>()).add((BasicArgument) type);
+            } else if(type instanceof FunctionCallArgument) {
+                FunctionCall call = ((FunctionCallArgument) type).getFunctionCall();
+                addFunctionName(call.getFunctionName(), call::renameCalledFunction);
+            }
+        }
+    }
+
+    private static int sizeOf(List<?> references) {
+        return references == null ? 0 : references.size();
+    }
+}
@@ -0,0 +1,384 @@
+package tree;
+
+import nodes.AbstractFunction;
+import nodes.functions.Function;
+import nodes.functions.NativeFunction;
+import nodes.functions.TypeDeclaration;
+import nodes.j.Script;
+import nodes.j.Variable;
+import nodes.vjass.Method;
+import nodes.vjass.ScriptContainer;
+import nodes.vjass.Struct;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of everything declared in a script, by name.
+ *
+ * Declarations at the top of the script come first, followed by those
+ * inside of libraries, scopes and structs, in that order. When a name is
+ * declared more than once, the first declaration is kept.
+ * Methods of a struct are found as StructName.methodName.
+ *
+ * The declarations at the top and those inside of containers are kept
+ * apart, so that a merge, which only changes the top of the script, only
+ * has to read the top again. Renames update the entries of the renamed
+ * name in place.
+ *
+ * A table describes the script at the revision it was built at;
+ * SyntaxTree keeps it current through single renames, merges and adding
+ * function main, and builds a new one after other changes.
+ */
+public final class SymbolTable {
+
+    private final Script script;
+    private long revision;
+    private Declarations top;
+    private final Declarations inner;
+    private final List<AbstractFunction> functionList;
+    private final List<Variable> globalList;
+
+    private SymbolTable(Script script) {
+        this.script = script;
+        this.revision = script.getRevision();
+        this.top = new Declarations();
+        this.inner = new Declarations();
+        this.functionList = new ArrayList<>();
+        this.globalList = new ArrayList<>();
+    }
+
+    /**
+     * Builds the symbol table of a script
+     *
+     * @param script    Script to index
+     * @return          Symbol table at the current revision of the script
+     */
+    public static SymbolTable of(Script script) {
+        SymbolTable table = new SymbolTable(script);
+        table.top.addScript(script, null);
+        table.addContainers(script);
+        table.joinLists();
+        return table;
+    }
+
+    /**
+     * Checks whether this table still describes the script it was built from
+     *
+     * @return  True if no part of the script changed since this table was last updated; false if not.
+     */
+    public boolean isCurrent() {
+        return revision == script.getRevision();
+    }
+
+    /**
+     * Finds a global variable by name
+     *
+     * @param name  Variable name
+     * @return      Global variable, or null if there is none
+     */
+    public Variable findGlobal(String name) {
+        return find(top.globals, inner.globals, name);
+    }
+
+    /**
+     * Finds any function-like declaration by name: a function,
+     * native, method or type declared among the functions
+     *
+     * @param name  Function name
+     * @return      Function, or null if there is none
+     */
+    public AbstractFunction findFunction(String name) {
+        return find(top.functions, inner.functions, name);
+    }
+
+    /**
+     * Finds a native function by name
+     *
+     * @param name  Native name
+     * @return      Native function, or null if there is none
+     */
+    public NativeFunction findNative(String name) {
+        return find(top.natives, inner.natives, name);
+    }
+
+    /**
+     * Finds a type declaration by name
+     *
+     * @param name  Type name
+     * @return      Type declaration, or null if there is none
+     */
+    public TypeDeclaration findType(String name) {
+        return find(top.types, inner.types, name);
+    }
+
+    /**
+     * Finds a method by name. Methods of a struct are named StructName.methodName.
+     *
+     * @param name  Method name
+     * @return      Method, or null if there is none
+     */
+    public Method findMethod(String name) {
+        return find(top.methods, inner.methods, name);
+    }
+
+    /**
+     * Gets everything findFunction can find, in declaration order.
+     * Unlike the lookups, this includes repeated declarations of a name.
+     *
+     * @return  Functions, natives, methods and types among the functions
+     */
+    public List<AbstractFunction> getFunctions() {
+        return Collections.unmodifiableList(functionList);
+    }
+
+    /**
+     * Gets the global variables findGlobal can find, in declaration order
+     *
+     * @return  First declaration of every global variable
+     */
+    public List<Variable> getGlobals() {
+        return Collections.unmodifiableList(globalList);
+    }
+
+    /**
+     * Updates the table after a variable and all uses of it were renamed.
+     * The table is left out of date when the new name was already declared,
+     * since which declaration comes first then changes.
+     *
+     * @param oldVariableName   Previous variable name
+     * @param newVariableName   New variable name
+     */
+    void renameVariable(String oldVariableName, String newVariableName) {
+        if(!oldVariableName.equals(newVariableName)) {
+            if(top.globals.containsKey(newVariableName) || inner.globals.containsKey(newVariableName)
+                    || !top.canRenameGlobal(oldVariableName, newVariableName)
+                    || !inner.canRenameGlobal(oldVariableName, newVariableName)) {
+                return;
+            }
+            top.renameGlobal(oldVariableName, newVariableName);
+            inner.renameGlobal(oldVariableName, newVariableName);
+        }
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Updates the table after a function and all uses of it were renamed.
+     * The table is left out of date when the new name was already declared,
+     * or when a declaration with the old name was not renamed.
+     *
+     * @param oldFunctionName   Previous function name
+     * @param newFunctionName   New function name
+     */
+    void renameFunction(String oldFunctionName, String newFunctionName) {
+        if(!oldFunctionName.equals(newFunctionName)) {
+            if(top.declaresFunction(newFunctionName) || inner.declaresFunction(newFunctionName)
+                    || !top.canRenameFunction(oldFunctionName, newFunctionName)
+                    || !inner.canRenameFunction(oldFunctionName, newFunctionName)) {
+                return;
+            }
+            top.renameFunction(oldFunctionName, newFunctionName);
+            inner.renameFunction(oldFunctionName, newFunctionName);
+        }
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Updates the table after the globals and functions at the top of the
+     * script were merged with those of another script. The declarations
+     * inside of containers are kept as they are.
+     */
+    void mergedTop() {
+        this.top = new Declarations();
+        top.addScript(script, null);
+        joinLists();
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Updates the table after function main was added to the end of the
+     * functions at the top of the script
+     */
+    void addedFunctionMain() {
+        List<AbstractFunction> functions = script.getFunctionsSection().getFunctions();
+        AbstractFunction main = functions.get(functions.size() - 1);
+        functionList.add(top.functionList.size(), main);
+        top.addFunction(main, null);
+        this.revision = script.getRevision();
+    }
+
+    /**
+     * Adds the declarations inside of the containers of a script, and of the containers inside of those
+     *
+     * @param script    Script to add the containers of
+     */
+    private void addContainers(Script script) {
+        for(ScriptContainer container : script.getLibraries()) {
+            addContainer(container.getInnerScript(), null);
+        }
+        for(ScriptContainer container : script.getScopes()) {
+            addContainer(container.getInnerScript(), null);
+        }
+        for(Struct struct : script.getStructs()) {
+            addContainer(struct.getInnerScript(), struct);
+        }
+    }
+
+    private void addContainer(Script innerScript, Struct struct) {
+        inner.addScript(innerScript, struct);
+        addContainers(innerScript);
+    }
+
+    /**
+     * Fills the lists of all declarations from the top and the containers.
+     * A global inside of a container is left out when the top declares the same name.
+     */
+    private void joinLists() {
+        functionList.clear();
+        functionList.addAll(top.functionList);
+        functionList.addAll(inner.functionList);
+        globalList.clear();
+        globalList.addAll(top.globalList);
+        for(Variable variable : inner.globalList) {
+            if(!top.globals.containsKey(variable.getName())) {
+                globalList.add(variable);
+            }
+        }
+    }
+
+    private static <T> T find(Map<String, T> first, Map<String, T> second, String name) {
+        T found = first.get(name);
+        return found != null ? found : second.get(name);
+    }
+
+    /**
+     * Declarations of one part of the script, by name
+     */
+    private static final class Declarations {
+
+        private final Map<String, Variable> globals = new HashMap<>();
+        private final Map<String, AbstractFunction> functions = new HashMap<>();
+        private final Map<String, NativeFunction> natives = new HashMap<>();
+        private final Map<String, TypeDeclaration> types = new HashMap<>();
+        private final Map<String, Method> methods = new HashMap<>();
+        /**
+         * Keys of methods, by the name of the method alone
+         */
+        private final Map<String, List<String>> methodKeys = new HashMap<>();
+        private final List<AbstractFunction> functionList = new ArrayList<>();
+        private final List<Variable> globalList = new ArrayList<>();
+
+        /**
+         * Adds the declarations of a script, but not of the containers inside of it
+         *
+         * @param script    Script to add
+         * @param struct    Struct the script is the body of, or null
+         */
+        private void addScript(Script script, Struct struct) {
+            if(script.getGlobalsSection() != null) {
+                for(Variable variable : script.getGlobalsSection().getGlobalVariables()) {
+                    if(globals.putIfAbsent(variable.getName(), variable) == null) {
+                        globalList.add(variable);
+                    }
+                }
+            }
+            if(script.getTypes() != null) {
+                for(TypeDeclaration type : script.getTypes()) {
+                    types.putIfAbsent(type.getName(), type);
+                }
+            }
+            if(script.getFunctionsSection() != null) {
+                for(AbstractFunction function : script.getFunctionsSection().getFunctions()) {
+                    addFunction(function, struct);
+                }
+            }
+        }
+
+        /**
+         * Adds one entry of a functions section
+         *
+         * @param function  Function, native, method or type
+         * @param struct    Struct the function is declared in, or null
+         */
+        private void addFunction(AbstractFunction function, Struct struct) {
+            String name = function.getName();
+            if(function instanceof Method) {
+                String key = struct == null ? name : struct.getName() + "." + name;
+                if(methods.putIfAbsent(key, (Method) function) == null) {
+                    methodKeys.computeIfAbsent(name, plain -> new ArrayList<>()).add(key);
+                }
+            } else if(function instanceof NativeFunction) {
+                natives.putIfAbsent(name, (NativeFunction) function);
+            } else if(function instanceof TypeDeclaration) {
+                types.putIfAbsent(name, (TypeDeclaration) function);
+            }
+            if(struct == null || function instanceof Function) {
+                functions.putIfAbsent(name, function);
+                functionList.add(function);
+            }
+        }
+
+        private boolean declaresFunction(String name) {
+            return functions.containsKey(name) || natives.containsKey(name)
+                    || types.containsKey(name) || methodKeys.containsKey(name);
+        }
+
+        private boolean canRenameGlobal(String oldName, String newName) {
+            return isRenamed(globals.get(oldName), newName);
+        }
+
+        private void renameGlobal(String oldName, String newName) {
+            move(globals, oldName, newName);
+        }
+
+        /**
+         * Checks that every declaration found under the old name now has the new name
+         */
+        private boolean canRenameFunction(String oldName, String newName) {
+            boolean renamed = isRenamed(functions.get(oldName), newName) && isRenamed(natives.get(oldName), newName)
+                    && isRenamed(types.get(oldName), newName);
+            List<String> keys = methodKeys.get(oldName);
+            if(keys != null) {
+                for(String key : keys) {
+                    renamed &= isRenamed(methods.get(key), newName);
+                }
+            }
+            return renamed;
+        }
+
+        private void renameFunction(String oldName, String newName) {
+            move(functions, oldName, newName);
+            move(natives, oldName, newName);
+            move(types, oldName, newName);
+            List<String> keys = methodKeys.remove(oldName);
+            if(keys != null) {
+                List<String> renamedKeys = new ArrayList<>(keys.size());
+                for(String key : keys) {
+                    // StructName.methodName, or the name alone outside of structs
+                    String renamedKey = key.substring(0, key.length() - oldName.length()) + newName;
+                    methods.put(renamedKey, methods.remove(key));
+                    renamedKeys.add(renamedKey);
+                }
+                methodKeys.put(newName, renamedKeys);
+            }
+        }
+
+        private static boolean isRenamed(AbstractFunction declaration, String newName) {
+            return declaration == null || declaration.getName().equals(newName);
+        }
+
+        private static boolean isRenamed(Variable declaration, String newName) {
+            return declaration == null || declaration.getName().equals(newName);
+        }
+
+        private static <T> void move(Map<String, T> declarations, String oldName, String newName) {
+            T declaration = declarations.remove(oldName);
+            if(declaration != null) {
+                declarations.put(newName, declaration);
+            }
+        }
+    }
+}
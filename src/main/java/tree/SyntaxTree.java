@@ -8,23 +8,37 @@ import interfaces.IPreprocessFileService;
 import interfaces.IRandomNameGeneratorService;
 import model.IsolateResult;
 import nodes.functions.Function;
+import nodes.functions.NativeFunction;
 import nodes.functions.TypeDeclaration;
 import nodes.j.FunctionsSection;
 import nodes.j.GlobalsSection;
 import services.RandomNameGeneratorService;
 import nodes.AbstractFunction;
 import nodes.j.Script;
-import services.PreprocessFileService;
+import services.SyntaxTreeServices;
 import interfaces.ISyntaxTree;
 import nodes.j.Variable;
-import org.apache.commons.io.FileUtils;
+import nodes.vjass.Method;
+import parser.LineStream;
 
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 
 /**
  * Represents a syntactically-correct and correctly-formatted
@@ -33,6 +47,10 @@ import java.util.Scanner;
 public final class SyntaxTree implements ISyntaxTree {
 
     private Script script;
+    private volatile SymbolTable symbols;
+    private volatile CallGraph callGraph;
+    private volatile UseDefIndex useDefIndex;
+    private volatile ReferenceIndex references;
 
     /**
      * Creates a new SyntaxTree from a pre-existing Script file.
@@ -41,19 +59,21 @@ public final class SyntaxTree implements ISyntaxTree {
      */
     public SyntaxTree(Script script) {
         this.script = script;
+        this.symbols = SymbolTable.of(script);
     }
 
     public static SyntaxTree from(IsolateResult isolateResult) {
         List<AbstractFunction> functions = new ArrayList<>(isolateResult.getIsolatedFunctions());
         List<Variable> variables = new ArrayList<>(isolateResult.getIsolatedVariables());
+        TreeContext context = new TreeContext();
         return new SyntaxTree(
                 new Script(
                         new GlobalsSection(variables,
-                                new TreeContext()),
+                                context),
                         new FunctionsSection(functions,
-                                new TreeContext()),
+                                context),
                         new ArrayList<>(),
-                        new TreeContext()));
+                        context));
     }
 
     /**
@@ -63,11 +83,79 @@ public final class SyntaxTree implements ISyntaxTree {
      * @return      Read syntax tree
      */
     public static ISyntaxTree readTree(String input) {
-        TreeContext context = new TreeContext();
-        IPreprocessFileService preprocessor = new PreprocessFileService();
+        return readTree(new StringReader(input));
+    }
+
+    /**
+     * Reads a SyntaxTree from a full, provides script String
+     * using the given context, for example TreeContext.parallel()
+     *
+     * @param input     Input Script
+     * @param context   Tree context for this parse
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(String input, TreeContext context) {
+        return readTree(new StringReader(input), context);
+    }
+
+    /**
+     * Reads a SyntaxTree from a full, provides script Reader.
+     * The reader is consumed but not closed.
+     *
+     * @param input Input Script (reader)
+     * @return      Read syntax tree
+     */
+    public static ISyntaxTree readTree(Reader input) {
+        return readTree(input, new TreeContext());
+    }
+
+    /**
+     * Reads a SyntaxTree from a full, provides script Reader
+     * using the given context, for example TreeContext.parallel()
+     * The reader is consumed but not closed.
+     *
+     * @param input     Input Script (reader)
+     * @param context   Tree context for this parse
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(Reader input, TreeContext context) {
+        return readTree(input, context, -1);
+    }
+
+    /**
+     * Reads a SyntaxTree from a full script
+     *
+     * @param input     Input Script (reader)
+     * @param context   Tree context for this parse
+     * @param bytes     Number of bytes the reader decodes, or -1 to count the characters it returns
+     * @return          Read syntax tree
+     */
+    private static ISyntaxTree readTree(Reader input, TreeContext context, long bytes) {
+        IPreprocessFileService preprocessor = SyntaxTreeServices.defaultPreprocessor();
+        ParseListener listener = context.getListener();
+        long start = listener == null ? 0 : System.nanoTime();
         try {
-            Script script = new Script(preprocessor.preprocessFile(new Scanner(input)), context);
+            LineStream stream;
+            if(listener == null) {
+                stream = LineStream.of(preprocessor.preprocessLines(input));
+            } else if(bytes >= 0) {
+                stream = LineStream.of(preprocessor.preprocessLines(input));
+                listener.bytesRead(bytes);
+                listener.phaseFinished(ParsePhase.PREPROCESS, System.nanoTime() - start);
+            } else {
+                CountingReader counted = new CountingReader(input);
+                stream = LineStream.of(preprocessor.preprocessLines(counted));
+                listener.charactersRead(counted.characters);
+                listener.phaseFinished(ParsePhase.PREPROCESS, System.nanoTime() - start);
+            }
+            Script script = new Script(stream, context);
+            if(stream.hasNextLine()) {
+                throw new ParsingException("Expected EOF, got " + stream.nextLine());
+            }
             ISyntaxTree tree = new SyntaxTree(script);
+            if(listener != null) {
+                listener.parseFinished(System.nanoTime() - start);
+            }
             return tree;
         } catch (Exception ex) {
             ex.printStackTrace();
@@ -77,35 +165,149 @@ public final class SyntaxTree implements ISyntaxTree {
 
     /**
      * Reads a SyntaxTree from a full, provides script File
+     * using the platform default charset.
      *
      * @param inputFile Input Script (file)
      * @return          Read syntax tree
      */
     public static ISyntaxTree readTree(File inputFile) {
-        try {
-            return readTree(FileUtils.readFileToString(inputFile, Charset.defaultCharset()));
+        return readTree(inputFile.toPath(), Charset.defaultCharset());
+    }
+
+    /**
+     * Reads a SyntaxTree from a full, provides UTF-8 script file
+     *
+     * @param inputPath Input Script (path)
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(Path inputPath) {
+        return readTree(inputPath, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a SyntaxTree from a full, provides script file.
+     * The file is memory-mapped and decoded while it is parsed,
+     * so it is never held in memory as a whole String.
+     *
+     * @param inputPath Input Script (path)
+     * @param charset   Charset the file is encoded in
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(Path inputPath, Charset charset) {
+        return readTree(inputPath, charset, new TreeContext());
+    }
+
+    /**
+     * Reads a SyntaxTree from a full, provides script file
+     * using the given context, for example TreeContext.parallel()
+     * The file is memory-mapped and decoded while it is parsed.
+     *
+     * @param inputPath Input Script (path)
+     * @param charset   Charset the file is encoded in
+     * @param context   Tree context for this parse
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(Path inputPath, Charset charset, TreeContext context) {
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         } catch (Exception ex) {
             throw new ParsingException(ex);
         }
+        return readTree(buffer, charset, context);
+    }
+
+    /**
+     * Reads a SyntaxTree from the remaining bytes of a UTF-8 buffer
+     *
+     * @param input Input Script (bytes)
+     * @return      Read syntax tree
+     */
+    public static ISyntaxTree readTree(ByteBuffer input) {
+        return readTree(input, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a SyntaxTree from the remaining bytes of a buffer.
+     * Bytes are decoded as they are parsed; the position of
+     * the buffer is not changed.
+     *
+     * @param input     Input Script (bytes)
+     * @param charset   Charset the bytes are encoded in
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(ByteBuffer input, Charset charset) {
+        return readTree(input, charset, new TreeContext());
+    }
+
+    /**
+     * Reads a SyntaxTree from the remaining bytes of a buffer
+     * using the given context, for example TreeContext.parallel()
+     * A parse listener is told the number of bytes rather than characters.
+     *
+     * @param input     Input Script (bytes)
+     * @param charset   Charset the bytes are encoded in
+     * @param context   Tree context for this parse
+     * @return          Read syntax tree
+     */
+    public static ISyntaxTree readTree(ByteBuffer input, Charset charset, TreeContext context) {
+        return readTree(new ByteBufferReader(input, charset), context, input.remaining());
     }
 
     /**
-     * Writes this SyntaxTree out to a file.
+     * Writes this SyntaxTree out to a file
+     * using the platform default charset.
      *
      * @param file  File path to write to
      */
     @Override
     public final void write(File file) {
-        try {
-            PrintWriter writer = new PrintWriter(file);
-            writer.println(script.toString());
-            writer.flush();
-            writer.close();
+        write(file.toPath(), Charset.defaultCharset());
+    }
+
+    /**
+     * Writes this SyntaxTree out to a UTF-8 file.
+     *
+     * @param path  File path to write to
+     */
+    @Override
+    public final void write(Path path) {
+        write(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes this SyntaxTree out to a file, followed by a line separator.
+     * The script is streamed through a buffered writer node by node,
+     * so memory used for writing does not grow with the script.
+     *
+     * @param path      File path to write to
+     * @param charset   Charset to encode the file in
+     */
+    @Override
+    public final void write(Path path, Charset charset) {
+        try(Writer writer = Files.newBufferedWriter(path, charset)) {
+            script.writeTo(writer);
+            writer.write(System.lineSeparator());
         } catch (Exception ex) {
             throw new WritingException(ex);
         }
     }
 
+    /**
+     * Writes this SyntaxTree to any destination, without a trailing newline.
+     *
+     * @param output    Destination for the code
+     */
+    @Override
+    public final void writeTo(Appendable output) {
+        try {
+            script.writeTo(output);
+        } catch (IOException ex) {
+            throw new WritingException(ex);
+        }
+    }
+
     /**
      * Combines this SyntaxTree with another and then checks
      * for errors. Gracefully handles function main.
@@ -114,38 +316,78 @@ public final class SyntaxTree implements ISyntaxTree {
      */
     @Override
     public final void merge(ISyntaxTree other) {
+        SymbolTable table = symbols;
+        boolean tableCurrent = table.isCurrent();
         try {
             this.script.merge(other.getScript());
         } catch (Exception ex) {
             throw new MergeFailureException(ex);
         }
+        if(tableCurrent) {
+            table.mergedTop();
+        }
     }
 
     /**
-     * Changes the name of a variable from old to new name
+     * Changes the name of a variable from old to new name, also inside of
+     * libraries, scopes and structs. Only the parts of the script that
+     * mention the name are visited.
      *
      * @param oldVariableName   Existing variable name
      * @param newVariableName   New variable name
      */
     @Override
     public final void renameVariable(String oldVariableName, String newVariableName) {
+        SymbolTable table = symbols;
+        boolean tableCurrent = table.isCurrent();
         try {
-            this.script.renameVariable(oldVariableName, newVariableName);
+            getReferences().renameVariable(oldVariableName, newVariableName);
         } catch (Exception ex) {
             throw new RenameFailureException(ex);
         }
+        if(tableCurrent) {
+            table.renameVariable(oldVariableName, newVariableName);
+        }
     }
 
     /**
-     * Changes the name of a function from old to new name
+     * Changes the name of a function from old to new name, also inside of
+     * libraries, scopes and structs. Only the parts of the script that
+     * mention the name are visited.
      *
      * @param oldFunctionName Existing function name
      * @param newFunctionName New function name
      */
     @Override
     public final void renameFunction(String oldFunctionName, String newFunctionName) {
+        CallGraph graph = callGraph;
+        boolean graphCurrent = graph != null && graph.isCurrent();
+        SymbolTable table = symbols;
+        boolean tableCurrent = table.isCurrent();
+        try {
+            getReferences().renameFunction(oldFunctionName, newFunctionName);
+        } catch (Exception ex) {
+            throw new RenameFailureException(ex);
+        }
+        if(graphCurrent && !graph.renameFunction(oldFunctionName, newFunctionName)) {
+            callGraph = null;
+        }
+        if(tableCurrent) {
+            table.renameFunction(oldFunctionName, newFunctionName);
+        }
+    }
+
+    /**
+     * Changes the names of many variables and functions in one pass
+     * over the tree.
+     *
+     * @param variables Existing variable names mapped to new names
+     * @param functions Existing function names mapped to new names
+     */
+    @Override
+    public final void renameAll(Map<String, String> variables, Map<String, String> functions) {
         try {
-            this.script.renameFunction(oldFunctionName, newFunctionName);
+            this.script.renameAll(variables, functions);
         } catch (Exception ex) {
             throw new RenameFailureException(ex);
         }
@@ -156,11 +398,16 @@ public final class SyntaxTree implements ISyntaxTree {
      */
     @Override
     public ISyntaxTree postprocess() {
-        String script = this.toString();
-        while(script.contains("\n\n")) {
-            script = script.replace("\n\n", "\n");
+        String text = this.toString();
+        // Remove empty lines, in one pass over the script
+        StringBuilder script = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c != '\n' || script.length() == 0 || script.charAt(script.length() - 1) != '\n') {
+                script.append(c);
+            }
         }
-        return SyntaxTree.readTree(script);
+        return SyntaxTree.readTree(script.toString());
     }
 
     /**
@@ -180,16 +427,21 @@ public final class SyntaxTree implements ISyntaxTree {
      */
     @Override
     public final void deduplicate(IRandomNameGeneratorService generator) {
-        List<Variable> variables = script.getGlobalsSection().getGlobalVariables();
-        List<AbstractFunction> functions = script.getFunctionsSection().getFunctions();
-        for(Variable var : variables) {
-            renameVariable(var.getName(), generator.next());
+        Map<String, String> variables = new HashMap<>();
+        Map<String, String> functions = new HashMap<>();
+        if(script.getGlobalsSection() != null) {
+            for(Variable var : script.getGlobalsSection().getGlobalVariables()) {
+                variables.putIfAbsent(var.getName(), generator.next());
+            }
         }
-        for(AbstractFunction function : functions) {
-            if(!function.getName().equals("main")) {
-                renameFunction(function.getName(), generator.next());
+        if(script.getFunctionsSection() != null) {
+            for(AbstractFunction function : script.getFunctionsSection().getFunctions()) {
+                if(!function.getName().equals("main")) {
+                    functions.putIfAbsent(function.getName(), generator.next());
+                }
             }
         }
+        renameAll(variables, functions);
     }
 
     /**
@@ -243,6 +495,127 @@ public final class SyntaxTree implements ISyntaxTree {
     }
 
 
+    /**
+     * Finds a global variable by name
+     *
+     * @param name  Variable name
+     * @return      Global variable, or null if there is none
+     */
+    @Override
+    public Variable findGlobal(String name) {
+        return getSymbols().findGlobal(name);
+    }
+
+    /**
+     * Finds a function, native, method or type among the functions by name
+     *
+     * @param name  Function name
+     * @return      Function, or null if there is none
+     */
+    @Override
+    public AbstractFunction findFunction(String name) {
+        return getSymbols().findFunction(name);
+    }
+
+    /**
+     * Finds a native function by name
+     *
+     * @param name  Native name
+     * @return      Native function, or null if there is none
+     */
+    @Override
+    public NativeFunction findNative(String name) {
+        return getSymbols().findNative(name);
+    }
+
+    /**
+     * Finds a type declaration by name
+     *
+     * @param name  Type name
+     * @return      Type declaration, or null if there is none
+     */
+    @Override
+    public TypeDeclaration findType(String name) {
+        return getSymbols().findType(name);
+    }
+
+    /**
+     * Finds a vJASS method by name. Methods of a struct are named StructName.methodName.
+     *
+     * @param name  Method name
+     * @return      Method, or null if there is none
+     */
+    @Override
+    public Method findMethod(String name) {
+        return getSymbols().findMethod(name);
+    }
+
+    /**
+     * Returns the call graph of all functions findFunction can find.
+     * Function renames update the graph; after other changes
+     * it is built again the next time it is needed.
+     *
+     * @return  Current call graph
+     */
+    @Override
+    public CallGraph getCallGraph() {
+        CallGraph graph = callGraph;
+        if(graph == null || !graph.isCurrent()) {
+            graph = CallGraph.of(script, getSymbols().getFunctions());
+            callGraph = graph;
+        }
+        return graph;
+    }
+
+    /**
+     * Returns where the global variables are read and written
+     * by the functions findFunction can find. The index is built again
+     * the next time it is needed after the script changes.
+     *
+     * @return  Current use-def index
+     */
+    @Override
+    public UseDefIndex getUseDefIndex() {
+        UseDefIndex index = useDefIndex;
+        if(index == null || !index.isCurrent()) {
+            SymbolTable table = getSymbols();
+            index = UseDefIndex.of(script, table.getGlobals(), table.getFunctions());
+            useDefIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the reference index of the script. Renames keep it current;
+     * after other changes it is built again on the next rename.
+     *
+     * @return  Current reference index
+     */
+    private ReferenceIndex getReferences() {
+        ReferenceIndex index = references;
+        if(index == null || !index.isCurrent()) {
+            index = ReferenceIndex.of(script);
+            references = index;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the symbol table of the script. Single renames, merges and adding
+     * function main keep it current; after other changes it is rebuilt on
+     * the next lookup.
+     *
+     * @return  Current symbol table
+     */
+    private SymbolTable getSymbols() {
+        SymbolTable table = symbols;
+        if(!table.isCurrent()) {
+            table = SymbolTable.of(script);
+            symbols = table;
+        }
+        return table;
+    }
+
     /**
      * Returns all global variables in the script
      *
@@ -269,7 +642,49 @@ public final class SyntaxTree implements ISyntaxTree {
     @Override
     public void addFunctionMain() {
         if(script != null) {
+            SymbolTable table = symbols;
+            boolean tableCurrent = table.isCurrent();
             script.addFunctionMain();
+            if(tableCurrent) {
+                table.addedFunctionMain();
+            }
+        }
+    }
+
+    /**
+     * Counts the characters read through it, for the parse listener
+     */
+    private static final class CountingReader extends FilterReader {
+
+        private long characters;
+
+        private CountingReader(Reader input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if(c >= 0) {
+                characters++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if(read > 0) {
+                characters += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = super.skip(count);
+            characters += skipped;
+            return skipped;
         }
     }
 }
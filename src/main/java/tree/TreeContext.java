@@ -1,18 +1,156 @@
 package tree;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Context class to track the last line read
  * to give the user context of where it failed if crashed
+ *
+ * A context belongs to one parse and to the tree that parse creates;
+ * nodes added to the tree later share it. The last line is tracked
+ * per thread, so many parses may run at once, and parallel sub-parses
+ * of one tree never overwrite each other's error context.
+ *
+ * A context may also carry an executor. Parses using such a context
+ * read function bodies and vJASS containers concurrently
+ * once their boundaries are known.
+ *
+ * With lazy bodies, functions only read their declaration while parsing;
+ * statements are parsed the first time they are needed.
+ *
+ * A context may also carry a listener that is told what is parsed
+ * and how long it takes. Without one, nothing is measured.
  */
 public final class TreeContext {
 
-    private String lastLine;
+    private final ThreadLocal<String> lastLine;
+    private final Executor executor;
+    private final boolean lazyBodies;
+    private final ParseListener listener;
+
+    /**
+     * Creates a context for a parse on the calling thread only
+     */
+    public TreeContext() {
+        this(null);
+    }
 
+    /**
+     * Creates a context for a parse that reads function bodies on the executor
+     *
+     * @param executor  Executor to parse on, or null to parse on the calling thread
+     */
+    public TreeContext(Executor executor) {
+        this(new ThreadLocal<>(), executor, false, null);
+    }
+
+    private TreeContext(ThreadLocal<String> lastLine, Executor executor, boolean lazyBodies, ParseListener listener) {
+        this.lastLine = lastLine;
+        this.executor = executor;
+        this.lazyBodies = lazyBodies;
+        this.listener = listener;
+    }
+
+    /**
+     * Creates a context for a parse that reads function bodies on the common ForkJoinPool
+     *
+     * @return  Parallel tree context
+     */
+    public static TreeContext parallel() {
+        return new TreeContext(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a context for a sub-parse that already runs on the executor.
+     * It tracks the same last lines, but parses everything on the calling thread
+     * so that executor threads never wait on each other.
+     *
+     * @return  Sequential tree context for the same parse
+     */
+    public TreeContext sequential() {
+        return executor == null ? this : new TreeContext(lastLine, null, lazyBodies, listener);
+    }
+
+    /**
+     * Creates a copy of this context that leaves function bodies unparsed
+     * until their statements are first needed. Syntax errors inside of a body
+     * are then only reported when that body is parsed.
+     *
+     * @return  Tree context with lazy function bodies
+     */
+    public TreeContext withLazyBodies() {
+        return lazyBodies ? this : new TreeContext(lastLine, executor, true, listener);
+    }
+
+    /**
+     * Creates a copy of this context that reports the parse to a listener
+     *
+     * @param listener  Listener to report to, or null to stop reporting
+     * @return          Tree context with the listener
+     */
+    public TreeContext withListener(ParseListener listener) {
+        return new TreeContext(lastLine, executor, lazyBodies, listener);
+    }
+
+    /**
+     * Gets the listener the parse is reported to
+     *
+     * @return  Listener, or null if nothing is measured
+     */
+    public ParseListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Checks whether function bodies are parsed on first use
+     *
+     * @return  True if function bodies are parsed lazily; false if not.
+     */
+    public boolean isLazyBodies() {
+        return lazyBodies;
+    }
+
+    /**
+     * Gets the last line read by the calling thread.
+     * After a failed sub-parse, this is the last line the failing parse read.
+     *
+     * @return  Last line read, or null if none was read
+     */
     public String getLastLine() {
-        return lastLine;
+        return lastLine.get();
     }
 
+    /**
+     * Records the last line read by the calling thread
+     *
+     * @param lastLine  Line that was read
+     */
     public void setLastLine(String lastLine) {
-        this.lastLine = lastLine;
+        this.lastLine.set(lastLine);
+    }
+
+    /**
+     * Puts back the last line the calling thread had read before a sub-parse.
+     * Sub-parses call this when they end, so that pooled threads do not hold
+     * on to lines, and a caller that runs a sub-parse itself keeps its own line.
+     *
+     * @param previous  Last line from before the sub-parse, or null to forget the line
+     */
+    void restoreLastLine(String previous) {
+        if(previous == null) {
+            lastLine.remove();
+        } else {
+            lastLine.set(previous);
+        }
+    }
+
+    /**
+     * Gets the executor sub-parses run on
+     *
+     * @return  Executor, or null if everything is parsed on the calling thread
+     */
+    public Executor getExecutor() {
+        return executor;
     }
 }
@@ -0,0 +1,383 @@
+package tree;
+
+import nodes.AbstractFunction;
+import nodes.AbstractStatement;
+import nodes.arguments.Argument;
+import nodes.arguments.ArgumentType;
+import nodes.arguments.ArrayArgument;
+import nodes.arguments.BasicArgument;
+import nodes.functions.Function;
+import nodes.functions.IfStatement;
+import nodes.functions.LoopStatement;
+import nodes.functions.SetStatement;
+import nodes.functions.Statements;
+import nodes.j.Script;
+import nodes.j.Variable;
+import nodes.vjass.Method;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the global variables of a script are read and written.
+ *
+ * A global is read by every statement that uses its name in an expression,
+ * including as the index of an array, and written by every set statement
+ * that assigns to it or to one of its elements. Names are matched as they
+ * are written, so a local or parameter with the same name as a global
+ * counts as a use of the global.
+ *
+ * Functions have the same ids as in the CallGraph, their index in
+ * declaration order, and lookups return them in ascending order.
+ * Statements are returned in the order they appear in the script,
+ * with an if statement coming before the statements inside of it.
+ *
+ * An index describes the script at the revision it was built at;
+ * SyntaxTree builds a new one after the script changes.
+ */
+public final class UseDefIndex {
+
+    private final Script script;
+    private final long revision;
+    private final List<Variable> globals;
+    private final Map<String, Integer> globalIds;
+    private final List<AbstractFunction> functions;
+    private final Map<AbstractFunction, Integer> functionIds;
+    private final List<List<Integer>> readers;
+    private final List<List<Integer>> writers;
+    private final List<List<AbstractStatement>> reads;
+    private final List<List<SetStatement>> writes;
+    private final List<BitSet> used;
+
+    private UseDefIndex(Script script, List<Variable> globals, List<AbstractFunction> functions) {
+        this.script = script;
+        this.revision = script.getRevision();
+        this.globals = new ArrayList<>(globals);
+        this.globalIds = new HashMap<>();
+        this.functions = new ArrayList<>(functions);
+        this.functionIds = new IdentityHashMap<>();
+        this.readers = new ArrayList<>(globals.size());
+        this.writers = new ArrayList<>(globals.size());
+        this.reads = new ArrayList<>(globals.size());
+        this.writes = new ArrayList<>(globals.size());
+        for(int id = 0; id < globals.size(); id++) {
+            globalIds.putIfAbsent(globals.get(id).getName(), id);
+            readers.add(new ArrayList<>());
+            writers.add(new ArrayList<>());
+            reads.add(new ArrayList<>());
+            writes.add(new ArrayList<>());
+        }
+        this.used = new ArrayList<>(functions.size());
+        for(int id = 0; id < functions.size(); id++) {
+            functionIds.putIfAbsent(functions.get(id), id);
+            used.add(new BitSet());
+        }
+    }
+
+    /**
+     * Builds the index in one pass over the given functions
+     *
+     * @param script    Script the globals and functions are declared in
+     * @param globals   Global variables of the script, in declaration order
+     * @param functions Functions of the script, in declaration order
+     * @return          Index at the current revision of the script
+     */
+    public static UseDefIndex of(Script script, List<Variable> globals, List<AbstractFunction> functions) {
+        UseDefIndex index = new UseDefIndex(script, globals, functions);
+        for(int id = 0; id < functions.size(); id++) {
+            Statements body = bodyOf(functions.get(id));
+            if(body != null) {
+                index.addStatements(id, body);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether this index still describes the script it was built from
+     *
+     * @return  True if no part of the script changed since this index was built; false if not.
+     */
+    public boolean isCurrent() {
+        return revision == script.getRevision();
+    }
+
+    /**
+     * Gets the function with the given id
+     *
+     * @param id    Function id
+     * @return      Function
+     */
+    public AbstractFunction getFunction(int id) {
+        return functions.get(id);
+    }
+
+    /**
+     * Gets the id of a function
+     *
+     * @param function  Function of this index
+     * @return          Id, or -1 if the function is not part of this index
+     */
+    public int idOf(AbstractFunction function) {
+        Integer id = functionIds.get(function);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the number of globals, which is one more than the highest global id
+     *
+     * @return  Number of globals
+     */
+    public int globalCount() {
+        return globals.size();
+    }
+
+    /**
+     * Gets the global with the given id
+     *
+     * @param global    Global id, its index in declaration order
+     * @return          Global variable
+     */
+    public Variable getGlobal(int global) {
+        return globals.get(global);
+    }
+
+    /**
+     * Gets the id of a global
+     *
+     * @param variableName  Global variable name
+     * @return              Id, or -1 if there is no such global
+     */
+    public int globalIdOf(String variableName) {
+        Integer global = globalIds.get(variableName);
+        return global == null ? -1 : global;
+    }
+
+    /**
+     * Gets the functions that read a global
+     *
+     * @param variableName  Global variable name
+     * @return              Ids in ascending order
+     */
+    public int[] readers(String variableName) {
+        Integer global = globalIds.get(variableName);
+        return global == null ? new int[0] : toArray(readers.get(global));
+    }
+
+    /**
+     * Gets the functions that write to a global
+     *
+     * @param variableName  Global variable name
+     * @return              Ids in ascending order
+     */
+    public int[] writers(String variableName) {
+        Integer global = globalIds.get(variableName);
+        return global == null ? new int[0] : toArray(writers.get(global));
+    }
+
+    /**
+     * Gets the functions that read or write a global
+     *
+     * @param variableName  Global variable name
+     * @return              Ids in ascending order
+     */
+    public int[] users(String variableName) {
+        Integer global = globalIds.get(variableName);
+        return global == null ? new int[0] : users(global.intValue());
+    }
+
+    /**
+     * Gets the functions that read or write a global
+     *
+     * @param global    Global id
+     * @return          Function ids in ascending order
+     */
+    public int[] users(int global) {
+        List<Integer> read = readers.get(global);
+        List<Integer> written = writers.get(global);
+        int[] merged = new int[read.size() + written.size()];
+        int count = 0;
+        int r = 0;
+        int w = 0;
+        while(r < read.size() || w < written.size()) {
+            int next;
+            if(w == written.size() || (r < read.size() && read.get(r) <= written.get(w))) {
+                next = read.get(r++);
+            } else {
+                next = written.get(w++);
+            }
+            if(count == 0 || merged[count - 1] != next) {
+                merged[count++] = next;
+            }
+        }
+        int[] users = new int[count];
+        System.arraycopy(merged, 0, users, 0, count);
+        return users;
+    }
+
+    /**
+     * Gets the statements that read a global. A statement with a body,
+     * like an if statement, only reads what its conditions use.
+     *
+     * @param variableName  Global variable name
+     * @return              Statements in script order
+     */
+    public List<AbstractStatement> reads(String variableName) {
+        Integer global = globalIds.get(variableName);
+        return global == null ? Collections.emptyList() : Collections.unmodifiableList(reads.get(global));
+    }
+
+    /**
+     * Gets the set statements that write to a global or one of its elements
+     *
+     * @param variableName  Global variable name
+     * @return              Statements in script order
+     */
+    public List<SetStatement> writes(String variableName) {
+        Integer global = globalIds.get(variableName);
+        return global == null ? Collections.emptyList() : Collections.unmodifiableList(writes.get(global));
+    }
+
+    /**
+     * Gets the ids of the globals that a function reads or writes
+     *
+     * @param id    Function id
+     * @return      Global ids in ascending order
+     */
+    public int[] globalsUsedBy(int id) {
+        return used.get(id).stream().toArray();
+    }
+
+    /**
+     * Gets the globals that a function reads or writes
+     *
+     * @param id    Function id
+     * @return      Global variables in declaration order
+     */
+    public List<Variable> variablesUsedBy(int id) {
+        List<Variable> variables = new ArrayList<>();
+        BitSet globalsUsed = used.get(id);
+        for(int global = globalsUsed.nextSetBit(0); global >= 0; global = globalsUsed.nextSetBit(global + 1)) {
+            variables.add(globals.get(global));
+        }
+        return variables;
+    }
+
+    private static Statements bodyOf(AbstractFunction function) {
+        if(function instanceof Function) {
+            return ((Function) function).getStatements();
+        } else if(function instanceof Method) {
+            return ((Method) function).getStatements();
+        }
+        return null;
+    }
+
+    /**
+     * Adds the reads and writes of a block of statements and the blocks inside of it
+     *
+     * @param function      Id of the function the statements are in
+     * @param statements    Statements to add
+     */
+    private void addStatements(int function, Statements statements) {
+        if(statements == null) {
+            return;
+        }
+        for(AbstractStatement statement : statements.getStatements()) {
+            if(statement instanceof SetStatement) {
+                SetStatement set = (SetStatement) statement;
+                addTarget(function, set, set.getTarget());
+                addReads(function, set, set.getValueArgument().getArguments());
+            } else if(statement instanceof IfStatement) {
+                IfStatement ifStatement = (IfStatement) statement;
+                if(ifStatement.getCondition() != null) {
+                    addReads(function, ifStatement, ifStatement.getCondition().getArguments());
+                }
+                for(Argument condition : ifStatement.getElseifConditions()) {
+                    addReads(function, ifStatement, condition.getArguments());
+                }
+                addStatements(function, ifStatement.getThenStatements());
+                for(Statements elseifStatements : ifStatement.getElseifStatements()) {
+                    addStatements(function, elseifStatements);
+                }
+                addStatements(function, ifStatement.getElseStatements());
+            } else if(statement instanceof LoopStatement) {
+                addStatements(function, ((LoopStatement) statement).getStatements());
+            } else {
+                addReads(function, statement, statement.getArguments());
+            }
+        }
+    }
+
+    /**
+     * Adds the variable a set statement assigns to. The index of an array is read.
+     *
+     * @param function  Id of the function the statement is in
+     * @param statement Set statement
+     * @param target    Variable or array element being set
+     */
+    private void addTarget(int function, SetStatement statement, Argument target) {
+        ArgumentType type = target.getArgumentType();
+        if(type instanceof ArrayArgument) {
+            ArrayArgument array = (ArrayArgument) type;
+            addReads(function, statement, array.getArrayCall().getArguments());
+            type = array.getArrayName().getArgumentType();
+        }
+        if(type instanceof BasicArgument) {
+            Integer global = globalIds.get(((BasicArgument) type).getContent());
+            if(global != null) {
+                addId(writers.get(global), function);
+                addStatement(writes.get(global), statement);
+                used.get(function).set(global);
+            }
+        }
+    }
+
+    /**
+     * Adds the globals read by the parts of an expression
+     *
+     * @param function  Id of the function the statement is in
+     * @param statement Statement the expression is part of
+     * @param parts     Expression, broken into its basic parts
+     */
+    private void addReads(int function, AbstractStatement statement, List<Argument> parts) {
+        for(Argument part : parts) {
+            ArgumentType type = part.getArgumentType();
+            if(type instanceof BasicArgument) {
+                Integer global = globalIds.get(((BasicArgument) type).getContent());
+                if(global != null) {
+                    addId(readers.get(global), function);
+                    addStatement(reads.get(global), statement);
+                    used.get(function).set(global);
+                }
+            }
+        }
+    }
+
+    /**
+     * Functions and statements are visited in order, so a repeat is always the last one added
+     */
+    private static void addId(List<Integer> ids, int id) {
+        if(ids.isEmpty() || ids.get(ids.size() - 1) != id) {
+            ids.add(id);
+        }
+    }
+
+    private static <T extends AbstractStatement> void addStatement(List<T> statements, T statement) {
+        if(statements.isEmpty() || statements.get(statements.size() - 1) != statement) {
+            statements.add(statement);
+        }
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        int[] array = new int[ids.size()];
+        for(int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        return array;
+    }
+}
@@ -5,22 +5,100 @@ import generic.TestContext;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.junit.Assert;
+import parser.LineStream;
 import tree.TreeContext;
 
 public class FunctionStepDefs {
 
     private Function function;
+    private Exception exception;
+    private Function copy;
+    private String firstText;
+    private int firstHash;
 
     @When("Function is read")
     public void function_is_read() {
         this.function = new Function(TestContext.inputScanner, new TreeContext());
     }
 
+    @When("Function is read with a lazy body")
+    public void function_is_read_with_a_lazy_body() {
+        this.function = new Function(TestContext.inputScanner, new TreeContext().withLazyBodies());
+    }
+
+    @When("Function is read twice")
+    public void function_is_read_twice() {
+        StringBuilder text = new StringBuilder();
+        while(TestContext.inputScanner.hasNextLine()) {
+            text.append(TestContext.inputScanner.nextLine()).append("\n");
+        }
+        this.function = new Function(LineStream.of(text), new TreeContext());
+        this.copy = new Function(LineStream.of(text), new TreeContext());
+    }
+
+    @When("function {string} is renamed to {string} in the first Function")
+    public void function_is_renamed_in_the_first_function(String oldName, String newName) {
+        function.renameFunction(oldName, newName);
+    }
+
+    @When("function {string} is renamed to {string} in the second Function")
+    public void function_is_renamed_in_the_second_function(String oldName, String newName) {
+        copy.renameFunction(oldName, newName);
+    }
+
+    @When("the first Function is rendered and hashed")
+    public void the_first_function_is_rendered_and_hashed() {
+        firstText = function.toString();
+        firstHash = function.hashCode();
+    }
+
+    @Then("the first Function should keep its text and hash code")
+    public void the_first_function_should_keep_its_text_and_hash_code() {
+        Assert.assertSame(firstText, function.toString());
+        Assert.assertEquals(firstHash, function.hashCode());
+    }
+
+    @Then("both Functions should be equal")
+    public void both_functions_should_be_equal() {
+        Assert.assertEquals(function, copy);
+        Assert.assertEquals(function.hashCode(), copy.hashCode());
+    }
+
+    @Then("both Functions should not be equal")
+    public void both_functions_should_not_be_equal() {
+        Assert.assertFalse(function.equals(copy));
+    }
+
+    @When("Function statements are requested")
+    public void function_statements_are_requested() {
+        exception = null;
+        try {
+            function.getStatements();
+        } catch (Exception ex) {
+            this.exception = ex;
+        }
+    }
+
+    @Then("Function should have a syntax error")
+    public void function_should_have_a_syntax_error() {
+        Assert.assertNotNull("Syntax error not found", exception);
+    }
+
     @Then("Function should be:")
     public void function_should_be(String body) {
         Assert.assertEquals(body, function.toString());
     }
 
+    @Then("Function should only be rendered once")
+    public void function_should_only_be_rendered_once() {
+        Assert.assertSame(function.toString(), function.toString());
+    }
+
+    @Then("Function text should contain {string}")
+    public void function_text_should_contain(String text) {
+        Assert.assertTrue(function.toString(), function.toString().contains(text));
+    }
+
     @Then("Function header should be {string}")
     public void function_header_should_be(String header) {
         Assert.assertEquals(header, function.getFunctionDeclaration().toString());
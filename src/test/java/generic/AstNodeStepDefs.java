@@ -6,6 +6,7 @@ import io.cucumber.java.en.Given;
 import services.SyntaxTreeServices;
 
 import java.io.File;
+import java.io.StringReader;
 import java.net.URL;
 import java.util.Scanner;
 
@@ -18,6 +19,13 @@ public class AstNodeStepDefs {
         TestContext.inputScanner = preprocessor.preprocessFile(TestContext.inputScanner);
     }
 
+    @Given("input data with Windows line endings:")
+    public void input_data_with_windows_line_endings(String inputString) {
+        IPreprocessFileService preprocessor = SyntaxTreeServices.defaultPreprocessor();
+        CharSequence text = preprocessor.preprocessFile(new StringReader(inputString.replace("\n", "\r\n")));
+        TestContext.inputScanner = new Scanner(text.toString());
+    }
+
     @Given("input file: {string}")
     public void input_file(String filePath) throws Exception {
         URL url = Thread.currentThread().getContextClassLoader().getResource(filePath);
@@ -5,17 +5,34 @@ import generic.TestContext;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.junit.Assert;
+import parser.LineStream;
 import tree.TreeContext;
 
 public class ScriptStepDefs {
 
     private Script script;
+    private Script sequentialScript;
 
     @When("J File is read")
     public void j_File_is_read() {
         this.script = new Script(TestContext.inputScanner, new TreeContext());
     }
 
+    @When("J File is read in parallel")
+    public void j_File_is_read_in_parallel() {
+        StringBuilder text = new StringBuilder();
+        while(TestContext.inputScanner.hasNextLine()) {
+            text.append(TestContext.inputScanner.nextLine()).append("\n");
+        }
+        this.sequentialScript = new Script(LineStream.of(text), new TreeContext());
+        this.script = new Script(LineStream.of(text), TreeContext.parallel());
+    }
+
+    @Then("J File should be the same as when read sequentially")
+    public void j_File_should_be_the_same_as_when_read_sequentially() {
+        Assert.assertEquals(sequentialScript.toString(), script.toString());
+    }
+
     @Then("J File should contain {int} variables")
     public void j_File_should_contain_variables(int variables) {
         Assert.assertEquals(variables, script.getGlobalsSection().getGlobalVariables().size());
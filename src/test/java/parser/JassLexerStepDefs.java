@@ -0,0 +1,57 @@
+package parser;
+
+import generic.TestContext;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.Assert;
+
+import java.util.List;
+
+public class JassLexerStepDefs {
+
+    private List<Token> tokens;
+    private LineStream lineStream;
+
+    @When("Tokens are read")
+    public void tokens_are_read() {
+        StringBuilder input = new StringBuilder();
+        while(TestContext.inputScanner.hasNextLine()) {
+            input.append(TestContext.inputScanner.nextLine()).append("\n");
+        }
+        this.tokens = JassLexer.tokenize(input);
+    }
+
+    @Then("Tokens should be:")
+    public void tokens_should_be(String expected) {
+        StringBuilder actual = new StringBuilder();
+        for(Token token : tokens) {
+            actual.append(token.toString()).append("\n");
+        }
+        Assert.assertEquals(expected, actual.toString().trim());
+    }
+
+    @When("Line stream is read")
+    public void token_stream_is_read() {
+        this.lineStream = LineStream.of(TestContext.inputScanner);
+    }
+
+    @Then("Line stream slice from {int} to {int} should be: {string}")
+    public void token_stream_slice_should_be(int from, int to, String expected) {
+        LineStream slice = lineStream.slice(from, to);
+        StringBuilder actual = new StringBuilder();
+        while(slice.hasNextLine()) {
+            actual.append(slice.nextLine()).append("\n");
+        }
+        Assert.assertEquals(expected, actual.toString().trim());
+    }
+
+    @Then("Line stream should have {int} lines")
+    public void token_stream_should_have_lines(int count) {
+        int lines = 0;
+        while(lineStream.hasNextLine()) {
+            lineStream.skipLine();
+            lines++;
+        }
+        Assert.assertEquals(count, lines);
+    }
+}
@@ -0,0 +1,232 @@
+package performance;
+
+import interfaces.IAnalysisService;
+import interfaces.IScriptGeneratorService;
+import interfaces.ISyntaxTree;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import nodes.AbstractFunction;
+import nodes.functions.CallStatement;
+import nodes.j.Variable;
+import org.junit.Assert;
+import parser.LineStream;
+import services.AnalysisService;
+import services.PreprocessFileService;
+import services.RandomNameGeneratorService;
+import services.SyntaxTreeServices;
+import tree.SyntaxTree;
+import tree.TreeContext;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Times an operation at doubling input sizes and checks how fast the time grows.
+ * Linear operations take about twice as long for twice the input;
+ * quadratic ones four times as long.
+ *
+ * Each size is timed several times and the fastest run counts, which keeps
+ * garbage collection and other noise out. The bound of a scenario can be
+ * replaced for all scenarios with -Djsyntaxtree.scaling.bound=3.5.
+ * The scenarios are left out of mvn test, and run alone with mvn test -Pscaling.
+ */
+public class ScalingStepDefs {
+
+    private static final String BOUND_PROPERTY = "jsyntaxtree.scaling.bound";
+    private static final long SEED = 24;
+    private static final long MINIMUM_NANOS = 200_000_000L;
+    private static final int MINIMUM_RUNS = 5;
+    private static final int MAXIMUM_RUNS = 50;
+    private static final long STACK_SIZE = 256L << 20;
+
+    private int[] sizes;
+    private long[] nanos;
+
+    @Given("scaling inputs from {int} bytes doubled {int} times")
+    public void scaling_inputs_from_bytes_doubled_times(int smallest, int doublings) {
+        sizes = new int[doublings + 1];
+        for(int i = 0; i < sizes.length; i++) {
+            sizes[i] = smallest << i;
+        }
+    }
+
+    @When("{string} is timed at each size")
+    public void is_timed_at_each_size(String operation) throws Throwable {
+        nanos = new long[sizes.length];
+        // Deeply nested expressions are read recursively
+        Throwable[] failure = new Throwable[1];
+        Thread timing = new Thread(null, () -> {
+            try {
+                // Once before timing, so the code is compiled
+                time(prepare(operation, sizes[0]));
+                for(int i = 0; i < sizes.length; i++) {
+                    nanos[i] = time(prepare(operation, sizes[i]));
+                }
+            } catch (Throwable ex) {
+                failure[0] = ex;
+            }
+        }, "scaling", STACK_SIZE);
+        timing.start();
+        timing.join();
+        if(failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    @Then("time should grow at most {double} times per doubling")
+    public void time_should_grow_at_most_times_per_doubling(double bound) {
+        String configured = System.getProperty(BOUND_PROPERTY);
+        if(configured != null) {
+            bound = Double.parseDouble(configured);
+        }
+        // Average growth over all doublings, so one noisy size does not decide
+        double growth = Math.pow((double) nanos[nanos.length - 1] / Math.max(1, nanos[0]), 1.0 / (nanos.length - 1));
+        StringBuilder timings = new StringBuilder();
+        for(int i = 0; i < sizes.length; i++) {
+            timings.append(" ").append(sizes[i]).append(": ").append(nanos[i] / 1000).append("us");
+        }
+        Assert.assertTrue("Grew " + growth + " times per doubling;" + timings, growth <= bound);
+    }
+
+    /**
+     * Times the fastest of several runs, each on input made for it
+     *
+     * @param operation Makes the input for one run, returning the run
+     * @return          Nanoseconds of the fastest run
+     */
+    private static long time(Supplier<Runnable> operation) {
+        long fastest = Long.MAX_VALUE;
+        long total = 0;
+        int runs = 0;
+        while(runs < MAXIMUM_RUNS && (runs < MINIMUM_RUNS || total < MINIMUM_NANOS)) {
+            Runnable run = operation.get();
+            // Garbage left by earlier runs should not be collected during this one
+            System.gc();
+            long start = System.nanoTime();
+            run.run();
+            long elapsed = System.nanoTime() - start;
+            fastest = Math.min(fastest, elapsed);
+            total += elapsed;
+            runs++;
+        }
+        return fastest;
+    }
+
+    /**
+     * Makes the input of an operation for one size
+     *
+     * @param operation Operation name, as written in the feature
+     * @param size      Input size in bytes
+     * @return          Makes the input for one run, returning the run
+     */
+    private static Supplier<Runnable> prepare(String operation, int size) {
+        String script = generate(size);
+        switch(operation) {
+            case "reading a tree":
+                return () -> () -> SyntaxTree.readTree(script);
+            case "preprocessing":
+                // Every line followed by empty ones
+                String spaced = script.replace("\n", "\n\n\n\n");
+                return () -> () -> new PreprocessFileService().preprocessFile(new StringReader(spaced));
+            case "rendering a tree":
+                // A fresh tree for every run, so that no rendered text is cached
+                return () -> {
+                    ISyntaxTree tree = SyntaxTree.readTree(script);
+                    return tree::toString;
+                };
+            case "formatting a tree":
+                return () -> {
+                    ISyntaxTree tree = SyntaxTree.readTree(script);
+                    return tree::getFormatted;
+                };
+            case "renaming a variable": {
+                ISyntaxTree tree = SyntaxTree.readTree(script);
+                return () -> () -> rename(tree);
+            }
+            case "renaming a function": {
+                ISyntaxTree tree = SyntaxTree.readTree(script);
+                return () -> () -> {
+                    tree.renameFunction("f0", "renamed");
+                    tree.renameFunction("renamed", "f0");
+                };
+            }
+            case "renaming everything at once": {
+                ISyntaxTree tree = SyntaxTree.readTree(script);
+                Map<String, String> variables = new HashMap<>();
+                Map<String, String> functions = new HashMap<>();
+                for(Variable variable : tree.getGlobalVariables()) {
+                    variables.put(variable.getName(), variable.getName() + "_renamed");
+                }
+                for(AbstractFunction function : tree.getFunctions()) {
+                    functions.put(function.getName(), function.getName() + "_renamed");
+                }
+                return () -> {
+                    ISyntaxTree renamed = SyntaxTree.readTree(script);
+                    return () -> renamed.renameAll(variables, functions);
+                };
+            }
+            case "deduplicating a tree":
+                return () -> {
+                    ISyntaxTree tree = SyntaxTree.readTree(script);
+                    return () -> tree.deduplicate(new RandomNameGeneratorService());
+                };
+            case "postprocessing a tree":
+                return () -> {
+                    ISyntaxTree tree = SyntaxTree.readTree(script);
+                    return tree::postprocess;
+                };
+            case "merging a script": {
+                String other = generate(size / 2).replace("function f", "function other_f");
+                return () -> {
+                    ISyntaxTree tree = SyntaxTree.readTree(script);
+                    ISyntaxTree merged = SyntaxTree.readTree(other);
+                    return () -> tree.merge(merged);
+                };
+            }
+            case "isolating a function": {
+                ISyntaxTree tree = SyntaxTree.readTree(script);
+                String last = tree.getFunctions().get(tree.getFunctions().size() - 1).getName();
+                IAnalysisService service = new AnalysisService(IAnalysisService.ExpansionStyle.AGGRESSIVE);
+                return () -> () -> service.isolateFunction(tree, last, -1);
+            }
+            case "generating unique names":
+                return () -> () -> {
+                    RandomNameGeneratorService generator = new RandomNameGeneratorService();
+                    for(int i = 0; i < size / 10; i++) {
+                        generator.next();
+                    }
+                };
+            case "reading nested parenthesis": {
+                StringBuilder call = new StringBuilder("call f(");
+                for(int i = 0; i < size / 20; i++) {
+                    call.append('(');
+                }
+                call.append('x');
+                for(int i = 0; i < size / 20; i++) {
+                    call.append(')');
+                }
+                String line = call.append(')').toString();
+                return () -> () -> new CallStatement(LineStream.of(line), new TreeContext());
+            }
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private static String generate(int size) {
+        IScriptGeneratorService generator = SyntaxTreeServices.defaultScriptGenerator(SEED);
+        generator.scaleTo(size);
+        return generator.generate();
+    }
+
+    /**
+     * Renames a global and back
+     */
+    private static void rename(ISyntaxTree tree) {
+        tree.renameVariable("g0", "renamed");
+        tree.renameVariable("renamed", "g0");
+    }
+}
@@ -9,6 +9,7 @@ import io.cucumber.java.en.When;
 import model.IsolateResult;
 import nodes.j.Script;
 import org.junit.Assert;
+import tree.Reachability;
 import tree.SyntaxTree;
 import tree.TreeContext;
 
@@ -97,4 +98,36 @@ public class AnalysisServiceStepDefs {
             // expected..
         }
     }
+
+    @Then("parallel isolation of function {string} with depth {int} should match sequential isolation")
+    public void parallel_isolation_of_function_with_depth_should_match_sequential_isolation(String functionName, int depth) {
+        Script script = new Script(TestContext.inputScanner, new TreeContext());
+        ISyntaxTree tree = new SyntaxTree(script);
+        IsolateResult sequential = service.isolateFunction(tree, functionName, depth);
+        IsolateResult parallel = AnalysisService.parallel(service.getExpansionStyle())
+                .isolateFunction(tree, functionName, depth);
+        Assert.assertEquals(sequential.getIsolatedFunctions(), parallel.getIsolatedFunctions());
+        Assert.assertEquals(sequential.getIsolatedVariables(), parallel.getIsolatedVariables());
+    }
+
+    @When("input tree dependencies are found for function {string}")
+    public void input_tree_dependencies_are_found_for_function(String functionName) {
+        result = findReachability().dependenciesOf(functionName);
+    }
+
+    @When("input tree dependents are found for function {string}")
+    public void input_tree_dependents_are_found_for_function(String functionName) {
+        result = findReachability().dependentsOf(functionName);
+    }
+
+    @When("input tree dependents are found for variable {string}")
+    public void input_tree_dependents_are_found_for_variable(String variableName) {
+        result = findReachability().dependentsOfVariable(variableName);
+    }
+
+    private Reachability findReachability() {
+        Script script = new Script(TestContext.inputScanner, new TreeContext());
+        ISyntaxTree tree = new SyntaxTree(script);
+        return new AnalysisService().findReachability(tree);
+    }
 }
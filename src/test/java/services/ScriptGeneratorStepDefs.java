@@ -0,0 +1,60 @@
+package services;
+
+import interfaces.IScriptGeneratorService;
+import interfaces.ISyntaxTree;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.Assert;
+import tree.SyntaxTree;
+
+public class ScriptGeneratorStepDefs {
+
+    private String script;
+    private ISyntaxTree tree;
+
+    @Given("a script generated with seed {int}")
+    public void a_script_generated_with_seed(Integer seed) {
+        script = SyntaxTreeServices.defaultScriptGenerator(seed).generate();
+    }
+
+    @Given("a script generated with seed {int} scaled to {int} bytes")
+    public void a_script_generated_with_seed_scaled_to_bytes(Integer seed, Integer bytes) {
+        IScriptGeneratorService generator = SyntaxTreeServices.defaultScriptGenerator(seed);
+        generator.scaleTo(bytes);
+        script = generator.generate();
+    }
+
+    @When("the generated script is read")
+    public void the_generated_script_is_read() {
+        tree = SyntaxTree.readTree(script);
+    }
+
+    @Then("the generated tree should have {int} functions and {int} globals")
+    public void the_generated_tree_should_have_functions_and_globals(int functions, int globals) {
+        Assert.assertEquals(functions, tree.getFunctions().size());
+        Assert.assertEquals(globals, tree.getGlobalVariables().size());
+    }
+
+    @Then("the generated tree should have {int} library, {int} scope and {int} struct")
+    public void the_generated_tree_should_have_library_scope_and_struct(int libraries, int scopes, int structs) {
+        Assert.assertEquals(libraries, tree.getScript().getLibraries().size());
+        Assert.assertEquals(scopes, tree.getScript().getScopes().size());
+        Assert.assertEquals(structs, tree.getScript().getStructs().size());
+    }
+
+    @Then("the generated script should be the same as with seed {int}")
+    public void the_generated_script_should_be_the_same_as_with_seed(Integer seed) {
+        Assert.assertEquals(SyntaxTreeServices.defaultScriptGenerator(seed).generate(), script);
+    }
+
+    @Then("the generated script should differ from seed {int}")
+    public void the_generated_script_should_differ_from_seed(Integer seed) {
+        Assert.assertNotEquals(SyntaxTreeServices.defaultScriptGenerator(seed).generate(), script);
+    }
+
+    @Then("the generated script should be between {int} and {int} bytes")
+    public void the_generated_script_should_be_between_and_bytes(int lowest, int highest) {
+        Assert.assertTrue("Generated " + script.length() + " bytes", script.length() >= lowest && script.length() <= highest);
+    }
+}
@@ -9,13 +9,26 @@ import org.junit.Assert;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class SyntaxTreeBasicStepDefs {
 
     private ISyntaxTree tree;
+    private String expected;
     private Exception exception;
+    private TreeContext context;
 
     @Given("tree file {string}")
     public void tree_file(String filePath) {
@@ -30,6 +43,125 @@ public class SyntaxTreeBasicStepDefs {
         }
     }
 
+    @Given("tree path {string}")
+    public void tree_path(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        this.expected = SyntaxTree.readTree(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).toString();
+        this.tree = SyntaxTree.readTree(path);
+    }
+
+    @Given("tree buffer {string}")
+    public void tree_buffer(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        this.expected = SyntaxTree.readTree(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).toString();
+        this.tree = SyntaxTree.readTree(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    @Given("tree file {string} read in parallel")
+    public void tree_file_read_in_parallel(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        String inputString = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        this.expected = SyntaxTree.readTree(inputString).toString();
+        this.tree = SyntaxTree.readTree(inputString, TreeContext.parallel());
+    }
+
+    @Given("tree file {string} read on {int} threads at once")
+    public void tree_file_read_on_threads_at_once(String filePath, int threads) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        String inputString = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        this.expected = SyntaxTree.readTree(inputString).toString();
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ISyntaxTree>> trees = new ArrayList<>();
+            for(int i = 0; i < threads; i++) {
+                trees.add(callers.submit(() -> SyntaxTree.readTree(inputString, TreeContext.parallel())));
+            }
+            for(Future<ISyntaxTree> tree : trees) {
+                Assert.assertEquals(expected, tree.get().toString());
+            }
+            this.tree = trees.get(0).get();
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Given("tree file {string} read in parallel from a thread of its own single-thread executor")
+    public void tree_file_read_in_parallel_from_a_thread_of_its_own_executor(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        String inputString = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        this.expected = SyntaxTree.readTree(inputString).toString();
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            // The only thread of the executor waits for the parse
+            Future<ISyntaxTree> read = executor.submit(() -> SyntaxTree.readTree(inputString, new TreeContext(executor)));
+            this.tree = read.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Given("tree text read in parallel:")
+    public void tree_text_read_in_parallel(String inputString) {
+        exception = null;
+        try {
+            this.tree = SyntaxTree.readTree(inputString, TreeContext.parallel());
+        } catch (Exception ex) {
+            this.exception = ex;
+        }
+    }
+
+    @Given("tree context running parses inline after last line {string}")
+    public void tree_context_running_parses_inline_after_last_line(String line) {
+        context = new TreeContext(Runnable::run);
+        context.setLastLine(line);
+    }
+
+    @Given("parses of {int} lines that read line {string} are joined")
+    public void parses_of_lines_that_read_line_are_joined(int lines, String line) {
+        ParseTasks<String> tasks = new ParseTasks<>(context);
+        tasks.submit(() -> {
+            context.setLastLine(line);
+            return line;
+        }, lines);
+        tasks.submit(() -> {
+            context.setLastLine(line);
+            return line;
+        }, lines);
+        Assert.assertEquals(2, tasks.join().size());
+    }
+
+    @Then("the last line of the tree context should be {string}")
+    public void the_last_line_of_the_tree_context_should_be(String line) {
+        Assert.assertEquals(line, context.getLastLine());
+    }
+
+    @Then("the syntax error should end with last line {string}")
+    public void the_syntax_error_should_end_with_last_line(String line) {
+        Assert.assertNotNull("Syntax error not found", exception);
+        Assert.assertTrue(exception.getMessage(), exception.getMessage().endsWith("Last line: " + line));
+    }
+
+    @Then("tree should be the same as read from a String")
+    public void tree_should_be_the_same_as_read_from_a_string() {
+        Assert.assertEquals(expected, tree.toString());
+    }
+
+    @Then("tree should be written the same as its String")
+    public void tree_should_be_written_the_same_as_its_string() throws Exception {
+        StringBuilder written = new StringBuilder();
+        tree.writeTo(written);
+        Assert.assertEquals(tree.toString(), written.toString());
+
+        Path file = Files.createTempFile("tree", ".j");
+        try {
+            tree.write(file, StandardCharsets.UTF_8);
+            String fileContents = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            Assert.assertEquals(tree.toString() + System.lineSeparator(), fileContents);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Then("there should be no syntax error")
     public void there_should_be_no_syntax_error() {
         if(exception != null) {
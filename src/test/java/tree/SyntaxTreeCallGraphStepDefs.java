@@ -0,0 +1,69 @@
+package tree;
+
+import interfaces.ISyntaxTree;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SyntaxTreeCallGraphStepDefs {
+
+    private ISyntaxTree tree;
+
+    @Given("Call graph script:")
+    public void call_graph_script(String body) {
+        this.tree = SyntaxTree.readTree(body);
+    }
+
+    @When("Call graph tree is function renamed from {string} to {string}")
+    public void call_graph_tree_is_function_renamed_from_to(String oldFunctionName, String newFunctionName) {
+        tree.renameFunction(oldFunctionName, newFunctionName);
+    }
+
+    @Then("{string} should call {string}")
+    public void should_call(String caller, String callee) {
+        Assert.assertTrue(callees(caller, CallGraph.EdgeKind.CALL).contains(callee));
+    }
+
+    @Then("{string} should refer to {string}")
+    public void should_refer_to(String caller, String callee) {
+        Assert.assertTrue(callees(caller, CallGraph.EdgeKind.REFERENCE).contains(callee));
+    }
+
+    @Then("{string} should not use {string}")
+    public void should_not_use(String caller, String callee) {
+        Assert.assertFalse(callees(caller, CallGraph.EdgeKind.values()).contains(callee));
+    }
+
+    @Then("callers of {string} should be {string}")
+    public void callers_of_should_be(String callee, String callers) {
+        CallGraph graph = tree.getCallGraph();
+        List<String> names = new ArrayList<>();
+        for(int id : graph.callers(callee)) {
+            names.add(graph.getFunction(id).getName());
+        }
+        Assert.assertEquals(callers, String.join(",", names));
+    }
+
+    @Then("callers of function {string} should be {string}")
+    public void callers_of_function_should_be(String callee, String callers) {
+        CallGraph graph = tree.getCallGraph();
+        List<String> names = new ArrayList<>();
+        for(int id : graph.callers(graph.idsOf(callee)[0])) {
+            names.add(graph.getFunction(id).getName());
+        }
+        Assert.assertEquals(callers, String.join(",", names));
+    }
+
+    private List<String> callees(String caller, CallGraph.EdgeKind... kinds) {
+        CallGraph graph = tree.getCallGraph();
+        List<String> names = new ArrayList<>();
+        for(int id : graph.callees(graph.idsOf(caller)[0], kinds)) {
+            names.add(graph.getFunction(id).getName());
+        }
+        return names;
+    }
+}
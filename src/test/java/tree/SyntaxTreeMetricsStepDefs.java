@@ -0,0 +1,94 @@
+package tree;
+
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import nodes.functions.Function;
+import nodes.functions.SetStatement;
+import nodes.j.Variable;
+import org.junit.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+public class SyntaxTreeMetricsStepDefs {
+
+    private ParseMetrics metrics;
+    private ParseMetrics parallelMetrics;
+    private ParseMetrics bufferMetrics;
+
+    @Given("Measured script:")
+    public void measured_script(String body) {
+        metrics = new ParseMetrics();
+        SyntaxTree.readTree(body, new TreeContext().withListener(metrics));
+    }
+
+    @Given("measured tree file {string} read in parallel")
+    public void measured_tree_file_read_in_parallel(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        String inputString = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        metrics = new ParseMetrics();
+        SyntaxTree.readTree(inputString, new TreeContext().withListener(metrics));
+        parallelMetrics = new ParseMetrics();
+        SyntaxTree.readTree(inputString, TreeContext.parallel().withListener(parallelMetrics));
+    }
+
+    @Given("measured tree path {string}")
+    public void measured_tree_path(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        metrics = new ParseMetrics();
+        SyntaxTree.readTree(path, StandardCharsets.UTF_8, new TreeContext().withListener(metrics));
+        bufferMetrics = new ParseMetrics();
+        SyntaxTree.readTree(ByteBuffer.wrap(Files.readAllBytes(path)), StandardCharsets.UTF_8, new TreeContext().withListener(bufferMetrics));
+    }
+
+    @Then("measured parse should have read the bytes of file {string} and no characters")
+    public void measured_parse_should_have_read_the_bytes_of_file_and_no_characters(String filePath) throws Exception {
+        Path path = Paths.get(Thread.currentThread().getContextClassLoader().getResource(filePath).toURI());
+        Assert.assertEquals(Files.size(path), metrics.getBytesRead());
+        Assert.assertEquals(0, metrics.getCharactersRead());
+        Assert.assertEquals(Files.size(path), bufferMetrics.getBytesRead());
+        Assert.assertEquals(0, bufferMetrics.getCharactersRead());
+    }
+
+    @Then("measured parse should have read {int} characters")
+    public void measured_parse_should_have_read_characters(int characters) {
+        Assert.assertEquals(characters, metrics.getCharactersRead());
+        Assert.assertEquals(0, metrics.getBytesRead());
+        Assert.assertEquals(1, metrics.getParseCount());
+        Assert.assertTrue(metrics.getParseNanos() > 0);
+    }
+
+    @Then("measured parse should have read {int} functions, {int} globals and {int} set statements")
+    public void measured_parse_should_have_read_functions_globals_and_set_statements(int functions, int globals, int sets) {
+        Assert.assertEquals(functions, metrics.getNodeCount(Function.class));
+        Assert.assertEquals(globals, metrics.getNodeCount(Variable.class));
+        Assert.assertEquals(sets, metrics.getNodeCount(SetStatement.class));
+        Assert.assertEquals(Long.valueOf(functions), metrics.getNodeCounts().get("Function"));
+    }
+
+    @Then("measured parse should have timed every phase")
+    public void measured_parse_should_have_timed_every_phase() {
+        for(ParsePhase phase : ParsePhase.values()) {
+            Assert.assertTrue(phase.toString(), metrics.getPhaseNanos(phase) > 0);
+        }
+    }
+
+    @Then("measured slowest function should be {string}")
+    public void measured_slowest_function_should_be(String name) {
+        Map<String, Long> slowest = metrics.getSlowestFunctions(1);
+        Assert.assertEquals(1, slowest.size());
+        Assert.assertEquals(name, slowest.keySet().iterator().next());
+    }
+
+    @Then("parallel measured parse should have read the same nodes")
+    public void parallel_measured_parse_should_have_read_the_same_nodes() {
+        Assert.assertEquals(metrics.getNodeCounts(), parallelMetrics.getNodeCounts());
+        Assert.assertEquals(metrics.getCharactersRead(), parallelMetrics.getCharactersRead());
+        Assert.assertEquals(metrics.getSlowestFunctions(Integer.MAX_VALUE).keySet(),
+                parallelMetrics.getSlowestFunctions(Integer.MAX_VALUE).keySet());
+    }
+}
@@ -4,8 +4,12 @@ import interfaces.ISyntaxTree;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
+import nodes.j.Script;
 import org.junit.Assert;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class SyntaxTreeRenameStepDefs {
 
     private ISyntaxTree tree;
@@ -25,9 +29,35 @@ public class SyntaxTreeRenameStepDefs {
         tree.renameFunction(oldFunctionName, newFunctionName);
     }
 
+    @When("Tree is renamed with variables {string} and functions {string}")
+    public void tree_is_renamed_with_variables_and_functions(String variables, String functions) {
+        tree.renameAll(toNameMap(variables), toNameMap(functions));
+    }
+
     @Then("Renamed script should be:")
     public void renamed_script_should_be(String body) {
         Assert.assertEquals(body.trim(), tree.toString().trim());
     }
 
+    @Then("Renamed tree should equal the same script read directly:")
+    public void renamed_tree_should_equal_the_same_script_read_directly(String body) {
+        Script read = SyntaxTree.readTree(body).getScript();
+        Assert.assertEquals(read.toString(), tree.getScript().toString());
+        Assert.assertEquals(read, tree.getScript());
+        Assert.assertEquals(read.hashCode(), tree.getScript().hashCode());
+    }
+
+    /**
+     * Reads renames written like old1=new1,old2=new2
+     */
+    private Map<String, String> toNameMap(String renames) {
+        Map<String, String> names = new HashMap<>();
+        for(String rename : renames.split(",")) {
+            if(rename.contains("=")) {
+                names.put(rename.substring(0, rename.indexOf("=")), rename.substring(rename.indexOf("=") + 1));
+            }
+        }
+        return names;
+    }
+
 }
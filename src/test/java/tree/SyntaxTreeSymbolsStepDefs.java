@@ -0,0 +1,74 @@
+package tree;
+
+import interfaces.ISyntaxTree;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import org.junit.Assert;
+
+public class SyntaxTreeSymbolsStepDefs {
+
+    private ISyntaxTree tree;
+
+    @Given("Indexed script:")
+    public void indexed_script(String body) {
+        this.tree = SyntaxTree.readTree(body);
+    }
+
+    @When("Indexed tree is renamed from {string} to {string}")
+    public void indexed_tree_is_renamed_from_to(String oldVariableName, String newVariableName) {
+        tree.renameVariable(oldVariableName, newVariableName);
+    }
+
+    @When("Indexed tree is function renamed from {string} to {string}")
+    public void indexed_tree_is_function_renamed_from_to(String oldFunctionName, String newFunctionName) {
+        tree.renameFunction(oldFunctionName, newFunctionName);
+    }
+
+    @When("Indexed tree is merged with:")
+    public void indexed_tree_is_merged_with(String body) {
+        tree.merge(SyntaxTree.readTree(body));
+    }
+
+    @When("Indexed tree gets function main")
+    public void indexed_tree_gets_function_main() {
+        tree.addFunctionMain();
+    }
+
+    @Then("global {string} should be found")
+    public void global_should_be_found(String name) {
+        Assert.assertNotNull(tree.findGlobal(name));
+        Assert.assertEquals(name, tree.findGlobal(name).getName());
+    }
+
+    @Then("global {string} should not be found")
+    public void global_should_not_be_found(String name) {
+        Assert.assertNull(tree.findGlobal(name));
+    }
+
+    @Then("function {string} should be found")
+    public void function_should_be_found(String name) {
+        Assert.assertNotNull(tree.findFunction(name));
+        Assert.assertEquals(name, tree.findFunction(name).getName());
+    }
+
+    @Then("function {string} should not be found")
+    public void function_should_not_be_found(String name) {
+        Assert.assertNull(tree.findFunction(name));
+    }
+
+    @Then("native {string} should be found")
+    public void native_should_be_found(String name) {
+        Assert.assertNotNull(tree.findNative(name));
+    }
+
+    @Then("type {string} should be found")
+    public void type_should_be_found(String name) {
+        Assert.assertNotNull(tree.findType(name));
+    }
+
+    @Then("method {string} should be found")
+    public void method_should_be_found(String name) {
+        Assert.assertNotNull(tree.findMethod(name));
+    }
+}
@@ -0,0 +1,66 @@
+package tree;
+
+import interfaces.ISyntaxTree;
+import io.cucumber.java.en.Given;
+import io.cucumber.java.en.Then;
+import io.cucumber.java.en.When;
+import nodes.j.Variable;
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SyntaxTreeUseDefStepDefs {
+
+    private ISyntaxTree tree;
+
+    @Given("Use-def script:")
+    public void use_def_script(String body) {
+        this.tree = SyntaxTree.readTree(body);
+    }
+
+    @When("Use-def tree is renamed from {string} to {string}")
+    public void use_def_tree_is_renamed_from_to(String oldVariableName, String newVariableName) {
+        tree.renameVariable(oldVariableName, newVariableName);
+    }
+
+    @Then("readers of {string} should be {string}")
+    public void readers_of_should_be(String variableName, String readers) {
+        UseDefIndex index = tree.getUseDefIndex();
+        Assert.assertEquals(readers, names(index, index.readers(variableName)));
+    }
+
+    @Then("writers of {string} should be {string}")
+    public void writers_of_should_be(String variableName, String writers) {
+        UseDefIndex index = tree.getUseDefIndex();
+        Assert.assertEquals(writers, names(index, index.writers(variableName)));
+    }
+
+    @Then("{string} should be read by {int} statements")
+    public void should_be_read_by_statements(String variableName, int count) {
+        Assert.assertEquals(count, tree.getUseDefIndex().reads(variableName).size());
+    }
+
+    @Then("{string} should be written by {int} statements")
+    public void should_be_written_by_statements(String variableName, int count) {
+        Assert.assertEquals(count, tree.getUseDefIndex().writes(variableName).size());
+    }
+
+    @Then("globals used by {string} should be {string}")
+    public void globals_used_by_should_be(String functionName, String globals) {
+        UseDefIndex index = tree.getUseDefIndex();
+        List<String> names = new ArrayList<>();
+        for(Variable variable : index.variablesUsedBy(index.idOf(tree.findFunction(functionName)))) {
+            names.add(variable.getName());
+        }
+        Assert.assertEquals(globals, String.join(",", names));
+    }
+
+    private String names(UseDefIndex index, int[] ids) {
+        List<String> names = new ArrayList<>();
+        for(int id : ids) {
+            names.add(index.getFunction(id).getName());
+        }
+        return String.join(",", names);
+    }
+}
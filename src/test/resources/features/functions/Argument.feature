@@ -70,4 +70,40 @@ Feature: Test single argument
     Then Argument should be:
     """
     not (GetBooleanOr(Func0002(),Func0003()))
-    """
\ No newline at end of file
+    """
+
+  @Argument
+  Scenario: Test not binds looser than comparison but tighter than and
+    Given input data:
+    """
+    not a==b and c
+    """
+    When Argument is read
+    Then Argument should be:
+    """
+    not (a == b) and c
+    """
+
+  @Argument
+  Scenario: Test operators inside strings and array indexes
+    Given input data:
+    """
+    "<b>"+x[i+1]*-GetUnitX(u)
+    """
+    When Argument is read
+    Then Argument should be:
+    """
+    "<b>" + x[i + 1] * -GetUnitX(u)
+    """
+
+  @Argument
+  Scenario: Test function name ending in a keyword
+    Given input data:
+    """
+    SetUnitColor(u,PLAYER_COLOR_RED)
+    """
+    When Argument is read
+    Then Argument should be:
+    """
+    SetUnitColor(u,PLAYER_COLOR_RED)
+    """
@@ -451,4 +451,80 @@ Feature: Test the Function node
     call ArrwEvent( LoadTrig("ArrowActivator"), function ArrowAct )
     endfunction
     """
-    When Function is read
\ No newline at end of file
+    When Function is read
+
+  @Function
+  Scenario: Test reading Function with a lazy body
+    Given input data:
+    """
+    function Trig_trig3_Actions takes nothing returns nothing
+    local integer i = 0
+    loop
+    exitwhen i > 3
+    call DisplayTextToForce(GetPlayersAll(),I2S(i))
+    set i = i + 1
+    endloop
+    endfunction
+    """
+    When Function is read with a lazy body
+    Then Function header should be "function Trig_trig3_Actions takes nothing returns nothing"
+    Then Function should have 1 loops
+    Then Function should have 1 locals
+    Then Function should have 0 call statements
+
+  @Function
+  Scenario: Test syntax error in a lazy body is reported on first use
+    Given input data:
+    """
+    function Broken takes nothing returns nothing
+    call DisplayTextToForce(GetPlayersAll(),
+    endfunction
+    """
+    When Function is read with a lazy body
+    Then Function header should be "function Broken takes nothing returns nothing"
+    When Function statements are requested
+    Then Function should have a syntax error
+
+  @Function
+  Scenario: Test Function equality follows renames
+    Given input data:
+    """
+    function Trig_trig3_Actions takes nothing returns nothing
+    call ConditionalTriggerExecute(gg_trg_trig2)
+    call TriggerAddAction(gg_trg_trig2, function Trig_trig2_Actions)
+    endfunction
+    """
+    When Function is read twice
+    Then both Functions should be equal
+    When function "Trig_trig2_Actions" is renamed to "Renamed" in the first Function
+    Then both Functions should not be equal
+    When function "Renamed" is renamed to "Trig_trig2_Actions" in the first Function
+    Then both Functions should be equal
+
+  @Function
+  Scenario: Test Function text is rendered again after a rename
+    Given input data:
+    """
+    function Trig_trig3_Actions takes nothing returns nothing
+    call TriggerAddAction(gg_trg_trig2, function Trig_trig2_Actions)
+    endfunction
+    """
+    When Function is read
+    Then Function should only be rendered once
+    When function "Trig_trig2_Actions" is renamed to "Renamed" in the first Function
+    Then Function text should contain "function Renamed"
+    Then Function should only be rendered once
+
+  @Function
+  Scenario: Test Function keeps its hash code when another Function is renamed
+    Given input data:
+    """
+    function Trig_trig3_Actions takes nothing returns nothing
+    call TriggerAddAction(gg_trg_trig2, function Trig_trig2_Actions)
+    endfunction
+    """
+    When Function is read twice
+    When the first Function is rendered and hashed
+    When function "Trig_trig2_Actions" is renamed to "Renamed" in the second Function
+    Then the first Function should keep its text and hash code
+    Then both Functions should not be equal
@@ -45,4 +45,78 @@ Feature: Test the Script node
     endfunction
     """
     When J File is read  
-    Then J File should contain 1 functions
\ No newline at end of file
+    Then J File should contain 1 functions
+
+  @Script
+  Scenario: Test reading script with multiple globals sections
+    Given input data:
+    """
+    globals
+    integer a = 0
+    endglobals
+    function test takes nothing returns nothing
+    endfunction
+    globals
+    integer b = 1
+    real c
+    endglobals
+    """
+    When J File is read
+    Then J File should contain 3 variables
+    Then J File should contain 1 functions
+
+  @Script
+  Scenario: Test reading script with functions around nested containers
+    Given input data:
+    """
+    function before takes nothing returns nothing
+    endfunction
+    library Outer
+    struct Inner
+    method run takes nothing returns nothing
+    loop
+    exitwhen true
+    endloop
+    endmethod
+    endstruct
+    endlibrary
+    function after takes nothing returns nothing
+    if true then
+    call before()
+    endif
+    endfunction
+    """
+    When J File is read
+    Then J File should contain 2 functions
+
+  @Script
+  Scenario: Test reading vJASS containers in parallel
+    Given input data:
+    """
+    function before takes nothing returns nothing
+    endfunction
+    library First initializer init
+    globals
+    integer scopeCount = 0
+    endglobals
+    function init takes nothing returns nothing
+    set scopeCount = 1
+    endfunction
+    endlibrary
+    scope Middle
+    function helper takes nothing returns nothing
+    endfunction
+    endscope
+    library Outer
+    struct Inner
+    method run takes nothing returns nothing
+    endmethod
+    endstruct
+    endlibrary
+    function after takes nothing returns nothing
+    call before()
+    endfunction
+    """
+    When J File is read in parallel
+    Then J File should contain 2 functions
+    Then J File should be the same as when read sequentially
\ No newline at end of file
@@ -0,0 +1,102 @@
+Feature: Test JASS lexer
+
+  @JassLexer
+  Scenario: Test lexer basic statement
+    Given input data without preprocessing:
+    """
+    call SetUnitColor(u, ConvertPlayerColor(0))
+    """
+    When Tokens are read
+    Then Tokens should be:
+    """
+    KEYWORD(call)
+    IDENTIFIER(SetUnitColor)
+    LEFT_PARENTHESIS(()
+    IDENTIFIER(u)
+    COMMA(,)
+    IDENTIFIER(ConvertPlayerColor)
+    LEFT_PARENTHESIS(()
+    INTEGER(0)
+    RIGHT_PARENTHESIS())
+    RIGHT_PARENTHESIS())
+    """
+
+  @JassLexer
+  Scenario: Test lexer keeps operators in string literals
+    Given input data without preprocessing:
+    """
+    set s = "a<b and \"c\"" + s
+    """
+    When Tokens are read
+    Then Tokens should be:
+    """
+    KEYWORD(set)
+    IDENTIFIER(s)
+    OPERATOR(=)
+    STRING("a<b and \"c\"")
+    OPERATOR(+)
+    IDENTIFIER(s)
+    """
+
+  @JassLexer
+  Scenario: Test lexer literals and comparisons
+    Given input data without preprocessing:
+    """
+    if x[i+1]>=.5 and y!='hfoo' or z==$FF or w<=0x1A then
+    """
+    When Tokens are read
+    Then Tokens should be:
+    """
+    KEYWORD(if)
+    IDENTIFIER(x)
+    LEFT_BRACKET([)
+    IDENTIFIER(i)
+    OPERATOR(+)
+    INTEGER(1)
+    RIGHT_BRACKET(])
+    OPERATOR(>=)
+    REAL(.5)
+    KEYWORD(and)
+    IDENTIFIER(y)
+    OPERATOR(!=)
+    RAWCODE('hfoo')
+    KEYWORD(or)
+    IDENTIFIER(z)
+    OPERATOR(==)
+    INTEGER($FF)
+    KEYWORD(or)
+    IDENTIFIER(w)
+    OPERATOR(<=)
+    INTEGER(0x1A)
+    KEYWORD(then)
+    """
+
+  @JassLexer
+  Scenario: Test lexer vJASS member access and comments
+    Given input data without preprocessing:
+    """
+    set this.x = thistype.create() // comment
+    """
+    When Tokens are read
+    Then Tokens should be:
+    """
+    KEYWORD(set)
+    IDENTIFIER(this.x)
+    OPERATOR(=)
+    IDENTIFIER(thistype.create)
+    LEFT_PARENTHESIS(()
+    RIGHT_PARENTHESIS())
+    COMMENT(// comment)
+    """
+
+  @JassLexer
+  Scenario: Test line stream slices share lines
+    Given input data without preprocessing:
+    """
+    function a takes nothing returns nothing
+    call b()
+    endfunction
+    """
+    When Line stream is read
+    Then Line stream slice from 1 to 2 should be: "call b()"
+    Then Line stream should have 3 lines
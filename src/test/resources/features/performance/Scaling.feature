@@ -0,0 +1,67 @@
+@Scaling
+Feature: Test that operations scale near-linearly with the input
+
+  Scenario: Reading a tree scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "reading a tree" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Preprocessing scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "preprocessing" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Rendering a tree scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "rendering a tree" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Formatting a tree scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "formatting a tree" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Renaming a variable scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "renaming a variable" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Renaming a function scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "renaming a function" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Renaming everything at once scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "renaming everything at once" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Deduplicating a tree scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "deduplicating a tree" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Postprocessing a tree scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "postprocessing a tree" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Merging a script scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "merging a script" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Isolating a function scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "isolating a function" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Generating unique names scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "generating unique names" is timed at each size
+    Then time should grow at most 3.0 times per doubling
+
+  Scenario: Reading nested parenthesis scales linearly
+    Given scaling inputs from 40000 bytes doubled 3 times
+    When "reading nested parenthesis" is timed at each size
+    Then time should grow at most 3.0 times per doubling
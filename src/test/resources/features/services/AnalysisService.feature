@@ -88,4 +88,105 @@ Feature: Test analysis service
     Given input file: "war3map1"
     Given passive expansion style
     When input tree is isolated for variable usage with depth -1 and name "udg_myVar"
-    Then result should have 4 function usages and 2 variable usages
\ No newline at end of file
+    Then result should have 4 function usages and 2 variable usages
+
+  Scenario: Test function isolation expands everything at its shortest depth
+    Given input data:
+    """
+    globals
+    integer v=0
+    endglobals
+    function E takes nothing returns nothing
+    endfunction
+    function D takes nothing returns nothing
+    call E()
+    endfunction
+    function B takes nothing returns nothing
+    call D()
+    endfunction
+    function W takes nothing returns nothing
+    set v = 1
+    call D()
+    endfunction
+    function main takes nothing returns nothing
+    set v = 0
+    call B()
+    endfunction
+    """
+    Given passive expansion style
+    When input tree is isolated for function usage with depth 3 and name "main"
+    Then result should have 5 function usages and 1 variable usages
+
+  Scenario: Test parallel function isolation finds the same as sequential isolation
+    Given input file: "war3map3"
+    Given aggressive expansion style
+    Then parallel isolation of function "main" with depth -1 should match sequential isolation
+
+  Scenario: Test dependencies and dependents of functions calling each other
+    Given input data:
+    """
+    globals
+    integer a=0
+    integer b=0
+    endglobals
+    function leaf takes nothing returns nothing
+    set a = 1
+    endfunction
+    function ping takes nothing returns nothing
+    call pong()
+    endfunction
+    function pong takes nothing returns nothing
+    set b = 1
+    call ping()
+    call leaf()
+    endfunction
+    function main takes nothing returns nothing
+    call ping()
+    endfunction
+    function other takes nothing returns nothing
+    set a = 2
+    endfunction
+    """
+    When input tree dependencies are found for function "ping"
+    Then result should have 3 function usages and 2 variable usages
+
+  Scenario: Test dependents of a function called through a cycle
+    Given input data:
+    """
+    function leaf takes nothing returns nothing
+    endfunction
+    function ping takes nothing returns nothing
+    call pong()
+    endfunction
+    function pong takes nothing returns nothing
+    call ping()
+    call leaf()
+    endfunction
+    function main takes nothing returns nothing
+    call ping()
+    endfunction
+    """
+    When input tree dependents are found for function "leaf"
+    Then result should have 4 function usages and 0 variable usages
+
+  Scenario: Test dependents of a variable used below a cycle
+    Given input data:
+    """
+    globals
+    integer a=0
+    endglobals
+    function leaf takes nothing returns nothing
+    set a = 1
+    endfunction
+    function ping takes nothing returns nothing
+    call pong()
+    endfunction
+    function pong takes nothing returns nothing
+    call ping()
+    call leaf()
+    endfunction
+    function other takes nothing returns nothing
+    endfunction
+    """
+    When input tree dependents are found for variable "a"
+    Then result should have 3 function usages and 1 variable usages
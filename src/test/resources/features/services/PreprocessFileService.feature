@@ -70,4 +70,26 @@ Feature: Test the file preprocessor
     Then Preprocessed data should be:
     """
     call Preload("\")|necho f = Replace(f,\"\\\",Chr(92)) >> C:\\download.vbs|n//")
-    """
\ No newline at end of file
+    """
+
+  @FilePreprocessor
+  Scenario: Test that preprocessor drops blank lines and handles Windows line endings
+    Given input data with Windows line endings:
+    """
+
+    globals
+
+
+      integer a = 0 // counter
+    "not a comment // here"
+
+    endglobals
+
+    """
+    Then Preprocessed data should be:
+    """
+    globals
+    integer a = 0
+    "not a comment // here"
+    endglobals
+    """
@@ -0,0 +1,18 @@
+Feature: Test synthetic script generator
+
+  Scenario: Generated script can be read with every construct
+    Given a script generated with seed 5
+    When the generated script is read
+    Then the generated tree should have 13 functions and 12 globals
+    Then the generated tree should have 1 library, 1 scope and 1 struct
+
+  Scenario: Generated script only depends on the seed
+    Given a script generated with seed 5
+    Then the generated script should be the same as with seed 5
+    Then the generated script should differ from seed 6
+
+  Scenario: Generated script can be scaled to a size
+    Given a script generated with seed 5 scaled to 200000 bytes
+    Then the generated script should be between 150000 and 250000 bytes
+    When the generated script is read
+    Then the generated tree should have 149 functions and 142 globals
@@ -8,4 +8,56 @@ Feature: Test syntax tree
   @Script
   Scenario: Test reading real j file (SWAT Aftermath)
     Given tree file "war3map2"
-    Then there should be no syntax error
\ No newline at end of file
+    Then there should be no syntax error
+
+  @Script
+  Scenario: Test reading real j file from a memory-mapped path
+    Given tree path "war3map1"
+    Then tree should be the same as read from a String
+
+  @Script
+  Scenario: Test reading real j file from a byte buffer
+    Given tree buffer "war3map2"
+    Then tree should be the same as read from a String
+
+  @Script
+  Scenario: Test writing real j file to a file and to an Appendable
+    Given tree path "war3map2"
+    Then tree should be written the same as its String
+
+  @Script
+  Scenario: Test reading real j file with function bodies parsed in parallel
+    Given tree file "war3map2" read in parallel
+    Then tree should be the same as read from a String
+
+  @Script
+  Scenario: Test reading real j file on several threads at once
+    Given tree file "war3map1" read on 4 threads at once
+    Then tree should be the same as read from a String
+
+  @Script
+  Scenario: Test reading real j file in parallel from the only thread of the executor
+    Given tree file "war3map2" read in parallel from a thread of its own single-thread executor
+    Then tree should be the same as read from a String
+
+  @Script
+  Scenario: Test parses run on the calling thread keep its last line
+    Given tree context running parses inline after last line "globals"
+    And parses of 300 lines that read line "call DoNothing()" are joined
+    Then the last line of the tree context should be "globals"
+
+  @Script
+  Scenario: Test error context of a function parsed in parallel
+    Given tree text read in parallel:
+    """
+    function first takes nothing returns nothing
+    call DoNothing()
+    endfunction
+    function second takes nothing returns nothing
+    call DoNothing(
+    endfunction
+    function third takes nothing returns nothing
+    call DoNothing()
+    endfunction
+    """
+    Then the syntax error should end with last line "DoNothing("
\ No newline at end of file
@@ -0,0 +1,70 @@
+Feature: Test the call graph of a syntax tree
+
+  Scenario: Call graph separates calls from function references
+    Given Call graph script:
+    """
+    globals
+    trigger t=null
+    code c=null
+    endglobals
+    function Cheatz takes nothing returns nothing
+    endfunction
+    function Cheatz0r takes nothing returns boolean
+    return true
+    endfunction
+    function Setup takes nothing returns nothing
+    set c = function Cheatz
+    return
+    endfunction
+    function main takes nothing returns nothing
+    call Setup()
+    call TriggerAddCondition(t, Condition(function Cheatz0r))
+    endfunction
+    """
+    Then "main" should call "Setup"
+    Then "main" should refer to "Cheatz0r"
+    Then "main" should not use "Cheatz"
+    Then "Setup" should refer to "Cheatz"
+    Then callers of "Cheatz" should be "Setup"
+    Then callers of "TriggerAddCondition" should be "main"
+
+  Scenario: Call graph follows function renames
+    Given Call graph script:
+    """
+    function Helper takes nothing returns nothing
+    endfunction
+    function Other takes nothing returns nothing
+    endfunction
+    function main takes nothing returns nothing
+    call Helper()
+    call Other()
+    endfunction
+    """
+    Then "main" should call "Helper"
+    When Call graph tree is function renamed from "Helper" to "Renamed"
+    Then "main" should call "Renamed"
+    Then "main" should call "Other"
+    Then callers of "Renamed" should be "main"
+    Then callers of "Helper" should be ""
+
+  Scenario: Call graph follows renames of library functions
+    Given Call graph script:
+    """
+    function main takes nothing returns nothing
+    call Helper()
+    endfunction
+    library Tools
+    function Helper takes nothing returns nothing
+    endfunction
+    function Repeat takes nothing returns nothing
+    call Helper()
+    call TimerStart(CreateTimer(),1.,true,function Helper)
+    endfunction
+    endlibrary
+    """
+    Then callers of function "Helper" should be "main,Repeat"
+    When Call graph tree is function renamed from "Helper" to "Renamed"
+    Then callers of function "Renamed" should be "main,Repeat"
+    Then "Repeat" should call "Renamed"
+    Then "Repeat" should refer to "Renamed"
+    Then callers of "Helper" should be ""
@@ -0,0 +1,45 @@
+Feature: Test measuring a parse with a parse listener
+
+  Scenario: Parse listener is told about every phase, node and function
+    Given Measured script:
+    """
+    type agent extends handle
+    globals
+    integer counter=0
+    integer total=0
+    endglobals
+    function Increment takes nothing returns nothing
+    set counter = counter + 1
+    endfunction
+    function AddAll takes nothing returns nothing
+    loop
+    exitwhen counter > 100
+    set total = total + counter
+    set total = total + counter
+    set total = total + counter
+    set total = total + counter
+    set total = total + counter
+    set total = total + counter
+    set total = total + counter
+    set total = total + counter
+    call Increment()
+    endloop
+    endfunction
+    library Counting
+    function CountAgain takes nothing returns nothing
+    set counter = 0
+    endfunction
+    endlibrary
+    """
+    Then measured parse should have read 606 characters
+    Then measured parse should have read 3 functions, 2 globals and 10 set statements
+    Then measured parse should have timed every phase
+    Then measured slowest function should be "AddAll"
+
+  Scenario: Parallel parse reports the same nodes and functions
+    Given measured tree file "war3map3" read in parallel
+    Then parallel measured parse should have read the same nodes
+
+  Scenario: Parse listener is told the bytes of a file or buffer
+    Given measured tree path "war3map3"
+    Then measured parse should have read the bytes of file "war3map3" and no characters
@@ -211,3 +211,188 @@ Feature: Test renaming syntax tree variables
 
 
 
+
+  Scenario: Syntax tree renames many names at once
+    Given Non-renamed script:
+    """
+    globals
+    integer first=0
+    integer second=first
+    endglobals
+    function Swap takes nothing returns nothing
+    set first = second
+    endfunction
+    function main takes nothing returns nothing
+    call Swap()
+    call TimerStart(CreateTimer(),1.,false,function Swap)
+    endfunction
+    """
+    When Tree is renamed with variables "first=second,second=first" and functions "Swap=Exchange"
+    Then Renamed script should be:
+    """
+    globals
+    integer second=0
+    integer first=second
+    endglobals
+    function Exchange takes nothing returns nothing
+    set second = first
+    endfunction
+    function main takes nothing returns nothing
+    call Exchange()
+    call TimerStart(CreateTimer(),1.,false,function Exchange)
+    endfunction
+    """
+
+  Scenario: Syntax tree keeps renaming the same names
+    Given Non-renamed script:
+    """
+    globals
+    integer count=0
+    code handler=function Tick
+    endglobals
+    function Tick takes nothing returns nothing
+    local integer count=1
+    set count = count + 1
+    endfunction
+    function main takes nothing returns nothing
+    call Tick()
+    set count = Tick2(count)
+    endfunction
+    """
+    When Tree is renamed from "count" to "total"
+    When Tree is function renamed from "Tick" to "Step"
+    When Tree is renamed from "total" to "sum"
+    When Tree is function renamed from "Step" to "Advance"
+    Then Renamed script should be:
+    """
+    globals
+    integer sum=0
+    code handler=function Advance
+    endglobals
+    function Advance takes nothing returns nothing
+    local integer sum=1
+    set sum = sum + 1
+    endfunction
+    function main takes nothing returns nothing
+    call Advance()
+    set sum = Tick2(sum)
+    endfunction
+    """
+
+  Scenario: Syntax tree renames inside of libraries and scopes
+    Given Non-renamed script:
+    """
+    function main takes nothing returns nothing
+    call Tick()
+    set count = 0
+    endfunction
+    library Counter
+    globals
+    integer count=0
+    endglobals
+    function Tick takes nothing returns nothing
+    set count = count + 1
+    endfunction
+    endlibrary
+    scope Timers
+    function StartTicking takes nothing returns nothing
+    call TimerStart(CreateTimer(),1.,true,function Tick)
+    endfunction
+    endscope
+    """
+    When Tree is renamed from "count" to "total"
+    When Tree is function renamed from "Tick" to "Step"
+    Then Renamed script should be:
+    """
+    function main takes nothing returns nothing
+    call Step()
+    set total = 0
+    endfunction
+    library Counter
+    globals
+    integer total=0
+    endglobals
+    function Step takes nothing returns nothing
+    set total = total + 1
+    endfunction
+    endlibrary
+    scope Timers
+    function StartTicking takes nothing returns nothing
+    call TimerStart(CreateTimer(),1.,true,function Step)
+    endfunction
+    endscope
+    """
+
+  Scenario: Syntax tree renames many names at once without globals
+    Given Non-renamed script:
+    """
+    function Tick takes nothing returns nothing
+    call Tick()
+    endfunction
+    """
+    When Tree is renamed with variables "count=total" and functions "Tick=Step"
+    Then Renamed script should be:
+    """
+    function Step takes nothing returns nothing
+    call Step()
+    endfunction
+    """
+
+  Scenario: Syntax tree renames many names at once inside of libraries
+    Given Non-renamed script:
+    """
+    globals
+    integer x=0
+    endglobals
+    function main takes nothing returns nothing
+    call h()
+    endfunction
+    library L
+    function h takes nothing returns nothing
+    set x = x + 1
+    call h()
+    endfunction
+    endlibrary
+    """
+    When Tree is renamed with variables "x=y" and functions "h=hh"
+    Then Renamed script should be:
+    """
+    globals
+    integer y=0
+    endglobals
+    function main takes nothing returns nothing
+    call hh()
+    endfunction
+    library L
+    function hh takes nothing returns nothing
+    set y = y + 1
+    call hh()
+    endfunction
+    endlibrary
+    """
+
+  Scenario: Syntax tree equals the same script read directly after renames
+    Given Non-renamed script:
+    """
+    globals
+    integer x=0
+    endglobals
+    function Foo takes integer a returns nothing
+    endfunction
+    function main takes nothing returns nothing
+    call Foo(x)
+    endfunction
+    """
+    When Tree is function renamed from "Foo" to "Bar"
+    When Tree is renamed from "x" to "y"
+    Then Renamed tree should equal the same script read directly:
+    """
+    globals
+    integer y=0
+    endglobals
+    function Bar takes integer a returns nothing
+    endfunction
+    function main takes nothing returns nothing
+    call Bar(y)
+    endfunction
+    """
@@ -0,0 +1,91 @@
+Feature: Test finding declarations of a syntax tree by name
+
+  Scenario: Syntax tree finds globals, functions, natives and types
+    Given Indexed script:
+    """
+    type agent extends handle
+    globals
+    integer counter=0
+    endglobals
+    native GetTriggerUnit takes nothing returns unit
+    function Increment takes nothing returns nothing
+    set counter = counter + 1
+    endfunction
+    """
+    Then global "counter" should be found
+    Then function "Increment" should be found
+    Then function "GetTriggerUnit" should be found
+    Then native "GetTriggerUnit" should be found
+    Then type "agent" should be found
+    Then global "Increment" should not be found
+    Then function "counter" should not be found
+
+  Scenario: Syntax tree finds declarations again after renames
+    Given Indexed script:
+    """
+    globals
+    integer counter=0
+    endglobals
+    function Increment takes nothing returns nothing
+    set counter = counter + 1
+    endfunction
+    """
+    When Indexed tree is renamed from "counter" to "total"
+    When Indexed tree is function renamed from "Increment" to "Add"
+    Then global "total" should be found
+    Then global "counter" should not be found
+    Then function "Add" should be found
+    Then function "Increment" should not be found
+
+  Scenario: Syntax tree finds declarations inside of vJASS containers
+    Given Indexed script:
+    """
+    library Counters
+    globals
+    integer counter=0
+    endglobals
+    function Increment takes nothing returns nothing
+    set counter = counter + 1
+    endfunction
+    endlibrary
+    struct Point
+    method reset takes nothing returns nothing
+    endmethod
+    endstruct
+    """
+    Then global "counter" should be found
+    Then function "Increment" should be found
+    Then method "Point.reset" should be found
+    Then function "reset" should not be found
+
+  Scenario: Syntax tree finds declarations after merges and renames of methods
+    Given Indexed script:
+    """
+    globals
+    integer counter=0
+    endglobals
+    function Increment takes nothing returns nothing
+    set counter = counter + 1
+    endfunction
+    struct Point
+    method reset takes nothing returns nothing
+    endmethod
+    endstruct
+    """
+    When Indexed tree is merged with:
+    """
+    globals
+    integer total=0
+    endglobals
+    function Add takes nothing returns nothing
+    set total = total + 1
+    endfunction
+    """
+    When Indexed tree gets function main
+    When Indexed tree is function renamed from "reset" to "clear"
+    Then global "counter" should be found
+    Then global "total" should be found
+    Then function "Add" should be found
+    Then function "main" should be found
+    Then method "Point.clear" should be found
+    Then function "clear" should not be found
@@ -0,0 +1,51 @@
+Feature: Test where the global variables of a syntax tree are read and written
+
+  Scenario: Use-def index separates reads from writes, array elements included
+    Given Use-def script:
+    """
+    globals
+    integer count=0
+    integer array values
+    boolean ready=false
+    endglobals
+    function Store takes integer i returns nothing
+    set values[count] = i
+    set count = count + 1
+    endfunction
+    function Check takes nothing returns boolean
+    if (ready) then
+    return values[0] > 0
+    endif
+    return false
+    endfunction
+    function main takes nothing returns nothing
+    set ready = true
+    call Store(5)
+    endfunction
+    """
+    Then readers of "count" should be "Store"
+    Then writers of "count" should be "Store"
+    Then readers of "values" should be "Check"
+    Then writers of "values" should be "Store"
+    Then readers of "ready" should be "Check"
+    Then writers of "ready" should be "main"
+    Then "count" should be read by 2 statements
+    Then "count" should be written by 1 statements
+    Then "values" should be read by 1 statements
+    Then globals used by "Store" should be "count,values"
+    Then globals used by "main" should be "ready"
+
+  Scenario: Use-def index follows variable renames
+    Given Use-def script:
+    """
+    globals
+    integer count=0
+    endglobals
+    function main takes nothing returns nothing
+    set count = count + 1
+    endfunction
+    """
+    When Use-def tree is renamed from "count" to "total"
+    Then readers of "total" should be "main"
+    Then writers of "total" should be "main"
+    Then readers of "count" should be ""